@@ -11,7 +11,10 @@ import java.util.Random;
 
 import com.project.graphics.Camera;
 import com.project.graphics.Crosshair;
+import com.project.graphics.GlState;
+import com.project.graphics.GpuResources;
 import com.project.graphics.Hotbar;
+import com.project.graphics.TextureRegistry;
 import com.project.menu.StartScreen;
 import com.project.world.Inventory;
 import com.project.world.Player;
@@ -146,9 +149,10 @@ public class Main {
             float deltaTime = (float) (currentTime - lastTime);
             lastTime = currentTime;
 
-            // Pulizia buffer
+            // Pulizia buffer; lo stato noto si riparte da zero a ogni frame
+            GlState.reset();
             glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-            glUseProgram(shaderProgram);
+            GlState.useProgram(shaderProgram);
 
             // Aggiornamento e rendering componenti
             player.handleInput(gameWindow, deltaTime);
@@ -247,25 +251,33 @@ public class Main {
 
     /**
      * Pulisce le risorse del gioco prima della chiusura.
+     * Segnala gli oggetti OpenGL rimasti nel contesto della finestra di gioco.
      * 
      * @param shaderProgram Program shader da eliminare
      */
     private void cleanup(int shaderProgram) {
         world.cleanup();
-        glDeleteProgram(shaderProgram);
+        hotbar.cleanup();
+        crosshair.cleanup();
+        TextureRegistry.releaseAll(); // le texture appartengono al contesto della finestra di gioco
+        GpuResources gpu = GpuResources.get();
+        gpu.delete(GpuResources.Kind.PROGRAM, shaderProgram);
+
+        System.out.println("Risorse GPU a fine partita: " + gpu.stats());
+        System.out.println("Stato OpenGL: " + GlState.stats());
+        for (GpuResources.Resource leaked : gpu.closeContext())
+            System.err.println("Risorsa GPU non liberata: " + leaked);
     }
 
     // ==================== METODI STATICI ====================
     /**
      * Esce dal gioco e torna al menu principale.
-     * Pulisce le risorse e ripristina il cursore normale.
-     * 
-     * @param shaderProgram Program shader da eliminare
+     * Ferma il ciclo di gioco e ripristina il cursore normale; il mondo viene
+     * salvato e chiuso, con gli oggetti OpenGL, alla fine del ciclo (il frame
+     * in corso lo usa ancora).
      */
-    public static void exitToMenu(int shaderProgram) {
+    public static void exitToMenu() {
         running = false;
-        world.cleanup();
-        glDeleteProgram(shaderProgram);
         glfwSetInputMode(gameWindow, GLFW_CURSOR, GLFW_CURSOR_NORMAL);
     }
 }
\ No newline at end of file
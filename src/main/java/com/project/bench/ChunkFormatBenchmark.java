@@ -0,0 +1,176 @@
+package com.project.bench;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.project.world.BlockType;
+import com.project.world.storage.ChunkCodec;
+import com.project.world.storage.RegionFile;
+import com.project.world.storage.RegionStorage;
+
+/**
+ * Confronta il formato chunk versione 1 (un byte per cella) con la versione 2
+ * (palette per sezione + indici a bit) su mondi reali: tempo di salvataggio
+ * (codifica + compressione), di caricamento (decompressione + decodifica) e
+ * dimensione compressa.
+ *
+ * <p>
+ * Uso: {@code ChunkFormatBenchmark <cartella> [<cartella> ...]}; vengono letti
+ * sia i vecchi file {@code x_z.nbt} sia le regioni {@code r.x.z.mcr}.
+ */
+public final class ChunkFormatBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 10;
+
+    private ChunkFormatBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<ChunkCodec.Blocks> chunks = new ArrayList<>();
+        for (String dir : args.length > 0 ? args : new String[] { "saves" })
+            readChunks(Path.of(dir), chunks);
+        if (chunks.isEmpty()) {
+            System.out.println("Nessun chunk trovato");
+            return;
+        }
+        System.out.printf("Chunk campione: %d%n", chunks.size());
+
+        Result stream = measureStream(chunks);
+        Result v1 = measure(chunks, true);
+        Result v2 = measure(chunks, false);
+        report("v1 byte per byte su GZIP (vecchio Chunk.save)", stream, chunks.size());
+        report("v1 in blocco", v1, chunks.size());
+        report("v2 in blocco", v2, chunks.size());
+        System.out.printf("v2/vecchio: save %.2fx più veloce, load %.2fx più veloce%n",
+                (double) stream.saveNanos / v2.saveNanos, (double) stream.loadNanos / v2.loadNanos);
+        System.out.printf("v2/v1: save %.2fx più veloce, load %.2fx più veloce, %.1f%% della dimensione%n",
+                (double) v1.saveNanos / v2.saveNanos, (double) v1.loadNanos / v2.loadNanos,
+                100.0 * v2.bytes / v1.bytes);
+    }
+
+    private record Result(long saveNanos, long loadNanos, long bytes) {
+    }
+
+    private static Result measure(List<ChunkCodec.Blocks> chunks, boolean legacy) throws IOException {
+        long save = 0, load = 0, size = 0;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            boolean counted = round >= WARMUP;
+            for (ChunkCodec.Blocks blocks : chunks) {
+                long t0 = System.nanoTime();
+                byte[] raw = legacy ? ChunkCodec.encodeLegacy(blocks) : ChunkCodec.encode(blocks);
+                byte[] compressed = RegionStorage.deflate(raw);
+                long t1 = System.nanoTime();
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        new InflaterInputStream(new ByteArrayInputStream(compressed))))) {
+                    ChunkCodec.decode(in);
+                }
+                long t2 = System.nanoTime();
+                if (counted) {
+                    save += t1 - t0;
+                    load += t2 - t1;
+                    size += compressed.length;
+                }
+            }
+        }
+        return new Result(save / ROUNDS, load / ROUNDS, size / ROUNDS);
+    }
+
+    /** Il percorso originale: writeByte/readByte per cella su stream GZIP non bufferizzati. */
+    private static Result measureStream(List<ChunkCodec.Blocks> chunks) throws IOException {
+        long save = 0, load = 0, size = 0;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            boolean counted = round >= WARMUP;
+            for (ChunkCodec.Blocks blocks : chunks) {
+                int sx = blocks.sizeX(), sy = blocks.sizeY(), sz = blocks.sizeZ();
+                long t0 = System.nanoTime();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+                    out.writeByte(ChunkCodec.VERSION_LEGACY);
+                    out.writeInt(sx);
+                    out.writeInt(sy);
+                    out.writeInt(sz);
+                    for (int x = 0; x < sx; x++)
+                        for (int y = 0; y < sy; y++)
+                            for (int z = 0; z < sz; z++) {
+                                BlockType bt = blocks.type(x, y, z);
+                                out.writeByte(bt == null ? -1 : bt.ordinal());
+                            }
+                }
+                long t1 = System.nanoTime();
+                try (DataInputStream in = new DataInputStream(
+                        new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())))) {
+                    in.readByte();
+                    in.readInt();
+                    in.readInt();
+                    in.readInt();
+                    BlockType[] values = BlockType.values();
+                    BlockType[][][] types = new BlockType[sx][sy][sz];
+                    for (int x = 0; x < sx; x++)
+                        for (int y = 0; y < sy; y++)
+                            for (int z = 0; z < sz; z++) {
+                                int id = in.readByte();
+                                types[x][y][z] = id == -1 ? null : values[id];
+                            }
+                }
+                long t2 = System.nanoTime();
+                if (counted) {
+                    save += t1 - t0;
+                    load += t2 - t1;
+                    size += bytes.size();
+                }
+            }
+        }
+        return new Result(save / ROUNDS, load / ROUNDS, size / ROUNDS);
+    }
+
+    private static void report(String label, Result r, int count) {
+        System.out.printf("%-46s: save %6.2f ms/chunk, load %6.2f ms/chunk, %6.1f KiB/chunk su disco%n",
+                label, r.saveNanos / 1e6 / count, r.loadNanos / 1e6 / count, r.bytes / 1024.0 / count);
+    }
+
+    private static void readChunks(Path dir, List<ChunkCodec.Blocks> out) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".nbt")) {
+                try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+                    out.add(ChunkCodec.decode(in));
+                }
+            } else if (name.endsWith(".mcr")) {
+                try (RegionFile region = new RegionFile(file)) {
+                    for (int z = 0; z < RegionFile.REGION_SIZE; z++) {
+                        for (int x = 0; x < RegionFile.REGION_SIZE; x++) {
+                            RegionFile.Entry entry = region.read(x, z);
+                            if (entry == null)
+                                continue;
+                            InputStream raw = new ByteArrayInputStream(entry.data());
+                            InputStream data = entry.compression() == RegionFile.COMPRESSION_GZIP
+                                    ? new GZIPInputStream(raw)
+                                    : new InflaterInputStream(raw);
+                            try (DataInputStream in = new DataInputStream(data)) {
+                                out.add(ChunkCodec.decode(in));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
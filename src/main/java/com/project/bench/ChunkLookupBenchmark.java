@@ -0,0 +1,183 @@
+package com.project.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.project.math.Point2i;
+import com.project.world.Chunk;
+import com.project.world.ChunkMap;
+
+/**
+ * Confronta le query sui blocchi in coordinate mondo (quelle di collisioni e
+ * raycast) con la vecchia {@code HashMap<Point2i, Chunk>} e con
+ * {@link ChunkMap}: query al secondo e byte allocati per query sul thread che
+ * misura. La stessa misura senza {@code isSolid} isola il costo della sola
+ * ricerca del chunk.
+ *
+ * <p>
+ * Le query ricalcano i due usi reali: il box di collisione del giocatore
+ * (passo di mezzo blocco attorno a una posizione) e il raycast DDA lungo una
+ * direzione casuale, con partenze sparse su tutta la griglia di chunk.
+ *
+ * <p>
+ * Uso: {@code ChunkLookupBenchmark [raggio] [numQuery]}; la griglia è di
+ * (2 × raggio + 1)² chunk generati, come il mondo con quella distanza di vista.
+ */
+public final class ChunkLookupBenchmark {
+
+    private static final int CHUNK_SIZE = 64;
+    private static final int HEIGHT = 128;
+    /** Cubi impilati per colonna nella mappa a chiave long, come nel mondo. */
+    private static final int LAYERS = HEIGHT / CHUNK_SIZE;
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 10;
+
+    private ChunkLookupBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int radius = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        Map<Point2i, Chunk> hashed = new HashMap<>();
+        ChunkMap packed = new ChunkMap();
+        for (int cx = -radius; cx <= radius; cx++) {
+            for (int cz = -radius; cz <= radius; cz++) {
+                Chunk c = new Chunk(CHUNK_SIZE, HEIGHT, CHUNK_SIZE);
+                c.setWorldOffset(cx * CHUNK_SIZE, 0, cz * CHUNK_SIZE);
+                c.generateTerrain();
+                c.cleanup();
+                hashed.put(new Point2i(cx, cz), c);
+                for (int cy = 0; cy < LAYERS; cy++) {
+                    Chunk cube = new Chunk(CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE);
+                    cube.setWorldOffset(cx * CHUNK_SIZE, cy * CHUNK_SIZE, cz * CHUNK_SIZE);
+                    cube.generateTerrain();
+                    cube.cleanup();
+                    packed.put(ChunkMap.key(cx, cy, cz), cube);
+                }
+            }
+        }
+        int[] xyz = queries(radius, count);
+        System.out.printf("Chunk: %d, query: %d%n", packed.size(), count);
+
+        Result legacy = measure(() -> hashedRound(hashed, xyz, true));
+        Result map = measure(() -> packedRound(packed, xyz, true));
+        if (legacy.found != map.found)
+            throw new IllegalStateException("risultati diversi: " + legacy.found + " vs " + map.found);
+        Result legacyFind = measure(() -> hashedRound(hashed, xyz, false));
+        Result mapFind = measure(() -> packedRound(packed, xyz, false));
+        report("HashMap<Point2i, Chunk> (vecchia)", legacy, count);
+        report("ChunkMap (chiave long + cache)", map, count);
+        report("solo chunk, HashMap", legacyFind, count);
+        report("solo chunk, ChunkMap", mapFind, count);
+        System.out.printf("ChunkMap/HashMap: %.2fx query al secondo (%.2fx la sola ricerca del chunk)%n",
+                (double) legacy.nanos / map.nanos, (double) legacyFind.nanos / mapFind.nanos);
+    }
+
+    /** Coordinate delle query, a terne x, y, z. */
+    private static int[] queries(int radius, int count) {
+        Random random = new Random(42);
+        int[] xyz = new int[count * 3];
+        int span = (2 * radius + 1) * CHUNK_SIZE;
+        int n = 0;
+        while (n < count) {
+            float px = random.nextFloat() * span - radius * CHUNK_SIZE;
+            float py = 20 + random.nextFloat() * 40;
+            float pz = random.nextFloat() * span - radius * CHUNK_SIZE;
+            if (random.nextBoolean()) {
+                // box di collisione del giocatore (come Camera.isColliding)
+                for (float ox = -0.8f; ox <= 0.8f && n < count; ox += 0.5f)
+                    for (float oy = 0; oy <= 1.8f && n < count; oy += 0.5f)
+                        for (float oz = -0.8f; oz <= 0.8f && n < count; oz += 0.5f, n++) {
+                            xyz[n * 3] = (int) Math.floor(px + ox);
+                            xyz[n * 3 + 1] = (int) Math.floor(py + oy);
+                            xyz[n * 3 + 2] = (int) Math.floor(pz + oz);
+                        }
+            } else {
+                // raycast: celle attraversate lungo una direzione, fino a 10 blocchi
+                double yaw = random.nextDouble() * 2 * Math.PI, pitch = (random.nextDouble() - 0.5) * Math.PI;
+                float dx = (float) (Math.cos(yaw) * Math.cos(pitch)), dy = (float) Math.sin(pitch);
+                float dz = (float) (Math.sin(yaw) * Math.cos(pitch));
+                for (float t = 0; t < 10 && n < count; t += 0.5f, n++) {
+                    xyz[n * 3] = (int) Math.floor(px + dx * t);
+                    xyz[n * 3 + 1] = (int) Math.floor(py + dy * t);
+                    xyz[n * 3 + 2] = (int) Math.floor(pz + dz * t);
+                }
+            }
+        }
+        return xyz;
+    }
+
+    /**
+     * Un giro di query con il percorso originale di {@code World.isBlockSolid},
+     * copiato qui per il confronto.
+     *
+     * @param blocks {@code false} per fermarsi alla ricerca del chunk
+     * @return query con esito positivo (blocco solido o chunk trovato)
+     */
+    private static long hashedRound(Map<Point2i, Chunk> chunks, int[] xyz, boolean blocks) {
+        long found = 0;
+        for (int i = 0; i < xyz.length; i += 3) {
+            int worldX = xyz[i], worldY = xyz[i + 1], worldZ = xyz[i + 2];
+            int cx = (int) Math.floor(worldX / (float) CHUNK_SIZE);
+            int cz = (int) Math.floor(worldZ / (float) CHUNK_SIZE);
+            Chunk chunk = chunks.get(new Point2i(cx, cz));
+            if (chunk != null && (!blocks || chunk.isSolid(worldX - cx * CHUNK_SIZE, worldY, worldZ - cz * CHUNK_SIZE)))
+                found++;
+        }
+        return found;
+    }
+
+    /** Come {@link #hashedRound} ma con {@link ChunkMap} sui cubi, come fa ora il mondo. */
+    private static long packedRound(ChunkMap chunks, int[] xyz, boolean blocks) {
+        long found = 0;
+        for (int i = 0; i < xyz.length; i += 3) {
+            int worldX = xyz[i], worldY = xyz[i + 1], worldZ = xyz[i + 2];
+            int cx = Math.floorDiv(worldX, CHUNK_SIZE);
+            int cy = Math.floorDiv(worldY, CHUNK_SIZE);
+            int cz = Math.floorDiv(worldZ, CHUNK_SIZE);
+            Chunk chunk = chunks.get(cx, cy, cz);
+            if (chunk != null && (!blocks || chunk.isSolid(worldX - cx * CHUNK_SIZE, worldY - cy * CHUNK_SIZE,
+                    worldZ - cz * CHUNK_SIZE)))
+                found++;
+        }
+        return found;
+    }
+
+    @FunctionalInterface
+    private interface Round {
+        long run();
+    }
+
+    private record Result(long nanos, long allocated, long found) {
+    }
+
+    private static Result measure(Round round) {
+        long nanos = 0, allocated = 0, found = 0;
+        for (int r = 0; r < WARMUP + ROUNDS; r++) {
+            long a0 = allocatedBytes();
+            long t0 = System.nanoTime();
+            long hits = round.run();
+            long t1 = System.nanoTime();
+            long a1 = allocatedBytes();
+            if (r >= WARMUP) {
+                nanos += t1 - t0;
+                allocated += a1 - a0;
+                found = hits;
+            }
+        }
+        return new Result(nanos / ROUNDS, allocated / ROUNDS, found);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    private static void report(String label, Result r, int count) {
+        System.out.printf("%-34s: %7.1f M query/s, %5.1f byte allocati/query, %d trovati%n",
+                label, count / (r.nanos / 1e9) / 1e6, (double) r.allocated / count, r.found);
+    }
+}
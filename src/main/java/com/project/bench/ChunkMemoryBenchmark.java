@@ -0,0 +1,129 @@
+package com.project.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.project.world.Chunk;
+import com.project.world.ChunkPool;
+
+/**
+ * Misura quanto pesa sull'heap un chunk caricato (solo blocchi, senza mesh) e
+ * quanto costano generazione del terreno e copia per il salvataggio.
+ *
+ * <p>
+ * La memoria è la differenza di heap occupato dopo un GC completo, con
+ * {@code numChunk} chunk vivi, divisa per il numero di chunk: conviene
+ * lanciarlo con un heap fisso ({@code -Xms1g -Xmx1g}) per ridurre il rumore.
+ *
+ * <p>
+ * Lo streaming simula il volo in linea retta: si generano chunk in fila
+ * tenendone vivi {@value #WINDOW} e riciclando il più vecchio, con e senza
+ * {@link ChunkPool}; si misurano i byte allocati per chunk generato.
+ *
+ * <p>
+ * Uso: {@code ChunkMemoryBenchmark [numChunk]}; i chunk sono generati con il
+ * generatore del gioco in fila lungo l'asse X.
+ */
+public final class ChunkMemoryBenchmark {
+
+    private static final int WARMUP = 2;
+    private static final int ROUNDS = 5;
+    /** Chunk vivi durante lo streaming (una fila di vista). */
+    private static final int WINDOW = 16;
+
+    private ChunkMemoryBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        System.out.printf("Chunk campione: %d%n", count);
+
+        long generate = 0, snapshot = 0;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            long[] t = generateAll(count, null);
+            if (round >= WARMUP) {
+                generate += t[0];
+                snapshot += t[1];
+            }
+        }
+
+        List<Chunk> live = new ArrayList<>(count);
+        long before = usedAfterGc();
+        generateAll(count, live);
+        long after = usedAfterGc();
+
+        System.out.printf("heap per chunk (blocchi)  : %8.1f KiB%n", (after - before) / 1024.0 / count);
+        System.out.printf("generazione (con mesh)    : %8.2f ms/chunk%n", generate / 1e6 / ROUNDS / count);
+        System.out.printf("copia per il salvataggio  : %8.3f ms/chunk%n", snapshot / 1e6 / ROUNDS / count);
+        if (live.size() != count)
+            throw new IllegalStateException();
+
+        ChunkPool pool = new ChunkPool(64L * 1024 * 1024, 0);
+        stream(count, ChunkPool.NONE); // riscaldamento
+        double plain = stream(count, ChunkPool.NONE);
+        stream(count, pool);
+        double pooled = stream(count, pool);
+        System.out.printf("streaming, senza pool     : %8.1f KiB allocati/chunk%n", plain / 1024);
+        System.out.printf("streaming, con pool       : %8.1f KiB allocati/chunk%n", pooled / 1024);
+        System.out.println("pool: " + pool.stats());
+    }
+
+    /** @return byte allocati per chunk generando {@code count} chunk con {@value #WINDOW} vivi */
+    private static double stream(int count, ChunkPool pool) {
+        Deque<Chunk> window = new ArrayDeque<>();
+        long a0 = allocatedBytes();
+        for (int i = 0; i < count; i++) {
+            Chunk c = new Chunk(64, 64, 64, pool);
+            c.setWorldOffset(i * 64, 0, 0);
+            c.generateTerrain();
+            c.cleanup();
+            window.add(c);
+            if (window.size() > WINDOW)
+                window.poll().recycle();
+        }
+        long a1 = allocatedBytes();
+        window.forEach(Chunk::recycle);
+        return (double) (a1 - a0) / count;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    /** @return nanosecondi totali di generazione e di {@code snapshot()} */
+    private static long[] generateAll(int count, List<Chunk> keep) {
+        long generate = 0, snapshot = 0;
+        for (int i = 0; i < count; i++) {
+            Chunk c = new Chunk(64, 128, 64);
+            c.setWorldOffset(i * 64, 0, 0);
+            long t0 = System.nanoTime();
+            c.generateTerrain();
+            long t1 = System.nanoTime();
+            c.snapshot();
+            long t2 = System.nanoTime();
+            c.cleanup(); // scarta la mesh non caricata: resta solo lo stato dei blocchi
+            generate += t1 - t0;
+            snapshot += t2 - t1;
+            if (keep != null)
+                keep.add(c);
+        }
+        return new long[] { generate, snapshot };
+    }
+
+    private static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
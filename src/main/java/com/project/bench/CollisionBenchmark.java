@@ -0,0 +1,186 @@
+package com.project.bench;
+
+import java.util.Random;
+
+import com.project.world.Chunk;
+import com.project.world.ChunkMap;
+import com.project.world.WorldQueries;
+
+/**
+ * Confronta il test di collisione del giocatore fatto punto per punto (un
+ * campione ogni mezzo blocco nel box, ognuno con ricerca del chunk e lettura
+ * del blocco) con una sola query sul box tramite il bitset di occupazione
+ * ({@link WorldQueries#isAreaSolid}), e lo stesso per tratti verticali di
+ * colonna.
+ *
+ * <p>
+ * Le posizioni sono sparse su una griglia di chunk generati, a quote attorno
+ * alla superficie: in parte libere, in parte dentro il terreno.
+ *
+ * <p>
+ * Uso: {@code CollisionBenchmark [raggio] [numQuery]}.
+ */
+public final class CollisionBenchmark {
+
+    private static final int CHUNK_SIZE = 64;
+    /** Chunk cubici impilati per colonna, fino alla cima del terreno. */
+    private static final int LAYERS = Chunk.TERRAIN_HEIGHT / CHUNK_SIZE;
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+
+    // come in Camera
+    private static final float EYE_HEIGHT = 1.8f;
+    private static final float PLAYER_WIDTH = 0.8f;
+    private static final float PLAYER_HEIGHT = 1.8f;
+    private static final float STEP = 0.5f;
+    /** Altezza dei tratti di colonna verificati, da due blocchi sotto l'occhio in su. */
+    private static final int SPAN = 8;
+
+    private CollisionBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int radius = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        ChunkMap chunks = new ChunkMap();
+        for (int cx = -radius; cx <= radius; cx++) {
+            for (int cz = -radius; cz <= radius; cz++) {
+                for (int cy = 0; cy < LAYERS; cy++) {
+                    Chunk c = new Chunk(CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE);
+                    c.setWorldOffset(cx * CHUNK_SIZE, cy * CHUNK_SIZE, cz * CHUNK_SIZE);
+                    c.generateTerrain();
+                    c.cleanup();
+                    chunks.put(ChunkMap.key(cx, cy, cz), c);
+                }
+            }
+        }
+        WorldQueries queries = new WorldQueries(chunks, CHUNK_SIZE);
+
+        // posizioni dell'occhio attorno alla superficie
+        Random random = new Random(7);
+        float[] eyes = new float[count * 3];
+        int span = (2 * radius + 1) * CHUNK_SIZE;
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * span - radius * CHUNK_SIZE;
+            float z = random.nextFloat() * span - radius * CHUNK_SIZE;
+            int top = top(chunks, (int) Math.floor(x), (int) Math.floor(z));
+            eyes[i * 3] = x;
+            eyes[i * 3 + 1] = top + EYE_HEIGHT + random.nextFloat() * 4 - 2;
+            eyes[i * 3 + 2] = z;
+        }
+        System.out.printf("Chunk: %d, posizioni: %d%n", chunks.size(), count);
+
+        long[] points = measure(() -> perPoint(chunks, eyes));
+        long[] box = measure(() -> perBox(queries, eyes));
+        if (points[1] != box[1])
+            throw new IllegalStateException("collisioni diverse: " + points[1] + " vs " + box[1]);
+        long[] cellColumns = measure(() -> columnPerCell(chunks, eyes));
+        long[] maskColumns = measure(() -> columnMasked(queries, eyes));
+        if (cellColumns[1] != maskColumns[1])
+            throw new IllegalStateException("colonne diverse: " + cellColumns[1] + " vs " + maskColumns[1]);
+
+        report("box, un campione per punto", points, count);
+        report("box, bitset di occupazione", box, count);
+        report("colonna di " + SPAN + ", cella per cella", cellColumns, count);
+        report("colonna di " + SPAN + ", maschera sul bitset", maskColumns, count);
+        System.out.printf("bitset/punti: box %.2fx, colonna %.2fx più veloce%n",
+                (double) points[0] / box[0], (double) cellColumns[0] / maskColumns[0]);
+    }
+
+    /** Cima della colonna dalle heightmap dei cubi, dall'alto. */
+    private static int top(ChunkMap chunks, int x, int z) {
+        int cx = Math.floorDiv(x, CHUNK_SIZE), cz = Math.floorDiv(z, CHUNK_SIZE);
+        for (int cy = LAYERS - 1; cy >= 0; cy--) {
+            int h = chunks.get(cx, cy, cz).getHeightmaps().top(x - cx * CHUNK_SIZE, z - cz * CHUNK_SIZE);
+            if (h > 0)
+                return cy * CHUNK_SIZE + h;
+        }
+        return 0;
+    }
+
+    /** Percorso per punti di {@code Camera.isColliding}, con la lettura del blocco dalla palette. */
+    private static long perPoint(ChunkMap chunks, float[] eyes) {
+        long hits = 0;
+        for (int i = 0; i < eyes.length; i += 3) {
+            float feetY = eyes[i + 1] - EYE_HEIGHT;
+            boolean hit = false;
+            for (float xOffset = -PLAYER_WIDTH; xOffset <= PLAYER_WIDTH && !hit; xOffset += STEP) {
+                for (float yOffset = 0; yOffset <= PLAYER_HEIGHT && !hit; yOffset += STEP) {
+                    for (float zOffset = -PLAYER_WIDTH; zOffset <= PLAYER_WIDTH && !hit; zOffset += STEP) {
+                        hit = solid(chunks, (int) Math.floor(eyes[i] + xOffset), (int) Math.floor(feetY + yOffset),
+                                (int) Math.floor(eyes[i + 2] + zOffset));
+                    }
+                }
+            }
+            if (hit)
+                hits++;
+        }
+        return hits;
+    }
+
+    private static boolean solid(ChunkMap chunks, int x, int y, int z) {
+        int cx = Math.floorDiv(x, CHUNK_SIZE), cy = Math.floorDiv(y, CHUNK_SIZE), cz = Math.floorDiv(z, CHUNK_SIZE);
+        Chunk c = chunks.get(cx, cy, cz);
+        return c != null && c.getBlockType(x - cx * CHUNK_SIZE, y - cy * CHUNK_SIZE, z - cz * CHUNK_SIZE) != null;
+    }
+
+    private static long perBox(WorldQueries queries, float[] eyes) {
+        float spanXZ = STEP * (int) (2 * PLAYER_WIDTH / STEP);
+        float spanY = STEP * (int) (PLAYER_HEIGHT / STEP);
+        long hits = 0;
+        for (int i = 0; i < eyes.length; i += 3) {
+            float feetY = eyes[i + 1] - EYE_HEIGHT;
+            float x = eyes[i] - PLAYER_WIDTH, z = eyes[i + 2] - PLAYER_WIDTH;
+            if (queries.isAreaSolid(x, feetY, z, x + spanXZ, feetY + spanY, z + spanXZ))
+                hits++;
+        }
+        return hits;
+    }
+
+    private static long columnPerCell(ChunkMap chunks, float[] eyes) {
+        long hits = 0;
+        for (int i = 0; i < eyes.length; i += 3) {
+            int x = (int) Math.floor(eyes[i]), y0 = (int) Math.floor(eyes[i + 1]) - 2, z = (int) Math.floor(eyes[i + 2]);
+            for (int y = y0; y < y0 + SPAN; y++) {
+                if (solid(chunks, x, y, z)) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static long columnMasked(WorldQueries queries, float[] eyes) {
+        long hits = 0;
+        for (int i = 0; i < eyes.length; i += 3) {
+            int x = (int) Math.floor(eyes[i]), y0 = (int) Math.floor(eyes[i + 1]) - 2, z = (int) Math.floor(eyes[i + 2]);
+            if (queries.isColumnSolid(x, z, y0, y0 + SPAN - 1))
+                hits++;
+        }
+        return hits;
+    }
+
+    @FunctionalInterface
+    private interface Round {
+        long run();
+    }
+
+    /** @return nanosecondi medi per giro e risultato dell'ultimo giro */
+    private static long[] measure(Round round) {
+        long nanos = 0, hits = 0;
+        for (int r = 0; r < WARMUP + ROUNDS; r++) {
+            long t0 = System.nanoTime();
+            hits = round.run();
+            if (r >= WARMUP)
+                nanos += System.nanoTime() - t0;
+        }
+        return new long[] { nanos / ROUNDS, hits };
+    }
+
+    private static void report(String label, long[] r, int count) {
+        System.out.printf("%-36s: %7.1f ns/query, %6.2f M query/s, %d pieni%n",
+                label, (double) r[0] / count, count / (r[0] / 1e9) / 1e6, r[1]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.project.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.joml.Vector3f;
+
+import com.project.graphics.Camera;
+import com.project.world.HeadlessRenderBackend;
+import com.project.world.World;
+
+/**
+ * Il mondo intero senza finestra: generazione, meshing, streaming e
+ * salvataggi girano come nel gioco, con le mesh consegnate a un
+ * {@link HeadlessRenderBackend} che le conta invece di caricarle sulla GPU.
+ *
+ * <p>
+ * La camera vola in linea retta lungo l'asse X a quota costante; ogni
+ * {@value #EDIT_EVERY} frame rompe il blocco più alto sotto di sé, così i
+ * chunk modificati passano dalla coda di salvataggio quando escono dalla
+ * vista. Il mondo è in una cartella temporanea, cancellata alla fine. Si
+ * misura il tempo di {@code update} + {@code render} per frame (media,
+ * 99° percentile, massimo) e si stampano i contatori del backend e del
+ * frustum culling.
+ *
+ * <p>
+ * Uso: {@code HeadlessWorldBenchmark [frame] [distanzaVista] [blocchiPerFrame]}.
+ */
+public final class HeadlessWorldBenchmark {
+
+    private static final int EDIT_EVERY = 30;
+    private static final float ALTITUDE = 90f;
+
+    private HeadlessWorldBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int viewDistance = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        float speed = args.length > 2 ? Float.parseFloat(args[2]) : 0.5f;
+
+        Path dir = Files.createTempDirectory("headless-world");
+        HeadlessRenderBackend backend = new HeadlessRenderBackend();
+        World world = new World(backend, dir, viewDistance);
+        Camera cam = new Camera(0.5f, ALTITUDE, 0.5f, world);
+        Vector3f pos = cam.getPosition();
+
+        long[] nanos = new long[frames];
+        int edits = 0;
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            long t0 = System.nanoTime();
+            world.update(cam);
+            cam.updateMatrices(); // frustum della camera, come nel gioco
+            world.render(cam);
+            nanos[f] = System.nanoTime() - t0;
+            if (f % EDIT_EVERY == 0) {
+                int y = world.getHighestBlockY((int) Math.floor(pos.x), (int) Math.floor(pos.z));
+                if (y > 0 && world.breakBlock(new Vector3f(pos.x, y - 1, pos.z)))
+                    edits++;
+            }
+            pos.x += speed;
+        }
+        long total = System.nanoTime() - start;
+        world.cleanup();
+
+        Arrays.sort(nanos);
+        System.out.printf("Frame: %d, distanza di vista: %d, %.0f blocchi percorsi, %d blocchi rotti%n",
+                frames, viewDistance, frames * speed, edits);
+        System.out.printf("update + render: media %.2f ms, p99 %.2f ms, max %.2f ms (%.1f s in tutto)%n",
+                total / 1e6 / frames, nanos[(int) (frames * 0.99)] / 1e6, nanos[frames - 1] / 1e6, total / 1e9);
+        System.out.println("Backend: " + backend.stats());
+        System.out.println("Frustum culling, " + world.cullingStats());
+        deleteRecursively(dir);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.project.bench;
+
+import java.lang.management.ManagementFactory;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joml.Vector3f;
+import org.lwjgl.BufferUtils;
+
+import com.project.world.BlockStorage;
+import com.project.world.BlockType;
+import com.project.world.Chunk;
+import com.project.world.ChunkMesher;
+import com.project.world.CubeFaceVertices;
+import com.project.world.Direction;
+import com.project.world.MeshBuilder;
+import com.project.world.MeshingMode;
+import com.project.world.storage.ChunkCodec;
+
+/**
+ * Confronta la costruzione della mesh con {@code List<Float>} (vecchio
+ * {@code Chunk.rebuildMesh}) con {@link ChunkMesher} nelle modalità per faccia
+ * e greedy: tempo per chunk, byte allocati per chunk sul thread che costruisce
+ * la mesh, vertici prodotti e dimensione del VBO (20 byte per vertice nel
+ * vecchio formato a float, 8 in quello compatto). Infine misura il costo di
+ * una modifica di un blocco: mesh dell'intero chunk contro mesh della sola
+ * sezione ({@value #SECTION_HEIGHT} blocchi) che lo contiene, e quante facce
+ * del bordo spariscono guardando i blocchi dei quattro chunk vicini.
+ *
+ * <p>
+ * Uso: {@code MeshBenchmark [numChunk]}; i chunk sono generati con il
+ * generatore del gioco (seed 0) in fila lungo l'asse X.
+ */
+public final class MeshBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 10;
+    private static final int SECTION_HEIGHT = 16;
+    private static final Map<ChunkCodec.Blocks, BlockType[][][]> LEGACY_BLOCKS = new IdentityHashMap<>();
+    private static final Map<ChunkCodec.Blocks, BlockStorage> STORAGES = new IdentityHashMap<>();
+
+    private MeshBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        List<ChunkCodec.Blocks> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Chunk c = new Chunk(64, 128, 64);
+            c.setWorldOffset(i * 64, 0, 0);
+            c.generateTerrain();
+            chunks.add(c.snapshot());
+        }
+        System.out.printf("Chunk campione: %d%n", count);
+
+        Result legacy = measure(chunks, null);
+        Result arena = measure(chunks, MeshingMode.PER_FACE);
+        Result greedy = measure(chunks, MeshingMode.GREEDY);
+        report("List<Float> + FloatBuffer (vecchio)", legacy, count);
+        report("MeshBuilder, per faccia", arena, count);
+        report("MeshBuilder, greedy", greedy, count);
+        if (legacy.vertices != arena.vertices)
+            throw new IllegalStateException("mesh diverse: " + legacy.vertices + " vs " + arena.vertices + " vertici");
+        System.out.printf("per faccia/vecchio: %.2fx più veloce, %.1f%% dei byte allocati%n",
+                (double) legacy.nanos / arena.nanos, 100.0 * arena.allocated / legacy.allocated);
+        System.out.printf("greedy/per faccia: %.1f%% dei vertici, tempo di meshing %.2fx%n",
+                100.0 * greedy.vertices / arena.vertices, (double) greedy.nanos / arena.nanos);
+        System.out.printf("VBO compatto/vecchio: %.1f%% (per faccia), %.1f%% (greedy)%n",
+                100.0 * arena.vboBytes / legacy.vboBytes, 100.0 * greedy.vboBytes / legacy.vboBytes);
+
+        for (MeshingMode mode : MeshingMode.values()) {
+            long whole = measureEdit(chunks, mode, false);
+            long section = measureEdit(chunks, mode, true);
+            System.out.printf("modifica (%s): chunk intero %.2f ms, sezione %.3f ms (%.1fx)%n", mode,
+                    whole / 1e6 / count, section / 1e6 / count, (double) whole / section);
+        }
+        reportBorderCulling();
+    }
+
+    /**
+     * Genera griglie 3 × 3 in zone diverse (pianura, colline, montagna) e
+     * confronta le facce del chunk centrale da solo e con i quattro vicini: la
+     * differenza sono i muri di bordo nascosti.
+     */
+    private static void reportBorderCulling() {
+        for (int origin : new int[] { 0, 2048, 9000 }) {
+            BlockStorage[] grid = new BlockStorage[9];
+            for (int gx = 0; gx < 3; gx++) {
+                for (int gz = 0; gz < 3; gz++) {
+                    Chunk c = new Chunk(64, 128, 64);
+                    c.setWorldOffset(origin + gx * 64, 0, origin + gz * 64);
+                    c.generateTerrain();
+                    grid[gx * 3 + gz] = storage(c.snapshot());
+                }
+            }
+            BlockStorage centre = grid[4];
+            ChunkMesher.Neighbours neighbours = new ChunkMesher.Neighbours(grid[3], grid[5], grid[7], grid[1]);
+            for (MeshingMode mode : MeshingMode.values()) {
+                int alone = quads(ChunkMesher.mesh(centre, 0, 128, ChunkMesher.Neighbours.NONE, mode));
+                int linked = quads(ChunkMesher.mesh(centre, 0, 128, neighbours, mode));
+                System.out.printf("bordo con vicini, origine %d (%s): %d -> %d quad, %d rimossi (%.1f%%)%n", origin,
+                        mode, alone, linked, alone - linked, 100.0 * (alone - linked) / alone);
+            }
+        }
+    }
+
+    private static int quads(int[] mesh) {
+        return mesh.length / MeshBuilder.INTS_PER_VERTEX / 6;
+    }
+
+    /** Tempo per rifare la mesh dopo una modifica alla quota della superficie. */
+    private static long measureEdit(List<ChunkCodec.Blocks> chunks, MeshingMode mode, boolean sectionOnly) {
+        long nanos = 0;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            for (ChunkCodec.Blocks b : chunks) {
+                int y0 = b.sizeY() / 4 / SECTION_HEIGHT * SECTION_HEIGHT;
+                long t0 = System.nanoTime();
+                if (sectionOnly)
+                    ChunkMesher.mesh(storage(b), y0, y0 + SECTION_HEIGHT, mode);
+                else
+                    ChunkMesher.mesh(storage(b), mode);
+                if (round >= WARMUP)
+                    nanos += System.nanoTime() - t0;
+            }
+        }
+        return nanos / ROUNDS;
+    }
+
+    private record Result(long nanos, long allocated, long vertices, long vboBytes) {
+    }
+
+    /** @param mode modalità di {@link ChunkMesher}; {@code null} per il percorso originale */
+    private static Result measure(List<ChunkCodec.Blocks> chunks, MeshingMode mode) {
+        long nanos = 0, allocated = 0, vertices = 0, vboBytes = 0;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            boolean counted = round >= WARMUP;
+            for (ChunkCodec.Blocks b : chunks) {
+                long a0 = allocatedBytes();
+                long t0 = System.nanoTime();
+                int bytes = mode == null
+                        ? legacyMesh(legacyBlocks(b), b.sizeX(), b.sizeY(), b.sizeZ()).remaining() * Float.BYTES
+                        : ChunkMesher.mesh(storage(b), mode).length * Integer.BYTES;
+                int count = bytes / (mode == null ? 5 * Float.BYTES : MeshBuilder.INTS_PER_VERTEX * Integer.BYTES);
+                long t1 = System.nanoTime();
+                long a1 = allocatedBytes();
+                if (counted) {
+                    nanos += t1 - t0;
+                    allocated += a1 - a0;
+                    vertices += count;
+                    vboBytes += bytes;
+                }
+            }
+        }
+        return new Result(nanos / ROUNDS, allocated / ROUNDS, vertices / ROUNDS, vboBytes / ROUNDS);
+    }
+
+    /** Blocchi compattati come nel chunk (costruiti una volta sola per chunk). */
+    private static BlockStorage storage(ChunkCodec.Blocks b) {
+        return STORAGES.computeIfAbsent(b, k -> BlockStorage.fromIds(b.sizeX(), b.sizeY(), b.sizeZ(), b.ids()));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    private static void report(String label, Result r, int count) {
+        System.out.printf("%-36s: %7.2f ms/chunk, %8.1f KiB allocati/chunk, %7d vertici/chunk, %7.1f KiB VBO/chunk%n",
+                label, r.nanos / 1e6 / count, r.allocated / 1024.0 / count, r.vertices / count,
+                r.vboBytes / 1024.0 / count);
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Percorso originale, copiato qui per il confronto
+    // ---------------------------------------------------------------------------------
+
+    /** Blocchi nel vecchio array {@code BlockType[x][y][z]} (costruito una volta sola per chunk). */
+    private static BlockType[][][] legacyBlocks(ChunkCodec.Blocks b) {
+        return LEGACY_BLOCKS.computeIfAbsent(b, k -> {
+            BlockType[][][] types = new BlockType[b.sizeX()][b.sizeY()][b.sizeZ()];
+            for (int x = 0; x < b.sizeX(); x++)
+                for (int y = 0; y < b.sizeY(); y++)
+                    for (int z = 0; z < b.sizeZ(); z++)
+                        types[x][y][z] = b.type(x, y, z);
+            return types;
+        });
+    }
+
+    private static FloatBuffer legacyMesh(BlockType[][][] blocks, int sx, int sy, int sz) {
+        List<Float> data = new ArrayList<>();
+        for (int x = 0; x < sx; x++) {
+            for (int y = 0; y < sy; y++) {
+                for (int z = 0; z < sz; z++) {
+                    BlockType type = blocks[x][y][z];
+                    if (type == null)
+                        continue;
+                    for (Direction dir : Direction.values()) {
+                        int nx = x + dir.dx, ny = y + dir.dy, nz = z + dir.dz;
+                        BlockType neigh = (nx >= 0 && nx < sx && ny >= 0 && ny < sy && nz >= 0 && nz < sz)
+                                ? blocks[nx][ny][nz]
+                                : null;
+                        if (neigh == null)
+                            legacyAddFace(data, new Vector3f(x, y, z), dir, type);
+                    }
+                }
+            }
+        }
+        FloatBuffer buf = BufferUtils.createFloatBuffer(data.size());
+        data.forEach(buf::put);
+        buf.flip();
+        return buf;
+    }
+
+    private static void legacyAddFace(List<Float> data, Vector3f pos, Direction dir, BlockType type) {
+        float[][] verts = CubeFaceVertices.forDirection(dir);
+        BlockType.UV uv = type.getUV(dir);
+        float u0 = uv.x() / 64f, v0 = uv.y() / 32f;
+        float u1 = (uv.x() + 1) / 64f, v1 = (uv.y() + 1) / 32f;
+        int[] cornerIndex = { 0, 1, 2, 2, 3, 0 };
+        for (int i = 0; i < 6; i++) {
+            float[] vertex = verts[i];
+            int corner = cornerIndex[i];
+            data.add(pos.x + vertex[0]);
+            data.add(pos.y + vertex[1]);
+            data.add(pos.z + vertex[2]);
+            data.add(corner == 1 || corner == 2 ? u1 : u0);
+            data.add(corner == 2 || corner == 3 ? v1 : v0);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.project.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.joml.Vector3f;
+
+import com.project.graphics.Camera;
+import com.project.world.HeadlessRenderBackend;
+import com.project.world.World;
+
+/**
+ * Quanto lavoro di disegno toglie l'occlusion culling sul terreno generato,
+ * senza finestra: per ogni inquadratura si disegna una volta con il solo
+ * frustum culling e una volta con la visita del grafo di visibilità, e si
+ * confrontano sezioni disegnate e chiamate del {@link HeadlessRenderBackend}.
+ *
+ * <p>
+ * Il mondo viene caricato per intero attorno all'origine, poi si misurano
+ * {@value #VIEWS} inquadrature casuali in due scenari: in superficie (camera
+ * all'altezza degli occhi in punti a caso, sguardo verso l'orizzonte) e sottoterra
+ * (in una cavità scavata {@value #DEPTH} blocchi sotto il suolo, sguardo in
+ * ogni direzione).
+ *
+ * <p>
+ * Uso: {@code OcclusionBenchmark [distanzaVista]}.
+ */
+public final class OcclusionBenchmark {
+
+    private static final int VIEWS = 300;
+    private static final int DEPTH = 24;
+    /** Distanza massima dall'origine dei punti di vista in superficie, in blocchi. */
+    private static final int SPREAD = 48;
+    private static final int SETTLED = 200;
+    private static final int MAX_WARMUP = 20_000;
+    private static final long WARMUP_SLEEP_MS = 5;
+
+    /** Draw e chiamate sommati su tutte le inquadrature, senza e con occlusion culling. */
+    private static final class Totals {
+        long drawsOff, callsOff, drawsOn, callsOn;
+
+        void print(String scenario) {
+            System.out.printf("%-12s sezioni disegnate %6.1f -> %6.1f (-%.0f%%), chiamate %6.1f -> %6.1f (-%.0f%%)%n",
+                    scenario, (double) drawsOff / VIEWS, (double) drawsOn / VIEWS, reduction(drawsOff, drawsOn),
+                    (double) callsOff / VIEWS, (double) callsOn / VIEWS, reduction(callsOff, callsOn));
+        }
+
+        private static double reduction(long off, long on) {
+            return off == 0 ? 0 : 100.0 * (off - on) / off;
+        }
+    }
+
+    private OcclusionBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int viewDistance = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+        Path dir = Files.createTempDirectory("occlusion");
+        HeadlessRenderBackend backend = new HeadlessRenderBackend();
+        World world = new World(backend, dir, viewDistance);
+        Camera cam = new Camera(0.5f, 90f, 0.5f, world);
+        Vector3f pos = cam.getPosition();
+
+        long uploads = -1;
+        int still = 0, warmup = 0;
+        for (; still < SETTLED && warmup < MAX_WARMUP; warmup++) {
+            world.update(cam);
+            long now = backend.stats().uploads();
+            still = now == uploads ? still + 1 : 0;
+            uploads = now;
+            Thread.sleep(WARMUP_SLEEP_MS);
+        }
+
+        Random random = new Random(42);
+        Totals surface = new Totals();
+        for (int v = 0; v < VIEWS; v++) {
+            int x = random.nextInt(2 * SPREAD + 1) - SPREAD, z = random.nextInt(2 * SPREAD + 1) - SPREAD;
+            pos.set(x + 0.5f, world.getHighestBlockY(x, z) + 1.8f, z + 0.5f);
+            cam.setRotation(random.nextFloat() * 360, random.nextFloat() * 40 - 30);
+            measure(world, backend, cam, surface);
+        }
+
+        // cavità 3×3×3 attorno alla camera, sotto il suolo dell'origine
+        int floor = world.getSurfaceY(0, 0) - DEPTH;
+        for (int dx = -1; dx <= 1; dx++)
+            for (int dy = 0; dy <= 2; dy++)
+                for (int dz = -1; dz <= 1; dz++)
+                    world.breakBlock(new Vector3f(dx + 0.5f, floor + dy + 0.5f, dz + 0.5f));
+        Totals underground = new Totals();
+        for (int v = 0; v < VIEWS; v++) {
+            pos.set(0.5f, floor + 1.8f, 0.5f);
+            cam.setRotation(random.nextFloat() * 360, random.nextFloat() * 178 - 89);
+            measure(world, backend, cam, underground);
+        }
+
+        System.out.println("Frustum culling, " + world.cullingStats());
+        world.cleanup();
+        deleteRecursively(dir);
+
+        System.out.printf("Riscaldamento: %d frame, distanza di vista %d, %d inquadrature per scenario%n",
+                warmup, viewDistance, VIEWS);
+        surface.print("superficie");
+        underground.print("sottoterra");
+    }
+
+    /** Disegna l'inquadratura senza e con occlusion culling, sommando i draw. */
+    private static void measure(World world, HeadlessRenderBackend backend, Camera cam, Totals totals) {
+        cam.updateMatrices();
+        world.setOcclusionCulling(false);
+        HeadlessRenderBackend.Stats s0 = backend.stats();
+        world.render(cam);
+        world.setOcclusionCulling(true);
+        HeadlessRenderBackend.Stats s1 = backend.stats();
+        world.render(cam);
+        HeadlessRenderBackend.Stats s2 = backend.stats();
+        totals.drawsOff += s1.draws() - s0.draws();
+        totals.callsOff += s1.drawCalls() - s0.drawCalls();
+        totals.drawsOn += s2.draws() - s1.draws();
+        totals.callsOn += s2.drawCalls() - s1.drawCalls();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.project.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.project.world.storage.RegionFile;
+import com.project.world.storage.RegionStorage;
+
+/**
+ * Confronta il throughput di salvataggio/caricamento tra il vecchio layout
+ * (un file GZIP per chunk) e l'archivio a regioni. I payload vengono compressi
+ * una volta sola prima delle misure, così il tempo riportato è quello del
+ * contenitore (syscall, apertura/chiusura file, allocazione settori).
+ *
+ * <p>
+ * Uso: {@code RegionStorageBenchmark [numChunk] [cartellaMondo]}. Se viene
+ * indicata una cartella, i payload dei suoi file {@code *.nbt} vengono usati
+ * come campioni reali; altrimenti si generano chunk sintetici a strati.
+ */
+public final class RegionStorageBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    private RegionStorageBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        List<byte[]> samples = args.length > 1 ? readSamples(Path.of(args[1])) : List.of(syntheticChunk(1));
+        if (samples.isEmpty())
+            samples = List.of(syntheticChunk(1));
+
+        int side = (int) Math.ceil(Math.sqrt(count));
+        System.out.printf("Chunk: %d (%d campioni, %d KiB grezzi ciascuno)%n",
+                count, samples.size(), samples.get(0).length / 1024);
+
+        // la compressione costa uguale nei due layout: si misura solo il contenitore
+        List<byte[]> compressed = new ArrayList<>();
+        for (byte[] raw : samples)
+            compressed.add(gzip(raw));
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            Path tmp = Files.createTempDirectory("region-bench");
+            try {
+                Path legacyDir = Files.createDirectories(tmp.resolve("legacy"));
+                Path regionDir = Files.createDirectories(tmp.resolve("region"));
+
+                // ---- layout legacy: un file per chunk ----
+                long t0 = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    Path p = legacyDir.resolve((i % side) + "_" + (i / side) + ".nbt");
+                    Files.write(p, compressed.get(i % compressed.size()));
+                }
+                long legacySave = System.nanoTime() - t0;
+
+                t0 = System.nanoTime();
+                long legacyBytes = 0;
+                for (int i = 0; i < count; i++) {
+                    Path p = legacyDir.resolve((i % side) + "_" + (i / side) + ".nbt");
+                    if (!Files.exists(p))
+                        throw new IllegalStateException("chunk mancante " + p);
+                    legacyBytes += Files.readAllBytes(p).length;
+                }
+                long legacyLoad = System.nanoTime() - t0;
+
+                // ---- archivio a regioni ----
+                long regionSave, regionLoad, regionBytes = 0;
+                try (RegionStorage storage = new RegionStorage(regionDir, 64)) {
+                    t0 = System.nanoTime();
+                    for (int i = 0; i < count; i++)
+                        storage.writeCompressed(i % side, 0, i / side, RegionFile.COMPRESSION_GZIP,
+                                compressed.get(i % compressed.size()));
+                    regionSave = System.nanoTime() - t0;
+                }
+                try (RegionStorage storage = new RegionStorage(regionDir, 64)) {
+                    t0 = System.nanoTime();
+                    for (int i = 0; i < count; i++) {
+                        if (!storage.contains(i % side, 0, i / side))
+                            throw new IllegalStateException("chunk mancante " + i);
+                        regionBytes += storage.readCompressed(i % side, 0, i / side).data().length;
+                    }
+                    regionLoad = System.nanoTime() - t0;
+                }
+
+                System.out.printf("[giro %d] legacy:  save %s, load %s, %4d file, %6d KiB su disco%n",
+                        round, rate(legacySave, count), rate(legacyLoad, count),
+                        fileCount(legacyDir), dirSize(legacyDir) / 1024);
+                System.out.printf("[giro %d] regioni: save %s, load %s, %4d file, %6d KiB su disco%n",
+                        round, rate(regionSave, count), rate(regionLoad, count),
+                        fileCount(regionDir), dirSize(regionDir) / 1024);
+                if (legacyBytes != regionBytes)
+                    throw new IllegalStateException("payload diversi: " + legacyBytes + " vs " + regionBytes);
+            } finally {
+                deleteRecursively(tmp);
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(raw);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String rate(long nanos, int count) {
+        double ms = nanos / 1e6;
+        return String.format("%8.1f ms (%7.0f chunk/s)", ms, count / (ms / 1000.0));
+    }
+
+    /** Payload grezzi (decompressi) dei file {@code .nbt} di una cartella mondo. */
+    private static List<byte[]> readSamples(Path dir) throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".nbt")).toList()) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(p))) {
+                    samples.add(in.readAllBytes());
+                }
+            }
+        }
+        return samples;
+    }
+
+    /** Chunk 64×128×64 a strati (pietra, terra, erba, acqua, aria) nel formato versione 1. */
+    static byte[] syntheticChunk(long seed) throws IOException {
+        final int sx = 64, sy = 128, sz = 64;
+        java.util.Random random = new java.util.Random(seed);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(sx * sy * sz + 13);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(1);
+            out.writeInt(sx);
+            out.writeInt(sy);
+            out.writeInt(sz);
+            for (int x = 0; x < sx; x++) {
+                for (int y = 0; y < sy; y++) {
+                    for (int z = 0; z < sz; z++) {
+                        int h = 30 + (int) (6 * Math.sin((x + seed) * 0.1) * Math.cos(z * 0.1));
+                        int id;
+                        if (y > h)
+                            id = y <= 25 ? 8 : -1; // acqua / aria
+                        else if (y == h)
+                            id = 0; // erba
+                        else if (y >= h - 3)
+                            id = 1; // terra
+                        else
+                            id = random.nextInt(100) == 0 ? 4 : 2; // pietra con un po' di carbone
+                        out.writeByte(id);
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long fileCount(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static long dirSize(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            long total = 0;
+            for (Path p : files.toList())
+                total += Files.size(p);
+            return total;
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.project.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.project.graphics.Camera;
+import com.project.world.HeadlessRenderBackend;
+import com.project.world.World;
+
+/**
+ * Verifica che un frame a regime non allochi: matrici della camera
+ * ({@link Camera#updateMatrices()}), frustum culling e disegno dei chunk
+ * ({@link World#render}) e streaming ({@link World#update}), su un
+ * {@link HeadlessRenderBackend}.
+ *
+ * <p>
+ * Il mondo viene prima caricato per intero attorno alla camera ferma (finché
+ * non arrivano più mesh), poi si misurano i byte allocati sul thread per
+ * {@value #FRAMES} frame di solo disegno (l'ultimo di {@value #ROUNDS} giri:
+ * i primi scaldano il JIT), poi altrettanti di solo {@link World#update}. Esce
+ * con stato 1 se uno dei due alloca, così può girare come controllo in CI.
+ *
+ * <p>
+ * Uso: {@code RenderLoopBenchmark [distanzaVista]}.
+ */
+public final class RenderLoopBenchmark {
+
+    private static final int FRAMES = 5000;
+    private static final int ROUNDS = 3;
+    /** Frame senza nuove mesh dopo cui il mondo si considera a regime. */
+    private static final int SETTLED = 200;
+    private static final int MAX_WARMUP = 20_000;
+    /** Pausa tra i frame del riscaldamento, per lasciare lavorare i thread di caricamento. */
+    private static final long WARMUP_SLEEP_MS = 5;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private RenderLoopBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int viewDistance = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        Path dir = Files.createTempDirectory("render-loop");
+        HeadlessRenderBackend backend = new HeadlessRenderBackend();
+        World world = new World(backend, dir, viewDistance);
+        Camera cam = new Camera(0.5f, 90f, 0.5f, world);
+
+        // a regime: niente più caricamenti per SETTLED frame (e JIT caldo)
+        long uploads = -1;
+        int still = 0, warmup = 0;
+        for (; still < SETTLED && warmup < MAX_WARMUP; warmup++) {
+            world.update(cam);
+            cam.updateMatrices();
+            world.render(cam);
+            long now = backend.stats().uploads();
+            still = now == uploads ? still + 1 : 0;
+            uploads = now;
+            Thread.sleep(WARMUP_SLEEP_MS);
+        }
+
+        // quanto alloca la misura stessa, da togliere
+        long c0 = allocatedBytes();
+        long calibration = allocatedBytes() - c0;
+
+        // l'ultimo di ROUNDS giri: nei primi il JIT non ha ancora compilato tutto
+        long renderBytes = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long a0 = allocatedBytes();
+            for (int f = 0; f < FRAMES; f++) {
+                cam.updateMatrices();
+                world.render(cam);
+            }
+            renderBytes = allocatedBytes() - a0 - calibration;
+        }
+
+        long a1 = allocatedBytes();
+        for (int f = 0; f < FRAMES; f++)
+            world.update(cam);
+        long updateBytes = allocatedBytes() - a1 - calibration;
+
+        world.cleanup();
+        deleteRecursively(dir);
+
+        HeadlessRenderBackend.Stats stats = backend.stats();
+        System.out.printf("Riscaldamento: %d frame, %d mesh, %.1f draw per frame in %.1f chiamate%n",
+                warmup, stats.uploads(), (double) stats.draws() / stats.frames(),
+                (double) stats.drawCalls() / stats.frames());
+        System.out.printf("render : %8.1f byte allocati/frame%n", (double) renderBytes / FRAMES);
+        System.out.printf("update : %8.1f byte allocati/frame%n", (double) updateBytes / FRAMES);
+        if (renderBytes != 0 || updateBytes != 0) {
+            System.err.println("Il frame alloca: disegno " + renderBytes + " byte, update " + updateBytes
+                    + " byte in " + FRAMES + " frame");
+            System.exit(1);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(p);
+        }
+    }
+}
@@ -27,6 +27,9 @@ public class Camera {
     private static final float STEP = 0.5f;
     private static final long DOUBLE_JUMP_THRESHOLD = 250;
     
+    /** Risultati di {@link #classifyAABB}: box fuori dal frustum, a cavallo, tutto dentro. */
+    public static final int OUTSIDE = 0, INTERSECT = 1, INSIDE = 2;
+    
     // ==================== VARIABILI DI POSIZIONE E ORIENTAMENTO ====================
     private Vector3f position = new Vector3f();
     private Vector3f front = new Vector3f(0, 0, -1);
@@ -54,6 +57,15 @@ public class Camera {
     
     // ==================== VARIABILI RENDERING ====================
     private FrustumIntersection frustum = new FrustumIntersection();
+    // matrici e vettori riusati a ogni frame: update() non alloca
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f proj = new Matrix4f();
+    private final Matrix4f viewProj = new Matrix4f();
+    private final Vector3f target = new Vector3f();
+    private final float[] matrix = new float[16];
+    // posizioni degli uniform, lette al primo update con un nuovo programma
+    private int uniformProgram;
+    private int viewLoc, projLoc;
     
     // ==================== RIFERIMENTI ESTERNI ====================
     private final World world;
@@ -80,24 +92,32 @@ public class Camera {
      * @param shaderProgram ID del programma shader
      */
     public void update(int shaderProgram) {
+        updateMatrices();
+        
+        // Invia le matrici al shader
+        if (shaderProgram != uniformProgram) {
+            viewLoc = glGetUniformLocation(shaderProgram, "view");
+            projLoc = glGetUniformLocation(shaderProgram, "projection");
+            uniformProgram = shaderProgram;
+        }
+        glUniformMatrix4fv(viewLoc, false, view.get(matrix));
+        glUniformMatrix4fv(projLoc, false, proj.get(matrix));
+    }
+    
+    /**
+     * Ricalcola vista, proiezione e frustum senza toccare OpenGL (e senza allocare).
+     */
+    public void updateMatrices() {
         // Calcola matrice di vista
-        Matrix4f view = new Matrix4f().lookAt(position, position.add(front, new Vector3f()), up);
+        view.setLookAt(position, position.add(front, target), up);
         
         // Calcola matrice di proiezione
-        Matrix4f proj = new Matrix4f()
-            .perspective((float) Math.toRadians(45f), 1200f / 800f,
+        proj.setPerspective((float) Math.toRadians(45f), 1200f / 800f,
                 0.02f, // near plane ridotto
                 300f);
         
         // Calcola matrice combinata per il frustum culling
-        Matrix4f viewProj = proj.mul(view, new Matrix4f());
-        frustum.set(viewProj);
-        
-        // Invia le matrici al shader
-        int viewLoc = glGetUniformLocation(shaderProgram, "view");
-        int projLoc = glGetUniformLocation(shaderProgram, "projection");
-        glUniformMatrix4fv(viewLoc, false, view.get(new float[16]));
-        glUniformMatrix4fv(projLoc, false, proj.get(new float[16]));
+        frustum.set(proj.mul(view, viewProj));
     }
     
     /**
@@ -274,22 +294,14 @@ public class Camera {
      */
     private boolean isColliding(Vector3f pos) {
         float feetY = pos.y - EYE_HEIGHT;
-        
-        // Controlla collisioni in un box intorno al giocatore
-        for (float xOffset = -PLAYER_WIDTH; xOffset <= PLAYER_WIDTH; xOffset += STEP) {
-            for (float yOffset = 0; yOffset <= PLAYER_HEIGHT; yOffset += STEP) {
-                for (float zOffset = -PLAYER_WIDTH; zOffset <= PLAYER_WIDTH; zOffset += STEP) {
-                    int checkX = (int) Math.floor(pos.x + xOffset);
-                    int checkY = (int) Math.floor(feetY + yOffset);
-                    int checkZ = (int) Math.floor(pos.z + zOffset);
-                    
-                    if (world.isBlockSolid(checkX, checkY, checkZ)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+
+        // Un solo box intorno al giocatore, sul bitset di occupazione dei chunk.
+        // Finisce sull'ultimo multiplo di STEP dentro la sagoma, come la
+        // griglia di controllo a passo STEP: stesse celle, una sola query.
+        float spanXZ = STEP * (int) (2 * PLAYER_WIDTH / STEP);
+        float spanY = STEP * (int) (PLAYER_HEIGHT / STEP);
+        return world.isAreaSolid(pos.x - PLAYER_WIDTH, feetY, pos.z - PLAYER_WIDTH,
+                pos.x - PLAYER_WIDTH + spanXZ, feetY + spanY, pos.z - PLAYER_WIDTH + spanXZ);
     }
     
     // ==================== METODI DI CONTROLLO MOUSE ====================
@@ -325,6 +337,18 @@ public class Camera {
         };
     }
     
+    /**
+     * Orienta la camera senza mouse (benchmark, test senza finestra).
+     *
+     * @param yaw Rotazione orizzontale in gradi
+     * @param pitch Inclinazione in gradi, limitata come per il mouse
+     */
+    public void setRotation(float yaw, float pitch) {
+        this.yaw = yaw;
+        this.pitch = Math.max(-89, Math.min(89, pitch));
+        updateVectors();
+    }
+
     /**
      * Aggiorna i vettori di direzione della camera basandosi su yaw e pitch.
      */
@@ -349,7 +373,27 @@ public class Camera {
      * @return true se il box è visibile
      */
     public boolean isAABBInFrustum(Vector3f min, Vector3f max) {
-        return frustum.testAab(min.x, min.y, min.z, max.x, max.y, max.z);
+        return isAABBInFrustum(min.x, min.y, min.z, max.x, max.y, max.z);
+    }
+    
+    /**
+     * Come {@link #isAABBInFrustum(Vector3f, Vector3f)}, senza vettori da allocare.
+     */
+    public boolean isAABBInFrustum(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return frustum.testAab(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+    
+    /**
+     * Posizione di un AABB rispetto al frustum, per il culling gerarchico: se
+     * un gruppo è tutto dentro non serve testarne il contenuto.
+     * 
+     * @return {@link #OUTSIDE}, {@link #INTERSECT} o {@link #INSIDE}
+     */
+    public int classifyAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        int result = frustum.intersectAab(minX, minY, minZ, maxX, maxY, maxZ);
+        if (result == FrustumIntersection.INSIDE)
+            return INSIDE;
+        return result == FrustumIntersection.INTERSECT ? INTERSECT : OUTSIDE; // altrimenti: piano che lo esclude
     }
     
     // ==================== METODI STATICI ====================
@@ -359,7 +403,7 @@ public class Camera {
      * @return ID del programma shader compilato
      */
     public static int loadShader() {
-        return ShaderUtils.createProgram();
+        return ShaderUtils.createChunkProgram();
     }
     
     // ==================== GETTER ====================
@@ -6,7 +6,6 @@ import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
 
 import org.joml.Matrix4f;
-import org.lwjgl.BufferUtils;
 
 /**
  * Classe Crosshair che gestisce il rendering del mirino al centro dello schermo.
@@ -17,6 +16,7 @@ public class Crosshair {
     // ==================== COSTANTI ====================
     private static final float SIZE = 0.02f;        // Dimensione del mirino
     private static final float THICKNESS = 0.002f;  // Spessore delle linee
+    private static final String OWNER = "mirino";   // Proprietario in GpuResources
     
     // ==================== VARIABILI RENDERING ====================
     private int vao;           // Vertex Array Object
@@ -30,6 +30,7 @@ public class Crosshair {
     public Crosshair() {
         initializeGeometry();
         shaderProgram = createCrosshairShader();
+        setupOrthographicProjection(); // costante: resta nel programma
     }
     
     // ==================== METODI PRINCIPALI ====================
@@ -39,19 +40,26 @@ public class Crosshair {
      */
     public void render() {
         // Disabilita depth test per renderizzare sempre sopra tutto
-        glDisable(GL_DEPTH_TEST);
+        GlState.depthTest(false);
         
         // Attiva il programma shader
-        glUseProgram(shaderProgram);
-        
-        // Configura proiezione ortogonale
-        setupOrthographicProjection();
+        GlState.useProgram(shaderProgram);
         
         // Renderizza le linee del mirino
         renderCrosshairLines();
         
         // Riabilita depth test
-        glEnable(GL_DEPTH_TEST);
+        GlState.depthTest(true);
+    }
+    
+    /**
+     * Elimina buffer e shader del mirino (prima di distruggere il contesto).
+     */
+    public void cleanup() {
+        GpuResources gpu = GpuResources.get();
+        gpu.delete(GpuResources.Kind.BUFFER, vbo);
+        gpu.delete(GpuResources.Kind.VERTEX_ARRAY, vao);
+        gpu.delete(GpuResources.Kind.PROGRAM, shaderProgram);
     }
     
     // ==================== METODI DI INIZIALIZZAZIONE ====================
@@ -63,13 +71,15 @@ public class Crosshair {
         float[] vertices = createCrosshairVertices();
         
         // Setup VAO/VBO
-        vao = glGenVertexArrays();
-        vbo = glGenBuffers();
+        GpuResources gpu = GpuResources.get();
+        vao = gpu.create(GpuResources.Kind.VERTEX_ARRAY, OWNER);
+        vbo = gpu.create(GpuResources.Kind.BUFFER, OWNER);
         
         // Configura il buffer dei vertici
         glBindVertexArray(vao);
         glBindBuffer(GL_ARRAY_BUFFER, vbo);
         glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        gpu.setSize(GpuResources.Kind.BUFFER, vbo, (long) vertices.length * Float.BYTES);
         
         // Configura gli attributi dei vertici
         glVertexAttribPointer(0, 2, GL_FLOAT, false, 0, 0);
@@ -109,7 +119,7 @@ public class Crosshair {
         String vertexShader = createVertexShaderSource();
         String fragmentShader = createFragmentShaderSource();
         
-        return ShaderUtils.createProgram(vertexShader, fragmentShader);
+        return ShaderUtils.createProgram(vertexShader, fragmentShader, OWNER);
     }
     
     /**
@@ -142,25 +152,24 @@ public class Crosshair {
     // ==================== METODI DI RENDERING ====================
     /**
      * Configura la proiezione ortogonale per il rendering 2D del mirino.
+     * Gli uniform restano nel programma: basta inviarla una volta.
      */
     private void setupOrthographicProjection() {
         Matrix4f projection = new Matrix4f().ortho(-1, 1, -1, 1, -1, 1);
         
         int projectionLocation = glGetUniformLocation(shaderProgram, "projection");
-        glUniformMatrix4fv(projectionLocation, false, 
-            projection.get(BufferUtils.createFloatBuffer(16)));
+        GlState.useProgram(shaderProgram);
+        glUniformMatrix4fv(projectionLocation, false, projection.get(new float[16]));
     }
     
     /**
      * Renderizza le linee del mirino utilizzando i buffer configurati.
      */
     private void renderCrosshairLines() {
-        glBindVertexArray(vao);
+        GlState.bindVertexArray(vao);
         
         // Disegna entrambe le linee del mirino
         glDrawArrays(GL_TRIANGLE_FAN, 0, 4); // Linea orizzontale
         glDrawArrays(GL_TRIANGLE_FAN, 4, 4); // Linea verticale
-        
-        glBindVertexArray(0);
     }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.project.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+import java.util.Arrays;
+
+/**
+ * Copia lato CPU dello stato OpenGL toccato a ogni frame (programma, VAO,
+ * buffer, texture, depth test e blending): i cambi che non cambiano nulla
+ * non arrivano al driver. Il disegno dei chunk rilega lo stesso programma e
+ * la stessa texture per ogni chunk, l'hotbar riattiva gli stessi stati a
+ * ogni frame.
+ *
+ * <p>
+ * La copia vale solo se tutti i cambi passano da qui: il codice che lega
+ * oggetti direttamente (caricamento di texture e shader, il menu) deve
+ * essere seguito da {@link #reset()}, che il ciclo di gioco chiama comunque
+ * all'inizio di ogni frame. Gli oggetti eliminati con {@link GpuResources}
+ * vengono slegati anche qui ({@link #deleted}), perché OpenGL può riusarne il
+ * nome. Solo dal thread che possiede il contesto.
+ */
+public final class GlState {
+
+    /** Valore per "non noto": il prossimo cambio arriva sempre al driver. */
+    private static final int UNKNOWN = -1;
+    private static final int TEXTURE_UNITS = 4;
+
+    private static int program, vertexArray, arrayBuffer, activeUnit;
+    private static final int[] textures = new int[TEXTURE_UNITS];
+    /** 1 attivo, 0 disattivo, {@link #UNKNOWN} non noto. */
+    private static int depthTest, blend, depthMask;
+    private static long issued, skipped;
+
+    static {
+        reset();
+    }
+
+    private GlState() {
+    }
+
+    /** Dimentica lo stato noto: dopo la chiamata ogni cambio arriva al driver. */
+    public static void reset() {
+        program = vertexArray = arrayBuffer = activeUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        depthTest = blend = depthMask = UNKNOWN;
+    }
+
+    private static boolean changed(int current, int wanted) {
+        if (current == wanted) {
+            skipped++;
+            return false;
+        }
+        issued++;
+        return true;
+    }
+
+    public static void useProgram(int id) {
+        if (changed(program, id))
+            glUseProgram(program = id);
+    }
+
+    public static void bindVertexArray(int id) {
+        if (changed(vertexArray, id))
+            glBindVertexArray(vertexArray = id);
+    }
+
+    public static void bindArrayBuffer(int id) {
+        if (changed(arrayBuffer, id))
+            glBindBuffer(GL_ARRAY_BUFFER, arrayBuffer = id);
+    }
+
+    /** Lega la texture 2D all'unità {@code unit} (0 per {@code GL_TEXTURE0}). */
+    public static void bindTexture(int unit, int id) {
+        if (textures[unit] == id) {
+            skipped++;
+            return;
+        }
+        if (changed(activeUnit, unit))
+            glActiveTexture(GL_TEXTURE0 + (activeUnit = unit));
+        issued++;
+        glBindTexture(GL_TEXTURE_2D, textures[unit] = id);
+    }
+
+    public static void depthTest(boolean enabled) {
+        if (changed(depthTest, enabled ? 1 : 0)) {
+            depthTest = enabled ? 1 : 0;
+            if (enabled)
+                glEnable(GL_DEPTH_TEST);
+            else
+                glDisable(GL_DEPTH_TEST);
+        }
+    }
+
+    public static void blend(boolean enabled) {
+        if (changed(blend, enabled ? 1 : 0)) {
+            blend = enabled ? 1 : 0;
+            if (enabled)
+                glEnable(GL_BLEND);
+            else
+                glDisable(GL_BLEND);
+        }
+    }
+
+    public static void depthMask(boolean enabled) {
+        if (changed(depthMask, enabled ? 1 : 0)) {
+            depthMask = enabled ? 1 : 0;
+            glDepthMask(enabled);
+        }
+    }
+
+    /** Slega l'oggetto appena eliminato, come fa OpenGL, se era legato. */
+    static void deleted(GpuResources.Kind kind, int id) {
+        switch (kind) {
+            case BUFFER -> {
+                if (arrayBuffer == id)
+                    arrayBuffer = 0;
+            }
+            case VERTEX_ARRAY -> {
+                if (vertexArray == id)
+                    vertexArray = 0;
+            }
+            case TEXTURE -> {
+                for (int i = 0; i < TEXTURE_UNITS; i++)
+                    if (textures[i] == id)
+                        textures[i] = 0;
+            }
+            case PROGRAM -> {
+                // un programma in uso resta in uso finché non se ne lega un altro
+            }
+        }
+    }
+
+    /** Cambi inviati al driver e cambi saltati perché già in vigore, dall'avvio. */
+    public static String stats() {
+        return String.format("cambi di stato inviati %d, saltati %d", issued, skipped);
+    }
+}
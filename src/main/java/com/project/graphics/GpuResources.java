@@ -0,0 +1,237 @@
+package com.project.graphics;
+
+import static org.lwjgl.opengl.GL11.glDeleteTextures;
+import static org.lwjgl.opengl.GL11.glGenTextures;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL20.glCreateProgram;
+import static org.lwjgl.opengl.GL20.glDeleteProgram;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Registro centrale degli oggetti OpenGL (buffer, VAO, texture, programmi):
+ * chi li crea passa da qui, con un proprietario ("chunk", "hotbar"…), e
+ * dichiara i byte che occupano in memoria video con {@link #setSize}.
+ *
+ * <p>
+ * Il registro tiene i conteggi e i byte vivi per tipo e per proprietario, fa
+ * rispettare un budget di memoria video ({@link #fits}: chi carica dati
+ * opzionali, come le mesh dei chunk, controlla prima) e a fine partita
+ * elenca quello che non è stato liberato ({@link #closeContext()}).
+ *
+ * <p>
+ * Creazione ed eliminazione passano per un {@link Backend}: quello OpenGL nel
+ * gioco, {@link #stub()} per verificare la contabilità senza contesto. I nomi
+ * GL valgono per contesto (menu e partita hanno finestre diverse), quindi ogni
+ * risorsa è registrata insieme al contesto corrente. Solo dal thread che
+ * possiede il contesto.
+ */
+public final class GpuResources {
+
+    /** Tipi di oggetto tracciati. */
+    public enum Kind {
+        BUFFER, VERTEX_ARRAY, TEXTURE, PROGRAM
+    }
+
+    /** Crea ed elimina gli oggetti veri; {@link #context()} distingue i contesti. */
+    public interface Backend {
+        long context();
+
+        int create(Kind kind);
+
+        void delete(Kind kind, int id);
+    }
+
+    /** Oggetto vivo: tipo, nome GL, proprietario e byte dichiarati. */
+    public record Resource(Kind kind, int id, String owner, long bytes) {
+    }
+
+    /** Istantanea dei contatori. */
+    public record Stats(int buffers, int vertexArrays, int textures, int programs, long bytes, long peakBytes,
+            long budgetBytes) {
+
+        @Override
+        public String toString() {
+            return String.format("%d buffer, %d VAO, %d texture, %d programmi, %.1f MiB (picco %.1f, budget %.0f)",
+                    buffers, vertexArrays, textures, programs, bytes / MIB, peakBytes / MIB, budgetBytes / MIB);
+        }
+    }
+
+    private static final double MIB = 1024.0 * 1024.0;
+
+    /** Budget di memoria video per il gioco, in MiB ({@code -DvramBudget=<MiB>}). */
+    private static final long DEFAULT_BUDGET = Long.getLong("vramBudget", 512) * 1024 * 1024;
+
+    private static GpuResources current = new GpuResources(new GlBackend(), DEFAULT_BUDGET);
+
+    private record Key(long context, Kind kind, int id) {
+    }
+
+    private final Backend backend;
+    private final long budgetBytes;
+    private final Map<Key, Resource> live = new HashMap<>();
+    private final int[] counts = new int[Kind.values().length];
+    private long bytes, peakBytes;
+
+    public GpuResources(Backend backend, long budgetBytes) {
+        this.backend = backend;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** Registro usato dal gioco (backend OpenGL, salvo {@link #setCurrent}). */
+    public static GpuResources get() {
+        return current;
+    }
+
+    /** Sostituisce il registro globale, ad esempio con uno su {@link #stub()} per le prove senza GPU. */
+    public static void setCurrent(GpuResources resources) {
+        current = resources;
+    }
+
+    /** Crea un oggetto e lo registra a nome di {@code owner}, senza byte. */
+    public int create(Kind kind, String owner) {
+        int id = backend.create(kind);
+        if (id == 0)
+            throw new IllegalStateException("Creazione " + kind + " fallita per " + owner);
+        track(kind, id, owner);
+        return id;
+    }
+
+    /** Registra un oggetto creato altrove (ad esempio un programma già collegato). */
+    public int track(Kind kind, int id, String owner) {
+        Key key = new Key(backend.context(), kind, id);
+        if (live.putIfAbsent(key, new Resource(kind, id, owner, 0)) != null)
+            throw new IllegalStateException(kind + " " + id + " già registrato");
+        counts[kind.ordinal()]++;
+        return id;
+    }
+
+    /** Dichiara i byte occupati dall'oggetto (dopo {@code glBufferData}, {@code glTexImage2D}…). */
+    public void setSize(Kind kind, int id, long size) {
+        Key key = new Key(backend.context(), kind, id);
+        Resource r = live.get(key);
+        if (r == null)
+            throw new IllegalStateException(kind + " " + id + " non registrato");
+        live.put(key, new Resource(kind, id, r.owner(), size));
+        bytes += size - r.bytes();
+        peakBytes = Math.max(peakBytes, bytes);
+    }
+
+    /** Byte ancora disponibili nel budget, negativi se è già superato. */
+    public long headroom() {
+        return budgetBytes - bytes;
+    }
+
+    /** {@code true} se altri {@code extraBytes} stanno nel budget (negativi: memoria liberata). */
+    public boolean fits(long extraBytes) {
+        return bytes + extraBytes <= budgetBytes;
+    }
+
+    /** Elimina l'oggetto e ne toglie i byte dal conteggio. */
+    public void delete(Kind kind, int id) {
+        Resource r = live.remove(new Key(backend.context(), kind, id));
+        if (r == null) {
+            System.err.println("Eliminazione di " + kind + " " + id + " non registrato");
+        } else {
+            counts[kind.ordinal()]--;
+            bytes -= r.bytes();
+        }
+        backend.delete(kind, id);
+    }
+
+    /**
+     * Dimentica gli oggetti del contesto corrente, da chiamare prima di
+     * distruggerlo: a quel punto dovrebbero essere già stati eliminati tutti.
+     *
+     * @return gli oggetti non eliminati (perdite), che spariscono con il contesto
+     */
+    public List<Resource> closeContext() {
+        long context = backend.context();
+        List<Resource> leaked = new ArrayList<>();
+        for (Iterator<Map.Entry<Key, Resource>> it = live.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Key, Resource> e = it.next();
+            if (e.getKey().context() != context)
+                continue;
+            Resource r = e.getValue();
+            leaked.add(r);
+            counts[r.kind().ordinal()]--;
+            bytes -= r.bytes();
+            it.remove();
+        }
+        return leaked;
+    }
+
+    public Stats stats() {
+        return new Stats(counts[Kind.BUFFER.ordinal()], counts[Kind.VERTEX_ARRAY.ordinal()],
+                counts[Kind.TEXTURE.ordinal()], counts[Kind.PROGRAM.ordinal()], bytes, peakBytes, budgetBytes);
+    }
+
+    /** Byte vivi per proprietario, in ordine alfabetico. */
+    public Map<String, Long> bytesByOwner() {
+        Map<String, Long> byOwner = new TreeMap<>();
+        for (Resource r : live.values())
+            byOwner.merge(r.owner(), r.bytes(), Long::sum);
+        return byOwner;
+    }
+
+    /** Backend senza GPU: nomi progressivi per tipo, eliminazioni ignorate. */
+    public static Backend stub() {
+        return new Backend() {
+            private final int[] next = new int[Kind.values().length];
+
+            @Override
+            public long context() {
+                return 0;
+            }
+
+            @Override
+            public int create(Kind kind) {
+                return ++next[kind.ordinal()];
+            }
+
+            @Override
+            public void delete(Kind kind, int id) {
+            }
+        };
+    }
+
+    /** Backend OpenGL sul contesto GLFW corrente. */
+    private static final class GlBackend implements Backend {
+
+        @Override
+        public long context() {
+            return GLFW.glfwGetCurrentContext();
+        }
+
+        @Override
+        public int create(Kind kind) {
+            return switch (kind) {
+                case BUFFER -> glGenBuffers();
+                case VERTEX_ARRAY -> glGenVertexArrays();
+                case TEXTURE -> glGenTextures();
+                case PROGRAM -> glCreateProgram();
+            };
+        }
+
+        @Override
+        public void delete(Kind kind, int id) {
+            GlState.deleted(kind, id);
+            switch (kind) {
+                case BUFFER -> glDeleteBuffers(id);
+                case VERTEX_ARRAY -> glDeleteVertexArrays(id);
+                case TEXTURE -> glDeleteTextures(id);
+                case PROGRAM -> glDeleteProgram(id);
+            }
+        }
+    }
+}
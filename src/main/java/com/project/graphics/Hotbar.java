@@ -1,31 +1,21 @@
 package com.project.graphics;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
-import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
-import static org.lwjgl.opengl.GL13.glActiveTexture;
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
 
 import org.joml.Matrix4f;
-import org.lwjgl.BufferUtils;
 
 import com.project.world.Direction;
 import com.project.world.Inventory;
 import com.project.world.BlockType.UV;
 import com.project.world.Inventory.ItemStack;
 
-import java.awt.image.BufferedImage;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.imageio.ImageIO;
-
 /**
  * Hotbar rendering system: gestisce la visualizzazione dell'hotbar con slot, icone e contatori numerici.
  * Utilizza atlanti di texture per il rendering delle icone e segmenti 7-segment per i numeri.
@@ -37,6 +27,9 @@ public class Hotbar {
     /** Numero di slot nell'hotbar */
     private static final int SLOT_COUNT = Inventory.HOTBAR_SIZE;
     
+    /** Proprietario di buffer e shader in {@link GpuResources} */
+    private static final String OWNER = "hotbar";
+    
     /** Dimensione di ogni slot in pixel */
     private static final float SLOT_SIZE = 35f;
     
@@ -176,6 +169,18 @@ public class Hotbar {
     /** ID texture per l'atlante dei blocchi */
     private int atlasTextureID;
     
+    /** Posizioni degli uniform, lette una volta alla creazione degli shader */
+    private int slotProjLoc, slotTextureLoc, colorProjLoc, colorLoc;
+    
+    /** Dimensioni della finestra per cui è stata inviata la proiezione (0: mai) */
+    private int projWidth, projHeight;
+    
+    /** Proiezione ortogonale e vertici dei quad, riusati a ogni frame: il rendering non alloca */
+    private final Matrix4f projection = new Matrix4f();
+    private final float[] matrix = new float[16];
+    private final float[] texturedQuad = new float[6 * 4];
+    private final float[] colorQuad = new float[6 * 2];
+    
     // ===== COSTRUTTORE =====
     
     /**
@@ -186,13 +191,14 @@ public class Hotbar {
         // Creazione degli shader
         slotShader = createSlotShader();
         colorShader = createColorShader();
+        slotProjLoc = glGetUniformLocation(slotShader, "uProj");
+        slotTextureLoc = glGetUniformLocation(slotShader, "uTexture");
+        colorProjLoc = glGetUniformLocation(colorShader, "uProj");
+        colorLoc = glGetUniformLocation(colorShader, "uColor");
         
-        // Caricamento delle texture
-        slotTextureID = glGenTextures();
-        loadTexture("/textures/slot.png", slotTextureID);
-        
-        atlasTextureID = glGenTextures();
-        loadTexture("/textures/25w10a_blocks.png-atlas.png", atlasTextureID);
+        // Texture condivise (l'atlante è lo stesso dei chunk)
+        slotTextureID = TextureRegistry.get("/textures/slot.png");
+        atlasTextureID = TextureRegistry.blockAtlas();
         
         // Inizializzazione dei buffer per il rendering con texture
         initializeTextureBuffers();
@@ -208,12 +214,14 @@ public class Hotbar {
      * Configura VAO e VBO per vertici con coordinate di posizione e UV.
      */
     private void initializeTextureBuffers() {
-        vao = glGenVertexArrays();
-        vbo = glGenBuffers();
+        GpuResources gpu = GpuResources.get();
+        vao = gpu.create(GpuResources.Kind.VERTEX_ARRAY, OWNER);
+        vbo = gpu.create(GpuResources.Kind.BUFFER, OWNER);
         
         glBindVertexArray(vao);
         glBindBuffer(GL_ARRAY_BUFFER, vbo);
         glBufferData(GL_ARRAY_BUFFER, 6 * 4 * Float.BYTES, GL_DYNAMIC_DRAW);
+        gpu.setSize(GpuResources.Kind.BUFFER, vbo, 6 * 4 * Float.BYTES);
         
         // Attributo 0: posizione (x, y)
         glVertexAttribPointer(0, 2, GL_FLOAT, false, 4 * Float.BYTES, 0);
@@ -232,12 +240,14 @@ public class Hotbar {
      * Configura VAO e VBO per vertici con solo coordinate di posizione.
      */
     private void initializeColorBuffers() {
-        quadVao = glGenVertexArrays();
-        quadVbo = glGenBuffers();
+        GpuResources gpu = GpuResources.get();
+        quadVao = gpu.create(GpuResources.Kind.VERTEX_ARRAY, OWNER);
+        quadVbo = gpu.create(GpuResources.Kind.BUFFER, OWNER);
         
         glBindVertexArray(quadVao);
         glBindBuffer(GL_ARRAY_BUFFER, quadVbo);
         glBufferData(GL_ARRAY_BUFFER, 6 * 2 * Float.BYTES, GL_DYNAMIC_DRAW);
+        gpu.setSize(GpuResources.Kind.BUFFER, quadVbo, 6 * 2 * Float.BYTES);
         
         // Attributo 0: posizione (x, y)
         glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0);
@@ -267,7 +277,7 @@ public class Hotbar {
                 "uniform sampler2D uTexture;\n" +
                 "void main(){ Frag = texture(uTexture, vUV);}\n";
         
-        return ShaderUtils.createProgram(vertexShader, fragmentShader);
+        return ShaderUtils.createProgram(vertexShader, fragmentShader, OWNER);
     }
     
     /**
@@ -285,61 +295,20 @@ public class Hotbar {
                 "out vec4 Frag;\n" +
                 "void main(){ Frag = uColor;}\n";
         
-        return ShaderUtils.createProgram(vertexShader, fragmentShader);
+        return ShaderUtils.createProgram(vertexShader, fragmentShader, OWNER);
     }
     
-    // ===== CARICAMENTO TEXTURE =====
-    
     /**
-     * Carica una texture da file e la carica in OpenGL.
-     * @param resourcePath Percorso del file texture
-     * @param textureID ID della texture OpenGL
+     * Elimina buffer e shader dell'hotbar (le texture sono del {@link TextureRegistry}).
      */
-    private void loadTexture(String resourcePath, int textureID) {
-        glBindTexture(GL_TEXTURE_2D, textureID);
-        
-        // Configurazione parametri texture
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
-        
-        try (InputStream inputStream = getClass().getResourceAsStream(resourcePath)) {
-            if (inputStream == null) {
-                throw new RuntimeException("Texture non trovata: " + resourcePath);
-            }
-            
-            // Caricamento dell'immagine
-            BufferedImage image = ImageIO.read(inputStream);
-            int width = image.getWidth();
-            int height = image.getHeight();
-            
-            // Conversione dei pixel in formato RGBA
-            int[] pixels = new int[width * height];
-            image.getRGB(0, 0, width, height, pixels, 0, width);
-            
-            ByteBuffer buffer = BufferUtils.createByteBuffer(width * height * 4);
-            
-            // Conversione pixel con flip verticale
-            for (int y = height - 1; y >= 0; y--) {
-                for (int x = 0; x < width; x++) {
-                    int pixel = pixels[y * width + x];
-                    buffer.put((byte) ((pixel >> 16) & 0xFF))  // Red
-                          .put((byte) ((pixel >> 8) & 0xFF))   // Green
-                          .put((byte) (pixel & 0xFF))          // Blue
-                          .put((byte) ((pixel >> 24) & 0xFF)); // Alpha
-                }
-            }
-            buffer.flip();
-            
-            // Caricamento della texture in OpenGL
-            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Errore nel caricamento della texture: " + resourcePath, e);
-        } finally {
-            glBindTexture(GL_TEXTURE_2D, 0);
-        }
+    public void cleanup() {
+        GpuResources gpu = GpuResources.get();
+        gpu.delete(GpuResources.Kind.BUFFER, vbo);
+        gpu.delete(GpuResources.Kind.VERTEX_ARRAY, vao);
+        gpu.delete(GpuResources.Kind.BUFFER, quadVbo);
+        gpu.delete(GpuResources.Kind.VERTEX_ARRAY, quadVao);
+        gpu.delete(GpuResources.Kind.PROGRAM, slotShader);
+        gpu.delete(GpuResources.Kind.PROGRAM, colorShader);
     }
     
     // ===== RENDERING PRINCIPALE =====
@@ -354,23 +323,26 @@ public class Hotbar {
         // Configurazione stati OpenGL per il rendering 2D
         setupRenderingStates();
         
+        // Proiezione: gli uniform restano nei programmi, si inviano solo se la finestra cambia
+        if (width != projWidth || height != projHeight)
+            uploadProjection(width, height);
+        
         // Calcolo posizioni
-        Matrix4f projectionMatrix = new Matrix4f().ortho2D(0, width, 0, height);
         float totalWidth = SLOT_COUNT * (SLOT_SIZE + SLOT_PADDING) - SLOT_PADDING;
         float startX = (width - totalWidth) / 2f;
         float y = HOTBAR_Y_POSITION;
         
         // Rendering degli slot
-        renderSlots(projectionMatrix, startX, y);
+        renderSlots(startX, y);
         
         // Rendering delle icone
-        renderIcons(projectionMatrix, startX, y, inventory);
+        renderIcons(startX, y, inventory);
         
         // Rendering del bordo di selezione
-        renderSelectionBorder(projectionMatrix, startX, y, inventory.getSelectedHotbarIndex());
+        renderSelectionBorder(startX, y, inventory.getSelectedHotbarIndex());
         
         // Rendering dei contatori
-        renderItemCounts(projectionMatrix, startX, y, inventory);
+        renderItemCounts(startX, y, inventory);
         
         // Ripristino stati OpenGL
         restoreRenderingStates();
@@ -382,62 +354,64 @@ public class Hotbar {
      * Configura gli stati OpenGL per il rendering 2D dell'hotbar.
      */
     private void setupRenderingStates() {
-        glDisable(GL_DEPTH_TEST);
-        glDepthMask(false);
-        glEnable(GL_BLEND);
+        GlState.depthTest(false);
+        GlState.depthMask(false);
+        GlState.blend(true);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
     }
     
+    /**
+     * Invia la proiezione ortogonale della finestra a entrambi gli shader.
+     * @param width Larghezza della finestra
+     * @param height Altezza della finestra
+     */
+    private void uploadProjection(int width, int height) {
+        projection.setOrtho2D(0, width, 0, height).get(matrix);
+        GlState.useProgram(slotShader);
+        glUniformMatrix4fv(slotProjLoc, false, matrix);
+        glUniform1i(slotTextureLoc, 0);
+        GlState.useProgram(colorShader);
+        glUniformMatrix4fv(colorProjLoc, false, matrix);
+        projWidth = width;
+        projHeight = height;
+    }
+    
     /**
      * Ripristina gli stati OpenGL dopo il rendering dell'hotbar.
      */
     private void restoreRenderingStates() {
-        glUseProgram(0);
-        glDisable(GL_BLEND);
-        glEnable(GL_DEPTH_TEST);
-        glDepthMask(true);
+        GlState.useProgram(0);
+        GlState.blend(false);
+        GlState.depthTest(true);
+        GlState.depthMask(true);
     }
     
     /**
      * Renderizza gli slot dell'hotbar.
-     * @param projectionMatrix Matrice di proiezione
      * @param startX Posizione X iniziale
      * @param y Posizione Y
      */
-    private void renderSlots(Matrix4f projectionMatrix, float startX, float y) {
-        glUseProgram(slotShader);
-        glUniformMatrix4fv(glGetUniformLocation(slotShader, "uProj"), false,
-                projectionMatrix.get(BufferUtils.createFloatBuffer(16)));
-        
-        glActiveTexture(GL_TEXTURE0);
-        glUniform1i(glGetUniformLocation(slotShader, "uTexture"), 0);
-        glBindVertexArray(vao);
-        glBindTexture(GL_TEXTURE_2D, slotTextureID);
+    private void renderSlots(float startX, float y) {
+        GlState.useProgram(slotShader);
+        GlState.bindVertexArray(vao);
+        GlState.bindTexture(0, slotTextureID);
         
         for (int i = 0; i < SLOT_COUNT; i++) {
             float x = startX + i * (SLOT_SIZE + SLOT_PADDING);
             drawTexturedQuad(x, y, SLOT_SIZE, SLOT_SIZE, 0, 0, 1, 1);
         }
-        
-        glBindVertexArray(0);
     }
     
     /**
      * Renderizza le icone degli oggetti negli slot.
-     * @param projectionMatrix Matrice di proiezione
      * @param startX Posizione X iniziale
      * @param y Posizione Y
      * @param inventory Inventario contenente gli oggetti
      */
-    private void renderIcons(Matrix4f projectionMatrix, float startX, float y, Inventory inventory) {
-        glUseProgram(slotShader);
-        glUniformMatrix4fv(glGetUniformLocation(slotShader, "uProj"), false,
-                projectionMatrix.get(BufferUtils.createFloatBuffer(16)));
-        
-        glActiveTexture(GL_TEXTURE0);
-        glUniform1i(glGetUniformLocation(slotShader, "uTexture"), 0);
-        glBindVertexArray(vao);
-        glBindTexture(GL_TEXTURE_2D, atlasTextureID);
+    private void renderIcons(float startX, float y, Inventory inventory) {
+        GlState.useProgram(slotShader);
+        GlState.bindVertexArray(vao);
+        GlState.bindTexture(0, atlasTextureID);
         
         for (int i = 0; i < SLOT_COUNT; i++) {
             float x = startX + i * (SLOT_SIZE + SLOT_PADDING);
@@ -460,71 +434,62 @@ public class Hotbar {
                 );
             }
         }
-        
-        glBindVertexArray(0);
     }
     
     /**
      * Renderizza il bordo di selezione attorno allo slot selezionato.
-     * @param projectionMatrix Matrice di proiezione
      * @param startX Posizione X iniziale
      * @param y Posizione Y
      * @param selectedIndex Indice dello slot selezionato
      */
-    private void renderSelectionBorder(Matrix4f projectionMatrix, float startX, float y, int selectedIndex) {
+    private void renderSelectionBorder(float startX, float y, int selectedIndex) {
         float selectedX = startX + selectedIndex * (SLOT_SIZE + SLOT_PADDING);
         
-        glUseProgram(colorShader);
-        glUniformMatrix4fv(glGetUniformLocation(colorShader, "uProj"), false,
-                projectionMatrix.get(BufferUtils.createFloatBuffer(16)));
-        glUniform4f(glGetUniformLocation(colorShader, "uColor"), 0f, 0f, 0f, 1f); // Nero
+        GlState.useProgram(colorShader);
+        glUniform4f(colorLoc, 0f, 0f, 0f, 1f); // Nero
         
-        glBindVertexArray(quadVao);
+        GlState.bindVertexArray(quadVao);
         
         // Rendering dei quattro lati del bordo
         drawColorQuad(selectedX, y, SLOT_SIZE, BORDER_THICKNESS);                           // Inferiore
         drawColorQuad(selectedX, y + SLOT_SIZE - BORDER_THICKNESS, SLOT_SIZE, BORDER_THICKNESS); // Superiore
         drawColorQuad(selectedX, y, BORDER_THICKNESS, SLOT_SIZE);                           // Sinistro
         drawColorQuad(selectedX + SLOT_SIZE - BORDER_THICKNESS, y, BORDER_THICKNESS, SLOT_SIZE); // Destro
-        
-        glBindVertexArray(0);
     }
     
     /**
      * Renderizza i contatori numerici per gli oggetti con quantità > 1.
-     * @param projectionMatrix Matrice di proiezione
      * @param startX Posizione X iniziale
      * @param y Posizione Y
      * @param inventory Inventario contenente gli oggetti
      */
-    private void renderItemCounts(Matrix4f projectionMatrix, float startX, float y, Inventory inventory) {
-        glUseProgram(colorShader);
-        glUniformMatrix4fv(glGetUniformLocation(colorShader, "uProj"), false,
-                projectionMatrix.get(BufferUtils.createFloatBuffer(16)));
-        glUniform4f(glGetUniformLocation(colorShader, "uColor"), 1f, 1f, 1f, 1f); // Bianco
+    private void renderItemCounts(float startX, float y, Inventory inventory) {
+        GlState.useProgram(colorShader);
+        glUniform4f(colorLoc, 1f, 1f, 1f, 1f); // Bianco
         
-        glBindVertexArray(quadVao);
+        GlState.bindVertexArray(quadVao);
         
         for (int i = 0; i < SLOT_COUNT; i++) {
             ItemStack itemStack = inventory.getItem(i);
             
             if (itemStack != null && itemStack.getCount() > 1) {
-                String countString = String.valueOf(itemStack.getCount());
+                int count = itemStack.getCount();
+                int digits = 1;
+                for (int rest = count / 10; rest > 0; rest /= 10)
+                    digits++;
                 float digitSpacing = DIGIT_SIZE * DIGIT_SPACING_MULTIPLIER;
-                float totalWidth = countString.length() * digitSpacing;
+                float totalWidth = digits * digitSpacing;
                 
                 // Posizionamento del contatore nell'angolo inferiore destro dello slot
                 float baseX = startX + i * (SLOT_SIZE + SLOT_PADDING) + SLOT_SIZE - totalWidth - COUNTER_MARGIN;
                 float baseY = y + COUNTER_MARGIN;
                 
-                // Rendering di ogni cifra
-                for (int digitIndex = 0; digitIndex < countString.length(); digitIndex++) {
-                    drawDigit(baseX + digitIndex * digitSpacing, baseY, DIGIT_SIZE, countString.charAt(digitIndex));
+                // Rendering di ogni cifra, dall'ultima (senza passare da una stringa)
+                for (int digitIndex = digits - 1; digitIndex >= 0; digitIndex--, count /= 10) {
+                    drawDigit(baseX + digitIndex * digitSpacing, baseY, DIGIT_SIZE, (char) ('0' + count % 10));
                 }
             }
         }
-        
-        glBindVertexArray(0);
     }
     
     // ===== METODI DI RENDERING PRIMITIVI =====
@@ -542,16 +507,15 @@ public class Hotbar {
      */
     private void drawTexturedQuad(float x, float y, float width, float height, 
                                   float u0, float v0, float u1, float v1) {
-        float[] vertices = {
-            x,         y,          u0, v1,  // Vertice inferiore sinistro
-            x + width, y,          u1, v1,  // Vertice inferiore destro
-            x + width, y + height, u1, v0,  // Vertice superiore destro
-            x,         y,          u0, v1,  // Vertice inferiore sinistro (secondo triangolo)
-            x + width, y + height, u1, v0,  // Vertice superiore destro (secondo triangolo)
-            x,         y + height, u0, v0   // Vertice superiore sinistro
-        };
-        
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        float[] vertices = texturedQuad;
+        vertex(vertices, 0, x,         y,          u0, v1);  // Vertice inferiore sinistro
+        vertex(vertices, 1, x + width, y,          u1, v1);  // Vertice inferiore destro
+        vertex(vertices, 2, x + width, y + height, u1, v0);  // Vertice superiore destro
+        vertex(vertices, 3, x,         y,          u0, v1);  // Vertice inferiore sinistro (secondo triangolo)
+        vertex(vertices, 4, x + width, y + height, u1, v0);  // Vertice superiore destro (secondo triangolo)
+        vertex(vertices, 5, x,         y + height, u0, v0);  // Vertice superiore sinistro
+        
+        GlState.bindArrayBuffer(vbo);
         glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
         glDrawArrays(GL_TRIANGLES, 0, 6);
     }
@@ -564,20 +528,30 @@ public class Hotbar {
      * @param height Altezza
      */
     private void drawColorQuad(float x, float y, float width, float height) {
-        float[] vertices = {
-            x,         y,          // Vertice inferiore sinistro
-            x + width, y,          // Vertice inferiore destro
-            x + width, y + height, // Vertice superiore destro
-            x,         y,          // Vertice inferiore sinistro (secondo triangolo)
-            x + width, y + height, // Vertice superiore destro (secondo triangolo)
-            x,         y + height  // Vertice superiore sinistro
-        };
-        
-        glBindBuffer(GL_ARRAY_BUFFER, quadVbo);
+        float[] vertices = colorQuad;
+        vertices[0] = x;          vertices[1] = y;           // Vertice inferiore sinistro
+        vertices[2] = x + width;  vertices[3] = y;           // Vertice inferiore destro
+        vertices[4] = x + width;  vertices[5] = y + height;  // Vertice superiore destro
+        vertices[6] = x;          vertices[7] = y;           // Vertice inferiore sinistro (secondo triangolo)
+        vertices[8] = x + width;  vertices[9] = y + height;  // Vertice superiore destro (secondo triangolo)
+        vertices[10] = x;         vertices[11] = y + height; // Vertice superiore sinistro
+        
+        GlState.bindArrayBuffer(quadVbo);
         glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
         glDrawArrays(GL_TRIANGLES, 0, 6);
     }
     
+    /**
+     * Scrive il vertice {@code index} (posizione e UV) di un quad con texture.
+     */
+    private static void vertex(float[] vertices, int index, float x, float y, float u, float v) {
+        int i = index * 4;
+        vertices[i] = x;
+        vertices[i + 1] = y;
+        vertices[i + 2] = u;
+        vertices[i + 3] = v;
+    }
+    
     /**
      * Disegna una singola cifra utilizzando segmenti 7-segment.
      * @param x Posizione X
@@ -586,10 +560,11 @@ public class Hotbar {
      * @param digit Cifra da disegnare
      */
     private void drawDigit(float x, float y, float size, char digit) {
-        List<float[]> segments = DIGIT_SEGMENTS.getOrDefault(digit, Collections.emptyList());
+        List<float[]> segments = DIGIT_SEGMENTS.getOrDefault(digit, List.of());
         float scale = size / 8f; // I segmenti sono definiti per una griglia 8x8
         
-        for (float[] segment : segments) {
+        for (int i = 0; i < segments.size(); i++) { // per indice: niente iteratore
+            float[] segment = segments.get(i);
             float segmentX = x + segment[0] * scale;
             float segmentY = y + segment[1] * scale;
             float segmentWidth = segment[2] * scale;
@@ -14,41 +14,86 @@ import static org.lwjgl.opengl.GL20.*;
  * <p>
  * Per disattivare l'evidenziazione impostare l'uniform a
  * <code>ivec3(INT_MIN)</code> (ad es. <code>Integer.MIN_VALUE</code>).
+ *
+ * <p>
+ * I vertici dei chunk portano il tassello dell'atlante e una UV locale in
+ * tasselli: il fragment shader ripete il tassello con <code>fract</code>, così
+ * un quad della mesh greedy largo N blocchi mostra N copie della texture.
+ *
+ * <p>
+ * Esistono due varianti del vertex shader con lo stesso fragment shader:
+ * {@link #createProgram()} legge attributi float separati (posizione,
+ * tassello, UV locale), {@link #createChunkProgram()} legge il vertice
+ * compatto da 8 byte dei chunk (vedi {@code MeshBuilder}).
  */
 public class ShaderUtils {
 
+    /** Proprietario dei programmi in {@link GpuResources} quando il chiamante non lo indica. */
+    private static final String OWNER = "shader";
+
     // ---------------------------------------------------------------------------------
-    // Sorgenti shader (GLSL 150 core)
+    // Sorgenti shader (GLSL 330 core)
     // ---------------------------------------------------------------------------------
 
     // Vertex shader per oggetti con texture
     private static final String VERT_SRC = """
-        #version 150 core
+        #version 330 core
         in  vec3 aPos;
-        in  vec2 aTexCoord;
+        in  vec2 aTile;
+        in  vec2 aLocal;
         uniform mat4 model;
         uniform mat4 view;
         uniform mat4 projection;
-        out vec2 vTex;
+        flat out vec2 vTile;
+        out vec2 vLocal;
         out vec3 vWorldPos;
         void main() {
             vec4 wp   = model * vec4(aPos, 1.0);
             vWorldPos = wp.xyz;
-            vTex      = aTexCoord;
+            vTile     = aTile;
+            vLocal    = aLocal;
+            gl_Position = projection * view * wp;
+        }
+    """;
+
+    // Vertex shader dei chunk: vertice compatto in due uint
+    private static final String CHUNK_VERT_SRC = """
+        #version 330 core
+        layout(location = 0) in uvec2 aPacked;
+        uniform mat4 model;
+        uniform mat4 view;
+        uniform mat4 projection;
+        flat out vec2 vTile;
+        out vec2 vLocal;
+        out vec3 vWorldPos;
+        void main() {
+            // x: bit 0-6, y: bit 7-14, z: bit 15-21
+            vec3 pos = vec3(aPacked.x & 0x7Fu, (aPacked.x >> 7) & 0xFFu, (aPacked.x >> 15) & 0x7Fu);
+            // tassello: bit 0-5 e 6-10, UV locale: bit 11-18 e 19-26
+            vTile  = vec2(aPacked.y & 0x3Fu, (aPacked.y >> 6) & 0x1Fu);
+            vLocal = vec2((aPacked.y >> 11) & 0xFFu, (aPacked.y >> 19) & 0xFFu);
+
+            vec4 wp   = model * vec4(pos, 1.0);
+            vWorldPos = wp.xyz;
             gl_Position = projection * view * wp;
         }
     """;
 
     // Fragment shader con evidenziazione blocco
     private static final String FRAG_SRC = """
-        #version 150 core
-        in  vec2 vTex;
+        #version 330 core
+        flat in vec2 vTile;
+        in  vec2 vLocal;
         in  vec3 vWorldPos;
         uniform sampler2D ourTexture;
         uniform ivec3 uHighlightBlock;
         out vec4 FragColor;
+
+        // un tassello dell'atlante 64 × 32
+        const vec2 TILE_SIZE = vec2(1.0 / 64.0, 1.0 / 32.0);
+
         void main() {
-            vec4 col = texture(ourTexture, vTex);
+            vec4 col = texture(ourTexture, (vTile + fract(vLocal)) * TILE_SIZE);
 
             // Tolleranza per compensare la precisione in virgola mobile
             const float EPS = 1e-4;
@@ -75,14 +120,30 @@ public class ShaderUtils {
      * Crea un programma shader standard con evidenziazione blocchi.
      */
     public static int createProgram() {
-        return compileAndLink(VERT_SRC, FRAG_SRC);
+        return compileAndLink(VERT_SRC, FRAG_SRC, OWNER);
+    }
+
+    /**
+     * Crea il programma dei chunk: vertice compatto da 8 byte, stesso fragment
+     * shader (atlante ripetuto ed evidenziazione) del programma standard.
+     */
+    public static int createChunkProgram() {
+        return compileAndLink(CHUNK_VERT_SRC, FRAG_SRC, "chunk");
     }
 
     /**
      * Crea un programma shader parametrico con sorgenti personalizzate.
      */
     public static int createProgram(String vertexSource, String fragmentSource) {
-        return compileAndLink(vertexSource, fragmentSource);
+        return createProgram(vertexSource, fragmentSource, OWNER);
+    }
+
+    /**
+     * Come {@link #createProgram(String, String)}, registrando il programma in
+     * {@link GpuResources} a nome di {@code owner}.
+     */
+    public static int createProgram(String vertexSource, String fragmentSource, String owner) {
+        return compileAndLink(vertexSource, fragmentSource, owner);
     }
 
     /**
@@ -125,7 +186,7 @@ public class ShaderUtils {
     /**
      * Compila e collega un programma shader a partire da due sorgenti GLSL.
      */
-    private static int compileAndLink(String vertSrc, String fragSrc) {
+    private static int compileAndLink(String vertSrc, String fragSrc, String owner) {
         // Compilazione shader di vertice
         int vs = glCreateShader(GL_VERTEX_SHADER);
         glShaderSource(vs, vertSrc);
@@ -139,13 +200,14 @@ public class ShaderUtils {
         checkCompileErrors(fs, "FRAGMENT");
 
         // Creazione e link del programma
-        int program = glCreateProgram();
+        int program = GpuResources.get().create(GpuResources.Kind.PROGRAM, owner);
         glAttachShader(program, vs);
         glAttachShader(program, fs);
 
         // Associazione esplicita degli attributi
         glBindAttribLocation(program, 0, "aPos");
-        glBindAttribLocation(program, 1, "aTexCoord");
+        glBindAttribLocation(program, 1, "aTile");
+        glBindAttribLocation(program, 2, "aLocal");
 
         glLinkProgram(program);
         checkLinkErrors(program);
@@ -0,0 +1,109 @@
+package com.project.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * Registro delle texture condivise (atlante dei blocchi, slot dell'hotbar…).
+ *
+ * <p>
+ * Ogni PNG viene decodificato una sola volta per tutta la vita del programma
+ * e caricato sulla GPU una sola volta per contesto OpenGL: chunk e hotbar
+ * usano lo stesso ID. Le finestre di gioco hanno un contesto proprio, quindi
+ * alla chiusura del mondo {@link #releaseAll()} elimina le texture GL ma
+ * tiene in memoria i pixel già decodificati.
+ *
+ * <p>
+ * Da usare solo dal thread che possiede il contesto OpenGL.
+ */
+public final class TextureRegistry {
+
+    /** Atlante dei blocchi: 64 × 32 tasselli (1024 × 512 px). */
+    public static final String BLOCK_ATLAS = "/textures/25w10a_blocks.png-atlas.png";
+
+    /** Pixel RGBA già capovolti per OpenGL (prima riga = basso dell'immagine). */
+    private record Image(int width, int height, ByteBuffer pixels) {
+    }
+
+    private static final Map<String, Image> decoded = new HashMap<>();
+    private static final Map<String, Integer> uploaded = new HashMap<>();
+
+    private TextureRegistry() {
+    }
+
+    /** ID GL dell'atlante dei blocchi. */
+    public static int blockAtlas() {
+        return get(BLOCK_ATLAS);
+    }
+
+    /**
+     * ID GL della texture indicata, caricandola al primo utilizzo nel contesto
+     * corrente (filtro NEAREST, bordi CLAMP_TO_EDGE).
+     */
+    public static int get(String resourcePath) {
+        Integer id = uploaded.get(resourcePath);
+        if (id != null)
+            return id;
+
+        Image image = decoded.computeIfAbsent(resourcePath, TextureRegistry::decode);
+        GpuResources gpu = GpuResources.get();
+        int textureID = gpu.create(GpuResources.Kind.TEXTURE, resourcePath);
+        GlState.bindTexture(0, textureID);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, image.width(), image.height(), 0, GL_RGBA, GL_UNSIGNED_BYTE,
+                image.pixels());
+        gpu.setSize(GpuResources.Kind.TEXTURE, textureID, 4L * image.width() * image.height());
+
+        uploaded.put(resourcePath, textureID);
+        return textureID;
+    }
+
+    /** Elimina tutte le texture del contesto corrente (da chiamare prima di distruggerlo). */
+    public static void releaseAll() {
+        for (int id : uploaded.values())
+            GpuResources.get().delete(GpuResources.Kind.TEXTURE, id);
+        uploaded.clear();
+    }
+
+    private static Image decode(String resourcePath) {
+        try (InputStream is = TextureRegistry.class.getResourceAsStream(resourcePath)) {
+            if (is == null)
+                throw new RuntimeException("Texture non trovata: " + resourcePath);
+            BufferedImage img = ImageIO.read(is);
+            int w = img.getWidth(), h = img.getHeight();
+            int[] pixels = new int[w * h];
+            img.getRGB(0, 0, w, h, pixels, 0, w);
+
+            // ARGB → RGBA con flip verticale
+            ByteBuffer buf = BufferUtils.createByteBuffer(w * h * 4);
+            for (int y = h - 1; y >= 0; y--) {
+                for (int x = 0; x < w; x++) {
+                    int p = pixels[y * w + x];
+                    buf.put((byte) ((p >> 16) & 0xFF));
+                    buf.put((byte) ((p >> 8) & 0xFF));
+                    buf.put((byte) (p & 0xFF));
+                    buf.put((byte) ((p >> 24) & 0xFF));
+                }
+            }
+            buf.flip();
+            return new Image(w, h, buf);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Errore caricamento texture: " + resourcePath, e);
+        }
+    }
+}
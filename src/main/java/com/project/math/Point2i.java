@@ -7,5 +7,6 @@ public class Point2i {
         Point2i p = (Point2i)o;
         return p.x == x && p.y == y;
     }
-    @Override public int hashCode() { return 31*x + y; }
+    // moltiplicatore dispari grande: chiavi vicine non si accalcano negli stessi bucket
+    @Override public int hashCode() { return x * 0x9E3779B1 + y; }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.project.math;
+public class Point3i {
+    public final int x, y, z;
+    public Point3i(int x, int y, int z) { this.x = x; this.y = y; this.z = z; }
+    @Override public boolean equals(Object o) {
+        if (!(o instanceof Point3i)) return false;
+        Point3i p = (Point3i)o;
+        return p.x == x && p.y == y && p.z == z;
+    }
+    // come Point2i: moltiplicatori dispari grandi, vicini sparsi nei bucket
+    @Override public int hashCode() { return (x * 0x9E3779B1 + z) * 0x85EBCA6B + y; }
+}
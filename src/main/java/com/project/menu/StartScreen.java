@@ -9,6 +9,8 @@ import static org.lwjgl.opengl.GL30.*;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.stb.STBEasyFont;
 
+import com.project.graphics.GpuResources;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
@@ -65,6 +67,7 @@ public class StartScreen {
     /* OpenGL: VAO, VBO e shader */
     /* ====================================================================== */
 
+    private static final String OWNER = "menu";
     private static final int vao;
     private static final int vbo;
     private static final int menuProgram;
@@ -75,11 +78,14 @@ public class StartScreen {
 
     static {
         // Setup VAO / VBO
-        vao = glGenVertexArrays();
-        vbo = glGenBuffers();
+        // vivono quanto la finestra del menu, cioè tutto il programma
+        GpuResources gpu = GpuResources.get();
+        vao = gpu.create(GpuResources.Kind.VERTEX_ARRAY, OWNER);
+        vbo = gpu.create(GpuResources.Kind.BUFFER, OWNER);
         glBindVertexArray(vao);
         glBindBuffer(GL_ARRAY_BUFFER, vbo);
         glBufferData(GL_ARRAY_BUFFER, MAX_VERTS * 2L * Float.BYTES, GL_DYNAMIC_DRAW);
+        gpu.setSize(GpuResources.Kind.BUFFER, vbo, MAX_VERTS * 2L * Float.BYTES);
         glVertexAttribPointer(0, 2, GL_FLOAT, false, Float.BYTES * 2, 0);
         glEnableVertexAttribArray(0);
         glBindVertexArray(0);
@@ -126,7 +132,7 @@ public class StartScreen {
         if (glGetShaderi(fs, GL_COMPILE_STATUS) != GL_TRUE)
             throw new IllegalStateException("Fragment shader error:\n" + glGetShaderInfoLog(fs));
 
-        int prog = glCreateProgram();
+        int prog = GpuResources.get().create(GpuResources.Kind.PROGRAM, OWNER);
         glAttachShader(prog, vs);
         glAttachShader(prog, fs);
         glLinkProgram(prog);
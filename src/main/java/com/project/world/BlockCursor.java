@@ -0,0 +1,82 @@
+package com.project.world;
+
+/**
+ * Cursore su una cella del mondo, per chi cammina di blocco in blocco (il DDA
+ * del raycast): tiene il chunk corrente e le coordinate locali, e quando un
+ * passo attraversa il bordo segue il collegamento al chunk vicino
+ * ({@link Chunk#link}) invece di ricalcolare {@code floorDiv} e cercare nella
+ * mappa. Si torna alla mappa solo in {@link #moveTo} e quando il chunk
+ * corrente non è caricato, perché non c'è un collegamento da seguire.
+ *
+ * <p>
+ * I collegamenti rispecchiano la mappa (un vicino manca se e solo se non è
+ * caricato), quindi le risposte sono le stesse di {@link WorldQueries#isSolid}.
+ * Solo thread di rendering; il cursore si riusa, ma il chunk tenuto vale solo
+ * fino al prossimo aggiornamento del mondo: ogni percorso parte da
+ * {@link #moveTo}.
+ */
+public final class BlockCursor {
+
+    private final ChunkMap chunks;
+    private final int chunkSize;
+    /** Chunk che contiene la cella, {@code null} se non è caricato. */
+    private Chunk chunk;
+    private int cx, cy, cz;
+    private int lx, ly, lz;
+
+    public BlockCursor(ChunkMap chunks, int chunkSize) {
+        this.chunks = chunks;
+        this.chunkSize = chunkSize;
+    }
+
+    /** Porta il cursore sulla cella {@code (wx, wy, wz)} in coordinate mondo. */
+    public BlockCursor moveTo(int wx, int wy, int wz) {
+        cx = Math.floorDiv(wx, chunkSize);
+        cy = Math.floorDiv(wy, chunkSize);
+        cz = Math.floorDiv(wz, chunkSize);
+        lx = wx - cx * chunkSize;
+        ly = wy - cy * chunkSize;
+        lz = wz - cz * chunkSize;
+        chunk = chunks.get(cx, cy, cz);
+        return this;
+    }
+
+    /** Sposta il cursore di un blocco verso {@code side}. */
+    public void step(Direction side) {
+        lx += side.dx;
+        ly += side.dy;
+        lz += side.dz;
+        if (lx >= 0 && lx < chunkSize && ly >= 0 && ly < chunkSize && lz >= 0 && lz < chunkSize)
+            return;
+        // bordo attraversato: una sola coordinata è uscita, di un blocco
+        lx = Math.floorMod(lx, chunkSize);
+        ly = Math.floorMod(ly, chunkSize);
+        lz = Math.floorMod(lz, chunkSize);
+        cx += side.dx;
+        cy += side.dy;
+        cz += side.dz;
+        chunk = chunk != null ? chunk.neighbour(side) : chunks.get(cx, cy, cz);
+    }
+
+    /** {@code true} se la cella è piena; le celle di chunk non caricati sono aria. */
+    public boolean isSolid() {
+        return chunk != null && chunk.isSolid(lx, ly, lz);
+    }
+
+    /** Tipo della cella, {@code null} per l'aria e per i chunk non caricati. */
+    public BlockType getBlockType() {
+        return chunk == null ? null : chunk.getBlockType(lx, ly, lz);
+    }
+
+    public int x() {
+        return cx * chunkSize + lx;
+    }
+
+    public int y() {
+        return cy * chunkSize + ly;
+    }
+
+    public int z() {
+        return cz * chunkSize + lz;
+    }
+}
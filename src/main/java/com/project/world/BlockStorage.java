@@ -0,0 +1,341 @@
+package com.project.world;
+
+import java.util.Arrays;
+
+/**
+ * Blocchi di un chunk divisi in sezioni di {@value #SIZE}³ celle, ognuna con
+ * la propria palette degli id presenti e gli indici nella palette
+ * impacchettati a {@code bits} bit (1, 2, 4 o 8) in un {@code long[]}. Una
+ * sezione con un solo id (tutta aria, tutta pietra…) non ha array: è una
+ * costante condivisa.
+ *
+ * <p>
+ * Gli id sono quelli di {@link BlockType#toId} (0 = aria). Dentro la sezione
+ * la cella {@code (x, y, z)} locale ha indice {@code (x * SIZE + y) * SIZE + z};
+ * le sezioni sono ordinate x → y → z come le celle del chunk. Le conversioni
+ * da e verso l'array piatto ({@link #fromIds}, {@link #copyRows}) usano
+ * l'ordine del chunk: cella all'indice {@code (x * sizeY + y) * sizeZ + z}.
+ *
+ * <p>
+ * Le scritture ({@link #set}) vanno fatte da un solo thread; le letture da
+ * altri thread (mesh sui worker) sono sicure: quando una sezione cambia
+ * formato viene sostituita da un nuovo oggetto, quindi un lettore vede al
+ * peggio il valore vecchio di una cella, mai una palette incoerente.
+ *
+ * <p>
+ * Gli array degli indici vengono presi da un {@link ChunkPool} e gli si
+ * restituiscono con {@link #release()} quando lo storage non serve più.
+ */
+public final class BlockStorage {
+
+    /** Lato di una sezione, in blocchi. */
+    public static final int SIZE = 16;
+
+    private static final int SHIFT = 4; // log2(SIZE)
+    private static final int MASK = SIZE - 1;
+    private static final int CELLS = SIZE * SIZE * SIZE;
+
+    /** Sezioni uniformi condivise, una per id. */
+    private static final Section[] UNIFORM = new Section[BlockType.values().length + 1];
+
+    static {
+        for (int id = 0; id < UNIFORM.length; id++)
+            UNIFORM[id] = new Section(0, new byte[] { (byte) id }, null);
+    }
+
+    public final int sizeX, sizeY, sizeZ;
+    private final int countX, countY, countZ;
+    private final Section[] sections;
+    private final ChunkPool pool;
+
+    /** Chunk vuoto: tutte le sezioni sono aria, nessun array allocato. */
+    public BlockStorage(int sx, int sy, int sz) {
+        this(sx, sy, sz, ChunkPool.NONE);
+    }
+
+    /** Chunk vuoto che prende gli array delle sezioni da {@code pool}. */
+    public BlockStorage(int sx, int sy, int sz, ChunkPool pool) {
+        this.pool = pool;
+        this.sizeX = sx;
+        this.sizeY = sy;
+        this.sizeZ = sz;
+        this.countX = (sx + MASK) >> SHIFT;
+        this.countY = (sy + MASK) >> SHIFT;
+        this.countZ = (sz + MASK) >> SHIFT;
+        this.sections = new Section[countX * countY * countZ];
+        Arrays.fill(sections, UNIFORM[BlockType.AIR]);
+    }
+
+    /** Costruisce lo storage da un array piatto di id nell'ordine del chunk. */
+    public static BlockStorage fromIds(int sx, int sy, int sz, byte[] ids) {
+        return fromIds(sx, sy, sz, ids, ChunkPool.NONE);
+    }
+
+    /** Come {@link #fromIds(int, int, int, byte[])}, con gli array presi da {@code pool}. */
+    public static BlockStorage fromIds(int sx, int sy, int sz, byte[] ids, ChunkPool pool) {
+        BlockStorage storage = new BlockStorage(sx, sy, sz, pool);
+        byte[] cells = new byte[CELLS];
+        for (int cx = 0; cx < storage.countX; cx++) {
+            for (int cy = 0; cy < storage.countY; cy++) {
+                for (int cz = 0; cz < storage.countZ; cz++) {
+                    storage.gather(ids, cx, cy, cz, cells);
+                    storage.sections[storage.sectionIndex(cx, cy, cz)] = Section.pack(cells, pool);
+                }
+            }
+        }
+        return storage;
+    }
+
+    /** Copia le celle della sezione {@code (cx, cy, cz)} da un array piatto (fuori dal chunk: aria). */
+    private void gather(byte[] ids, int cx, int cy, int cz, byte[] cells) {
+        int x0 = cx << SHIFT, y0 = cy << SHIFT, z0 = cz << SHIFT;
+        int i = 0;
+        for (int x = x0; x < x0 + SIZE; x++) {
+            for (int y = y0; y < y0 + SIZE; y++) {
+                if (x >= sizeX || y >= sizeY) {
+                    Arrays.fill(cells, i, i + SIZE, BlockType.AIR);
+                    i += SIZE;
+                    continue;
+                }
+                int from = (x * sizeY + y) * sizeZ + z0;
+                int len = Math.min(SIZE, sizeZ - z0);
+                System.arraycopy(ids, from, cells, i, len);
+                Arrays.fill(cells, i + len, i + SIZE, BlockType.AIR);
+                i += SIZE;
+            }
+        }
+    }
+
+    private int sectionIndex(int cx, int cy, int cz) {
+        return (cx * countY + cy) * countZ + cz;
+    }
+
+    private static int cellIndex(int x, int y, int z) {
+        return ((x & MASK) << (2 * SHIFT)) | ((y & MASK) << SHIFT) | (z & MASK);
+    }
+
+    /** Id della cella; le coordinate devono essere dentro il chunk. */
+    public byte get(int x, int y, int z) {
+        return sections[sectionIndex(x >> SHIFT, y >> SHIFT, z >> SHIFT)].get(cellIndex(x, y, z));
+    }
+
+    /** Scrive l'id della cella; le coordinate devono essere dentro il chunk. */
+    public void set(int x, int y, int z, byte id) {
+        int s = sectionIndex(x >> SHIFT, y >> SHIFT, z >> SHIFT);
+        Section section = sections[s];
+        Section updated = section.set(cellIndex(x, y, z), id, pool);
+        if (updated != section)
+            sections[s] = updated;
+    }
+
+    /**
+     * Scrive in {@code dst} (nell'ordine del chunk, alle posizioni naturali) le
+     * celle con {@code y0 <= y < y1}; il resto di {@code dst} non viene toccato.
+     */
+    public void copyRows(int y0, int y1, byte[] dst) {
+        for (int cx = 0; cx < countX; cx++) {
+            for (int cy = y0 >> SHIFT; cy <= (y1 - 1) >> SHIFT && cy < countY; cy++) {
+                for (int cz = 0; cz < countZ; cz++) {
+                    Section section = sections[sectionIndex(cx, cy, cz)];
+                    int x0 = cx << SHIFT, sy0 = cy << SHIFT, z0 = cz << SHIFT;
+                    int xEnd = Math.min(x0 + SIZE, sizeX), zLen = Math.min(SIZE, sizeZ - z0);
+                    int yFrom = Math.max(y0, sy0), yTo = Math.min(y1, Math.min(sy0 + SIZE, sizeY));
+                    for (int x = x0; x < xEnd; x++) {
+                        for (int y = yFrom; y < yTo; y++)
+                            section.copyRow(cellIndex(x, y, 0), dst, (x * sizeY + y) * sizeZ + z0, zLen);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Copia piatta di tutti gli id, nell'ordine del chunk. */
+    public byte[] toIds() {
+        byte[] ids = new byte[sizeX * sizeY * sizeZ];
+        copyRows(0, sizeY, ids);
+        return ids;
+    }
+
+    /** {@code true} se tutte le celle con {@code y0 <= y < y1} sono aria. */
+    public boolean isAir(int y0, int y1) {
+        for (int cx = 0; cx < countX; cx++) {
+            for (int cy = y0 >> SHIFT; cy <= (y1 - 1) >> SHIFT && cy < countY; cy++) {
+                for (int cz = 0; cz < countZ; cz++) {
+                    if (sections[sectionIndex(cx, cy, cz)] != UNIFORM[BlockType.AIR])
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Restituisce al pool gli array delle sezioni e riporta lo storage a tutta
+     * aria. Solo quando nessun altro thread può più leggerlo (mesh comprese).
+     */
+    public void release() {
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i].data != null)
+                pool.release(sections[i].data);
+            sections[i] = UNIFORM[BlockType.AIR];
+        }
+    }
+
+    /** Numero di sezioni con un solo id (senza array). */
+    public int uniformSections() {
+        int n = 0;
+        for (Section section : sections) {
+            if (section.bits == 0)
+                n++;
+        }
+        return n;
+    }
+
+    public int sectionCount() {
+        return sections.length;
+    }
+
+    /** Byte occupati da palette e indici (stima, escluse le intestazioni degli oggetti). */
+    public long dataBytes() {
+        long bytes = 0;
+        for (Section section : sections) {
+            if (section.bits != 0)
+                bytes += section.palette.length + (long) section.data.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Sezione
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Sezione con palette. {@code bits} e i due array non cambiano mai: se la
+     * palette si riempie {@link #set} restituisce una nuova sezione più larga.
+     * Con {@code bits == 0} la sezione è uniforme ({@code palette[0]}).
+     */
+    private static final class Section {
+        final int bits;
+        /** Id per indice, capacità {@code 1 << bits}; le voci oltre {@code size} sono libere. */
+        final byte[] palette;
+        final long[] data;
+        /** Voci per parola = {@code 1 << wordShift}; {@code bitShift} = log2(bits). */
+        private final int wordShift, bitShift, valueMask;
+        private int size;
+
+        /** @param data indici azzerati, {@code CELLS * bits / 64} parole ({@code null} se uniforme) */
+        Section(int bits, byte[] palette, long[] data) {
+            this.bits = bits;
+            this.palette = palette;
+            this.data = data;
+            this.size = bits == 0 ? 1 : 0;
+            this.bitShift = Integer.numberOfTrailingZeros(Math.max(bits, 1));
+            this.wordShift = 6 - bitShift;
+            this.valueMask = (1 << bits) - 1;
+        }
+
+        /** Sezione compatta per le celle date (uniforme se c'è un solo id). */
+        static Section pack(byte[] cells, ChunkPool pool) {
+            long seen = 0;
+            for (byte id : cells)
+                seen |= 1L << id;
+            int count = Long.bitCount(seen);
+            if (count == 1)
+                return UNIFORM[Long.numberOfTrailingZeros(seen)];
+
+            int bits = bitsFor(count);
+            Section section = new Section(bits, new byte[1 << bits], pool.longs(words(bits)));
+            int[] index = new int[Long.SIZE];
+            for (int id = 0; id < Long.SIZE; id++) {
+                if ((seen & (1L << id)) != 0) {
+                    index[id] = section.size;
+                    section.palette[section.size++] = (byte) id;
+                }
+            }
+            for (int i = 0; i < CELLS; i++)
+                section.write(i, index[cells[i]]);
+            return section;
+        }
+
+        byte get(int i) {
+            return bits == 0 ? palette[0] : palette[indexAt(i)];
+        }
+
+        /** @return questa sezione, oppure quella che la sostituisce */
+        Section set(int i, byte id, ChunkPool pool) {
+            if (get(i) == id)
+                return this;
+            int k = indexOf(id);
+            if (k < 0) {
+                if (size == palette.length)
+                    return grow(pool).set(i, id, pool);
+                k = size;
+                palette[size++] = id;
+            }
+            write(i, k);
+            return this;
+        }
+
+        private int indexOf(byte id) {
+            for (int k = 0; k < size; k++) {
+                if (palette[k] == id)
+                    return k;
+            }
+            return -1;
+        }
+
+        private int indexAt(int i) {
+            int shift = (i & ((1 << wordShift) - 1)) << bitShift;
+            return (int) (data[i >> wordShift] >>> shift) & valueMask;
+        }
+
+        private void write(int i, int k) {
+            int shift = (i & ((1 << wordShift) - 1)) << bitShift;
+            int w = i >> wordShift;
+            data[w] = (data[w] & ~((long) valueMask << shift)) | ((long) k << shift);
+        }
+
+        /**
+         * Copia con il doppio dei bit per voce (da uniforme: 1 bit). L'array
+         * vecchio non torna al pool: un worker potrebbe ancora leggerlo.
+         */
+        private Section grow(ChunkPool pool) {
+            int newBits = bits == 0 ? 1 : bits * 2;
+            Section wider = new Section(newBits, Arrays.copyOf(palette, 1 << newBits), pool.longs(words(newBits)));
+            wider.size = size;
+            if (bits != 0) {
+                for (int i = 0; i < CELLS; i++)
+                    wider.write(i, indexAt(i));
+            } // da uniforme tutte le celle hanno indice 0, già a zero
+            return wider;
+        }
+
+        /** Copia {@code len} celle consecutive (lungo z) da {@code from} in {@code dst[off]}. */
+        void copyRow(int from, byte[] dst, int off, int len) {
+            if (bits == 0) {
+                Arrays.fill(dst, off, off + len, palette[0]);
+                return;
+            }
+            int perWord = 1 << wordShift;
+            for (int k = 0, i = from; k < len;) {
+                int inWord = i & (perWord - 1);
+                long word = data[i >> wordShift] >>> (inWord << bitShift);
+                int n = Math.min(len - k, perWord - inWord);
+                for (int j = 0; j < n; j++, word >>>= bits)
+                    dst[off + k + j] = palette[(int) word & valueMask];
+                k += n;
+                i += n;
+            }
+        }
+
+        /** Parole di {@code data} per una sezione a {@code bits} bit per cella. */
+        static int words(int bits) {
+            return CELLS * bits / Long.SIZE;
+        }
+
+        private static int bitsFor(int paletteSize) {
+            int bits = 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+            return bits <= 1 ? 1 : bits <= 2 ? 2 : bits <= 4 ? 4 : 8;
+        }
+    }
+}
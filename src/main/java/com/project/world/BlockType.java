@@ -26,6 +26,11 @@ public enum BlockType {
     PLANKS(new UV(24, 12)),
     BRICK(new UV(23, 3));
 
+    /** Id dell'aria negli array di blocchi ({@code byte}, 0 = aria, ordinale + 1 altrimenti). */
+    public static final byte AIR = 0;
+
+    private static final BlockType[] VALUES = values();
+
     private final Map<Direction, UV> faceUVs = new EnumMap<>(Direction.class);
 
     BlockType(UV allFaces) {
@@ -43,6 +48,16 @@ public enum BlockType {
         }
     }
 
+    /** Id compatto del tipo, {@link #AIR} per {@code null}. */
+    public static byte toId(BlockType type) {
+        return type == null ? AIR : (byte) (type.ordinal() + 1);
+    }
+
+    /** Tipo corrispondente all'id, {@code null} per l'aria. */
+    public static BlockType fromId(int id) {
+        return id == AIR ? null : VALUES[id - 1];
+    }
+
     public UV getUV(Direction dir) {
         return faceUVs.get(dir);
     }
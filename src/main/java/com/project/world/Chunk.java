@@ -1,102 +1,147 @@
 package com.project.world;
 
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
-import static org.lwjgl.opengl.GL13.*;
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.*;
-
-import org.joml.Vector3f;
-import org.joml.Matrix4f;
-import org.lwjgl.BufferUtils;
-
 import com.project.Main;
-import com.project.graphics.Camera;
 import com.project.math.OpenSimplex2F;
+import com.project.world.storage.ChunkCodec;
 
-import java.awt.image.BufferedImage;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-
-import javax.imageio.ImageIO;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chunk di blocchi: nel mondo un cubo di 64×64×64, impilato con gli altri
+ * della stessa colonna e caricato indipendentemente da loro.
+ *
+ * <p>
+ * La creazione è divisa in due fasi: blocchi e mesh (generazione o
+ * decodifica, poi {@link #buildMesh()}) sono solo CPU e possono girare su un
+ * thread qualsiasi; il thread di rendering consegna le mesh al
+ * {@link RenderBackend} in {@link #uploadMesh}. Finché la mesh non è caricata il chunk non viene
+ * disegnato, ma i suoi blocchi sono già validi per collisioni e raycast.
+ *
+ * <p>
+ * La mesh è divisa in sezioni alte {@value ChunkSection#HEIGHT} blocchi, ognuna
+ * con i propri buffer: aggiungere o rimuovere un blocco ricostruisce solo la
+ * sezione che lo contiene, più quella adiacente se il blocco è sul confine.
+ *
+ * <p>
+ * I chunk caricati sono collegati ai vicini sui sei lati ({@link #link}): la mesh non
+ * disegna le facce del bordo coperte da un blocco del chunk accanto. La mesh
+ * costruita dal worker non conosce i vicini; il mondo la fa ricostruire quando
+ * l'insieme dei vicini collegati cambia ({@link #needsBorderRemesh()}).
+ *
+ * <p>
+ * Array dei blocchi e mesh vengono da un {@link ChunkPool}: quando il chunk
+ * esce dalla distanza di vista {@link #cleanup()} restituisce le mesh e
+ * {@link #recycle()}, appena nessun worker lo legge più, gli array.
+ */
 public class Chunk {
-    private final int vao, vbo;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    /** Altezza su cui è tarato il generatore (mare, neve, minerali): sopra c'è solo cielo. */
+    public static final int TERRAIN_HEIGHT = 128;
+    /** Un generatore di rumore per seme: è immutabile, lo condividono tutti i chunk. */
+    private static final ConcurrentHashMap<Long, OpenSimplex2F> NOISE = new ConcurrentHashMap<>();
+
     final int sizeX, sizeY, sizeZ;
-    private int vertexCount;
+    private final ChunkSection[] sections;
+    /** Chunk confinanti caricati, per {@code Direction.ordinal()} (solo thread di rendering). */
+    private final Chunk[] neighbours = new Chunk[DIRECTIONS.length];
+    /** Vicini (bit per {@code Direction.ordinal()}) di cui tiene conto la mesh completa corrente. */
+    private int meshedNeighbours;
+    /** Cresce quando una modifica ricostruisce delle sezioni: invalida le mesh calcolate prima. */
+    private int meshVersion;
+    /** Mesh tolta dalla GPU con {@link #dropMesh()}: il chunk resta solo come blocchi. */
+    private boolean meshDropped;
     private int offsetX, offsetY, offsetZ;
-    private final BlockType[][][] blockTypes;
+    /**
+     * Id dei blocchi ({@link BlockType#toId}, 0 = aria) in sezioni di 16³ con
+     * palette: le sezioni di sola aria (il cielo) o di un solo blocco non
+     * occupano array. Le copie piatte ({@link #snapshot()}) usano l'ordine di
+     * {@link ChunkCodec.Blocks}: cella all'indice {@code (x * sizeY + y) * sizeZ + z}.
+     */
+    private final BlockStorage blocks;
+    /** Quote di cima e suolo per colonna, aggiornate a ogni blocco messo o tolto. */
+    private final Heightmaps heights;
+    /** Un bit per cella piena, per le query di collisione su volumi. */
+    private final Occupancy occupancy;
+    private final ChunkPool pool;
+    /** Backend che ha ricevuto le mesh, {@code null} finché non ce ne sono (solo thread di rendering). */
+    private RenderBackend backend;
     private final OpenSimplex2F noise;
     private final Random random = new Random(4444);
-    private final int textureID;
-    private boolean dirty = false;
+    /** Numero di modifiche: cresce a ogni blocco aggiunto/rimosso (solo thread di rendering). */
+    private volatile int modCount = 0;
+    /** modCount dell'ultima copia scritta con successo (aggiornato dai thread di I/O). */
+    private final AtomicInteger savedModCount = new AtomicInteger();
 
     // --- getter ---
     public boolean isDirty() {
-        return dirty;
+        return modCount != savedModCount.get();
     }
 
     // --- marca il chunk come modificato ---
     private void markDirty() {
-        dirty = true;
+        modCount++;
     }
 
-    public Chunk(int shaderProgram, int sx, int sy, int sz) {
+    /** Versione corrente dei blocchi, da associare a una copia per il salvataggio. */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Registra che la copia con versione {@code version} è su disco. Il chunk
+     * torna pulito solo se nel frattempo non è stato modificato di nuovo.
+     */
+    public void markSaved(int version) {
+        savedModCount.accumulateAndGet(version, Math::max);
+    }
+
+    public Chunk(int sx, int sy, int sz) {
+        this(sx, sy, sz, ChunkPool.NONE);
+    }
+
+    /** Chunk vuoto con array e buffer presi da {@code pool}. */
+    public Chunk(int sx, int sy, int sz, ChunkPool pool) {
+        this(sx, sy, sz, new BlockStorage(sx, sy, sz, pool), new Heightmaps(sx, sy, sz, pool),
+                new Occupancy(sx, sy, sz, pool), pool);
+    }
+
+    private Chunk(int sx, int sy, int sz, BlockStorage blocks, Heightmaps heights,
+            Occupancy occupancy, ChunkPool pool) {
         this.sizeX = sx;
         this.sizeY = sy;
         this.sizeZ = sz;
-        blockTypes = new BlockType[sizeX][sizeY][sizeZ];
-        noise = new OpenSimplex2F(Main.seed);
-
-        vao = glGenVertexArrays();
-        vbo = glGenBuffers();
-        textureID = glGenTextures();
-        loadTexture("/textures/25w10a_blocks.png-atlas.png");
-    }
-
-    private void loadTexture(String path) {
-        glBindTexture(GL_TEXTURE_2D, textureID);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-
-        try (InputStream is = getClass().getResourceAsStream(path)) {
-            if (is == null)
-                throw new RuntimeException("Texture non trovata: " + path);
-            BufferedImage img = ImageIO.read(is);
-            int w = img.getWidth(), h = img.getHeight();
-            int[] pixels = new int[w * h];
-            img.getRGB(0, 0, w, h, pixels, 0, w);
-
-            ByteBuffer buf = BufferUtils.createByteBuffer(w * h * 4);
-            for (int y = h - 1; y >= 0; y--) {
-                for (int x = 0; x < w; x++) {
-                    int p = pixels[y * w + x];
-                    buf.put((byte) ((p >> 16) & 0xFF));
-                    buf.put((byte) ((p >> 8) & 0xFF));
-                    buf.put((byte) (p & 0xFF));
-                    buf.put((byte) ((p >> 24) & 0xFF));
-                }
-            }
-            buf.flip();
-            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, w, h, 0, GL_RGBA, GL_UNSIGNED_BYTE, buf);
-            glGenerateMipmap(GL_TEXTURE_2D);
-        } catch (Exception e) {
-            throw new RuntimeException("Errore caricamento texture: " + path, e);
-        }
+        this.blocks = blocks;
+        this.heights = heights;
+        this.occupancy = occupancy;
+        this.pool = pool;
+        noise = NOISE.computeIfAbsent((long) Main.seed, OpenSimplex2F::new);
+        sections = new ChunkSection[ChunkSection.countFor(sy)];
+        for (int i = 0; i < sections.length; i++)
+            sections[i] = new ChunkSection(i * ChunkSection.HEIGHT, Math.min(sy, (i + 1) * ChunkSection.HEIGHT),
+                    pool);
+    }
+
+    /** Tipo nella cella (coordinate già verificate), {@code null} per l'aria. */
+    private BlockType get(int x, int y, int z) {
+        return BlockType.fromId(blocks.get(x, y, z));
+    }
+
+    private void set(int x, int y, int z, BlockType type) {
+        blocks.set(x, y, z, BlockType.toId(type));
+        occupancy.set(x, y, z, type != null);
+    }
+
+    /** Come {@link #set}, aggiornando le heightmap (per l'aria usare {@link Heightmaps#onRemoved}). */
+    private void place(int x, int y, int z, BlockType type) {
+        byte id = BlockType.toId(type);
+        blocks.set(x, y, z, id);
+        occupancy.set(x, y, z, id != BlockType.AIR);
+        if (id != BlockType.AIR)
+            heights.onPlaced(x, y, z, id);
     }
 
     public void setWorldOffset(int x, int y, int z) {
@@ -105,6 +150,19 @@ public class Chunk {
         this.offsetZ = z;
     }
 
+    /** Origine del chunk in coordinate mondo. */
+    int offsetX() {
+        return offsetX;
+    }
+
+    int offsetY() {
+        return offsetY;
+    }
+
+    int offsetZ() {
+        return offsetZ;
+    }
+
     private double lerp(double a, double b, double t) {
         return a + t * (b - a);
     }
@@ -114,15 +172,32 @@ public class Chunk {
         return t * t * (3 - 2 * t);
     }
 
+    /**
+     * Genera i blocchi del chunk nella sua posizione nel mondo
+     * ({@link #setWorldOffset}): il terreno è una funzione delle coordinate
+     * mondo, quindi i cubi impilati di una colonna si raccordano senza salti.
+     *
+     * <p>
+     * Alberi e vene di minerale vengono tracciati per l'intera colonna di
+     * {@value #TERRAIN_HEIGHT} blocchi, consumando sempre la stessa sequenza
+     * casuale, e ogni chunk scrive solo le celle che gli appartengono: il mondo
+     * è identico a quello generato per colonne intere. Sotto quota 0 e sopra
+     * {@value #TERRAIN_HEIGHT} c'è solo aria.
+     */
     public void generateTerrain() {
+        if (offsetY >= TERRAIN_HEIGHT || offsetY + sizeY <= 0) {
+            buildMesh(); // cielo o sottosuolo vuoto: niente rumore né sequenza casuale
+            return;
+        }
+
         /* --- quote di riferimento --- */
-        final int SEA_LEVEL = (int) (sizeY * 0.20); // livello mare
+        final int SEA_LEVEL = (int) (TERRAIN_HEIGHT * 0.20); // livello mare
         final int SAND_END = SEA_LEVEL + 2; // fine transizione spiaggia
-        final int SNOW_START = (int) (sizeY * 0.60); // inizio transizione neve
-        final int SNOW_END = (int) (sizeY * 0.80); // neve certa
+        final int SNOW_START = (int) (TERRAIN_HEIGHT * 0.60); // inizio transizione neve
+        final int SNOW_END = (int) (TERRAIN_HEIGHT * 0.80); // neve certa
 
         int[][] heightMap = new int[sizeX][sizeZ];
-        double[][] biomeMap = new double[sizeX][sizeZ];
+        BlockType[][] surfaceMap = new BlockType[sizeX][sizeZ];
 
         /* ---------- altezza per colonna ---------- */
         for (int x = 0; x < sizeX; x++) {
@@ -132,7 +207,6 @@ public class Chunk {
 
                 double biomeNoise = (noise.noise2(wx * 0.002, wz * 0.002) + 1) * 0.5;
                 double detailNoise = noise.noise2(wx * 0.04, wz * 0.04) * 0.5;
-                biomeMap[x][z] = biomeNoise;
 
                 /* profili altitudine di massima */
                 double plain = SEA_LEVEL + 4 + detailNoise * 2;
@@ -147,58 +221,50 @@ public class Chunk {
                 else if (biomeNoise < 0.80)
                     hD = lerp(hill, mount, smoothstep(0.55, 0.80, biomeNoise));
                 else
-                    hD = lerp(mount, sizeY - 6, smoothstep(0.80, 1.00, biomeNoise));
+                    hD = lerp(mount, TERRAIN_HEIGHT - 6, smoothstep(0.80, 1.00, biomeNoise));
 
-                int h = Math.max(0, Math.min((int) hD, sizeY - 1));
+                int h = Math.max(0, Math.min((int) hD, TERRAIN_HEIGHT - 1));
                 heightMap[x][z] = h;
 
-                /* ---------- riempimento blocchi ---------- */
-                for (int y = 0; y < sizeY; y++) {
-
-                    /* aria / acqua sopra la superficie */
-                    if (y > h) {
-                        blockTypes[x][y][z] = (y <= SEA_LEVEL) ? BlockType.WATER : null;
-                        continue;
+                /* --- blocco di superficie (sabbia sotto il mare, neve graduale in quota) --- */
+                BlockType surface;
+                if (h <= SEA_LEVEL) {
+                    surface = BlockType.SAND;
+                } else if (h >= SNOW_START) {
+                    if (h >= SNOW_END) {
+                        surface = BlockType.SNOW;
+                    } else {
+                        double t = (double) (h - SNOW_START) / (SNOW_END - SNOW_START);
+                        double p = t * t;
+                        surface = (random.nextDouble() < p) ? BlockType.SNOW : BlockType.GRASS;
                     }
+                } else {
+                    surface = BlockType.GRASS;
+                }
+                surfaceMap[x][z] = surface;
 
-                    /* fondali sotto il livello del mare */
-                    if (h < SEA_LEVEL) {
-                        blockTypes[x][y][z] = BlockType.SAND;
-                        continue;
-                    }
+                // colonna piena da 0 alla cima: in questo chunk la cima è la parte che vi cade
+                int top = Math.min(Math.max(h, SEA_LEVEL), TERRAIN_HEIGHT - 1) + 1;
+                heights.setColumn(x, z, Math.max(0, Math.min(top - offsetY, sizeY)),
+                        Math.max(0, Math.min(h + 1 - offsetY, sizeY)));
 
-                    /* --- definizione blocco di superficie --- */
-                    if (y == h) {
-                        // --- fascia sabbia graduale ---
-                        if (h <= SEA_LEVEL) {
-                            blockTypes[x][y][z] = BlockType.SAND; // sempre sabbia sotto il mare
-                        } else if (h <= SEA_LEVEL) {
-                            // probabilità sabbia decrescente man mano che ci si allontana dal mare
-                            double t = (double) (h - SEA_LEVEL) / 6.0; // t ∈ [0,1]
-                            double p = 1.0 - t * t; // curva decrescente
-                            blockTypes[x][y][z] = (random.nextDouble() < p) ? BlockType.SAND : BlockType.GRASS;
-                        }
-                        // --- fascia neve graduale ---
-                        else if (h >= SNOW_START) {
-                            if (h >= SNOW_END) {
-                                blockTypes[x][y][z] = BlockType.SNOW;
-                            } else {
-                                double t = (double) (h - SNOW_START) / (SNOW_END - SNOW_START);
-                                double p = t * t;
-                                blockTypes[x][y][z] = (random.nextDouble() < p) ? BlockType.SNOW : BlockType.GRASS;
-                            }
-                        }
-                        // --- fascia normale ---
-                        else {
-                            blockTypes[x][y][z] = BlockType.GRASS;
-                        }
-                    }
-                    /* sottosuolo immediato: terra, poi pietra */
-                    else if (y >= h - 3) {
-                        blockTypes[x][y][z] = BlockType.DIRT;
-                    } else {
-                        blockTypes[x][y][z] = BlockType.STONE;
-                    }
+                /* ---------- riempimento blocchi ---------- */
+                for (int ly = 0; ly < sizeY; ly++) {
+                    int y = ly + offsetY;
+                    BlockType type;
+                    if (y < 0)
+                        type = null; // sotto il fondo del mondo
+                    else if (y > h)
+                        type = (y <= SEA_LEVEL) ? BlockType.WATER : null; // aria / acqua sopra la superficie
+                    else if (h < SEA_LEVEL)
+                        type = BlockType.SAND; // fondali sotto il livello del mare
+                    else if (y == h)
+                        type = surface;
+                    else if (y >= h - 3)
+                        type = BlockType.DIRT; // sottosuolo immediato: terra, poi pietra
+                    else
+                        type = BlockType.STONE;
+                    set(x, ly, z, type);
                 }
             }
         }
@@ -213,34 +279,39 @@ public class Chunk {
             int h = heightMap[x][z];
 
             if (h > SEA_LEVEL + 2 && h < SNOW_START - 4 && h > SAND_END + 1 &&
-                    blockTypes[x][h][z] == BlockType.GRASS) {
+                    surfaceMap[x][z] == BlockType.GRASS) {
                 generateTree(x, h + 1, z);
             }
         }
 
 
-        final int IRON_MIN_Y = (int) (sizeY * 0.10);
-        final int IRON_MAX_Y = (int) (sizeY * 0.64);
-        final int COAL_MIN_Y = (int) (sizeY * 0.15);
-        final int COAL_MAX_Y = sizeY - 1;
-        final int DIAMOND_MIN_Y = (int) (sizeY * 0.0);
-        final int DIAMOND_MAX_Y = (int) (sizeY * 0.10);
+        final int IRON_MIN_Y = (int) (TERRAIN_HEIGHT * 0.10);
+        final int IRON_MAX_Y = (int) (TERRAIN_HEIGHT * 0.64);
+        final int COAL_MIN_Y = (int) (TERRAIN_HEIGHT * 0.15);
+        final int COAL_MAX_Y = TERRAIN_HEIGHT - 1;
+        final int DIAMOND_MIN_Y = (int) (TERRAIN_HEIGHT * 0.0);
+        final int DIAMOND_MAX_Y = (int) (TERRAIN_HEIGHT * 0.10);
 
 
         generateOreVeins(BlockType.IRON_ORE, IRON_MIN_Y, IRON_MAX_Y, 1600, 18);
         generateOreVeins(BlockType.COAL_ORE, COAL_MIN_Y, COAL_MAX_Y, 1550, 22);
         generateOreVeins(BlockType.DIAMOND_ORE, DIAMOND_MIN_Y, DIAMOND_MAX_Y, 200, 22);
 
-        rebuildMesh();
+        buildMesh();
+    }
+
+    /** {@code true} se la quota mondo {@code y} cade in questo chunk. */
+    private boolean containsY(int y) {
+        return y >= offsetY && y < offsetY + sizeY;
     }
 
     /**
      * Genera vene di un minerale tramite walk 3D casuale.
      * 
      * @param ore    tipo di blocco minerale
-     * @param minY   livello inferiore
-     * @param maxY   livello superiore
-     * @param veins  numero di vene per chunk
+     * @param minY   livello inferiore (quota mondo)
+     * @param maxY   livello superiore (quota mondo)
+     * @param veins  numero di vene per colonna
      * @param length lunghezza massima di ogni vena
      */
     private void generateOreVeins(BlockType ore, int minY, int maxY, int veins, int length) {
@@ -252,8 +323,8 @@ public class Chunk {
             for (int j = 0; j < length; j++) {
                 if (x < 0 || x >= sizeX || y < minY || y > maxY || z < 0 || z >= sizeZ)
                     break;
-                if (blockTypes[x][y][z] == BlockType.STONE) {
-                    blockTypes[x][y][z] = ore;
+                if (containsY(y) && get(x, y - offsetY, z) == BlockType.STONE) {
+                    set(x, y - offsetY, z, ore);
                 }
                 // passo casuale
                 x += random.nextInt(3) - 1;
@@ -267,6 +338,7 @@ public class Chunk {
         return isSolid(x, y, z);
     }
 
+    /** Albero con la base del tronco in {@code trunkBaseY} (quota mondo). */
     private void generateTree(int trunkX, int trunkBaseY, int trunkZ) {
         int treeType = random.nextInt(3);
         int trunkHeight, leafRadius;
@@ -283,15 +355,15 @@ public class Chunk {
         }
 
         for (int y = trunkBaseY; y < trunkBaseY + trunkHeight; y++) {
-            if (y < sizeY)
-                blockTypes[trunkX][y][trunkZ] = BlockType.WOOD;
+            if (y < TERRAIN_HEIGHT && containsY(y))
+                place(trunkX, y - offsetY, trunkZ, BlockType.WOOD);
         }
 
         int leafStartY = trunkBaseY + trunkHeight - 2;
         int leafEndY = trunkBaseY + trunkHeight + 1;
 
         for (int ly = leafStartY; ly <= leafEndY; ly++) {
-            if (ly < 0 || ly >= sizeY)
+            if (ly < 0 || ly >= TERRAIN_HEIGHT)
                 continue;
             int currentRadius = leafRadius;
             if (ly == leafStartY)
@@ -307,13 +379,14 @@ public class Chunk {
 
                     float density = (distance < currentRadius / 2f) ? 1.0f : 0.8f;
 
+                    // il numero casuale si estrae anche per le celle di altri chunk
                     if (random.nextFloat() < density) {
                         int x = trunkX + dx;
                         int z = trunkZ + dz;
                         if (x >= 0 && x < sizeX && z >= 0 && z < sizeZ &&
                                 (dx != 0 || dz != 0 || ly > leafEndY - 1) &&
-                                blockTypes[x][ly][z] == null) {
-                            blockTypes[x][ly][z] = BlockType.LEAVES;
+                                containsY(ly) && get(x, ly - offsetY, z) == null) {
+                            place(x, ly - offsetY, z, BlockType.LEAVES);
                         }
                     }
                 }
@@ -321,77 +394,239 @@ public class Chunk {
         }
     }
 
-    private void rebuildMesh() {
-        List<Float> data = new ArrayList<>();
-        for (int x = 0; x < sizeX; x++) {
-            for (int y = 0; y < sizeY; y++) {
-                for (int z = 0; z < sizeZ; z++) {
-                    BlockType type = blockTypes[x][y][z];
-                    if (type == null)
-                        continue;
-                    for (Direction dir : Direction.values()) {
-                        int nx = x + dir.dx, ny = y + dir.dy, nz = z + dir.dz;
-                        BlockType neigh = (nx >= 0 && nx < sizeX && ny >= 0 && ny < sizeY && nz >= 0 && nz < sizeZ)
-                                ? blockTypes[nx][ny][nz]
-                                : null;
-                        if (neigh == null) {
-                            Cube.addFace(data, new Vector3f(x, y, z), dir, type);
-                        }
-                    }
-                }
+    /**
+     * Ricostruisce e carica subito le sezioni toccate dalla modifica del
+     * blocco {@code (x, y, z)} (solo thread di rendering); una mesh che non
+     * sta nello spazio delle mesh resta in attesa ({@link #hasPendingMesh()}). Le facce tra due
+     * sezioni dipendono dai blocchi di entrambe, quindi sul confine si
+     * ricostruisce anche la sezione vicina; lo stesso vale per il chunk
+     * confinante (anche sopra o sotto) se il blocco è sul bordo.
+     */
+    private void rebuildMeshAt(int x, int y, int z) {
+        int index = ChunkSection.indexOf(y);
+        rebuildSection(index);
+        ChunkSection section = sections[index];
+        if (y == section.y0 && index > 0)
+            rebuildSection(index - 1);
+        if (y == section.y1 - 1 && index + 1 < sections.length)
+            rebuildSection(index + 1);
+
+        if (x == 0)
+            rebuildNeighbourAt(Direction.WEST, y);
+        if (x == sizeX - 1)
+            rebuildNeighbourAt(Direction.EAST, y);
+        if (z == 0)
+            rebuildNeighbourAt(Direction.NORTH, y);
+        if (z == sizeZ - 1)
+            rebuildNeighbourAt(Direction.SOUTH, y);
+        if (y == 0)
+            rebuildNeighbourAt(Direction.DOWN, sizeY - 1);
+        if (y == sizeY - 1)
+            rebuildNeighbourAt(Direction.UP, 0);
+    }
+
+    /** Chunk confinante sul lato {@code side}, {@code null} se non è caricato (solo thread di rendering). */
+    Chunk neighbour(Direction side) {
+        return neighbours[side.ordinal()];
+    }
+
+    /** Ricostruisce la sezione del vicino che contiene la sua quota {@code y}. */
+    private void rebuildNeighbourAt(Direction side, int y) {
+        Chunk other = neighbours[side.ordinal()];
+        if (other != null)
+            other.rebuildSection(ChunkSection.indexOf(y));
+    }
+
+    private void rebuildSection(int index) {
+        ChunkSection section = sections[index];
+        section.build(blocks, neighbourBlocks());
+        meshVersion++;
+        // altrimenti ci pensa il caricamento del chunk; oltre il budget resta in attesa e disegna la vecchia
+        if (section.isUploaded() && backend.canUpload(section.pendingBytes()))
+            section.upload(backend);
+    }
+
+    /**
+     * {@code true} se una sezione ha vertici ricostruiti non ancora caricati,
+     * ad esempio dopo una modifica quando la memoria video era esaurita: il
+     * chunk va rimesso in coda per {@link #uploadMesh}.
+     */
+    public boolean hasPendingMesh() {
+        for (ChunkSection section : sections)
+            if (section.hasPendingMesh())
+                return true;
+        return false;
+    }
+
+    /**
+     * Costruisce i vertici di tutte le sezioni in attesa di caricamento, come se
+     * il chunk fosse isolato. Non tocca OpenGL: può girare su un thread di lavoro.
+     */
+    void buildMesh() {
+        for (ChunkSection section : sections)
+            section.build(blocks, ChunkMesher.Neighbours.NONE);
+    }
+
+    /**
+     * Vertici di tutte le sezioni con i vicini indicati, senza toccare lo stato
+     * del chunk: è la parte da eseguire su un worker di
+     * {@link #installMesh(int[][], int, int)}.
+     */
+    int[][] meshSections(ChunkMesher.Neighbours around) {
+        int[][] meshes = new int[sections.length][];
+        for (int i = 0; i < sections.length; i++)
+            meshes[i] = sections[i].mesh(blocks, around);
+        return meshes;
+    }
+
+    /**
+     * Adotta le mesh calcolate da {@link #meshSections} (solo thread di
+     * rendering); vanno poi caricate con {@link #uploadMesh}.
+     *
+     * @param neighbours vicini usati per calcolarle (vedi {@link #linkedNeighbours()})
+     * @param version    {@link #getMeshVersion()} al momento della richiesta
+     * @return {@code false} se nel frattempo una modifica le ha rese vecchie
+     */
+    boolean installMesh(int[][] meshes, int neighbours, int version) {
+        if (version != meshVersion)
+            return false;
+        for (int i = 0; i < sections.length; i++)
+            sections[i].setPending(meshes[i]);
+        meshedNeighbours = neighbours;
+        return true;
+    }
+
+    int getMeshVersion() {
+        return meshVersion;
+    }
+
+    /** Collega due chunk confinanti; {@code side} è il lato di questo chunk. */
+    void link(Direction side, Chunk other) {
+        neighbours[side.ordinal()] = other;
+        other.neighbours[side.opposite().ordinal()] = this;
+    }
+
+    /** Scollega il chunk da tutti i vicini (prima di scaricarlo). */
+    void unlink() {
+        for (Direction side : DIRECTIONS) {
+            Chunk other = neighbours[side.ordinal()];
+            if (other != null) {
+                other.neighbours[side.opposite().ordinal()] = null;
+                neighbours[side.ordinal()] = null;
             }
         }
+    }
 
-        FloatBuffer buf = BufferUtils.createFloatBuffer(data.size());
-        data.forEach(buf::put);
-        buf.flip();
-        vertexCount = data.size() / 5; // ora sono 5 componenti per vertice
+    /** Vicini collegati, un bit per {@code Direction.ordinal()}. */
+    int linkedNeighbours() {
+        int mask = 0;
+        for (int i = 0; i < neighbours.length; i++) {
+            if (neighbours[i] != null)
+                mask |= 1 << i;
+        }
+        return mask;
+    }
 
-        glBindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, buf, GL_STATIC_DRAW);
+    /** {@code true} se i vicini collegati non sono quelli usati per la mesh. */
+    boolean needsBorderRemesh() {
+        return linkedNeighbours() != meshedNeighbours;
+    }
 
-        // posizione: 3 float
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 5 * Float.BYTES, 0);
-        glEnableVertexAttribArray(0);
+    /** Blocchi dei vicini collegati, da passare al mesher. */
+    ChunkMesher.Neighbours neighbourBlocks() {
+        return new ChunkMesher.Neighbours(blocksOf(Direction.NORTH), blocksOf(Direction.SOUTH),
+                blocksOf(Direction.EAST), blocksOf(Direction.WEST), blocksOf(Direction.UP), blocksOf(Direction.DOWN));
+    }
 
-        // UV: 2 float
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 5 * Float.BYTES, 3 * Float.BYTES);
-        glEnableVertexAttribArray(1);
+    private BlockStorage blocksOf(Direction side) {
+        Chunk other = neighbours[side.ordinal()];
+        return other == null ? null : other.blocks;
+    }
 
-        // rimuovi completamente l'attributo 2 (AO)
+    /**
+     * Consegna a {@code backend} le sezioni in attesa, creandone le mesh al
+     * primo caricamento. Solo thread di rendering.
+     *
+     * @return {@code false} se non c'era nulla da caricare
+     */
+    public boolean uploadMesh(RenderBackend backend) {
+        if (meshDropped)
+            return false;
+        this.backend = backend;
+        boolean any = false;
+        for (ChunkSection section : sections)
+            any |= section.upload(backend);
+        return any;
     }
 
-    public boolean isInFrustum(Camera cam) {
-        return cam.isAABBInFrustum(
-                new Vector3f(offsetX, offsetY, offsetZ),
-                new Vector3f(offsetX + sizeX, offsetY + sizeY, offsetZ + sizeZ));
+    /** Byte di memoria video che {@link #uploadMesh} aggiungerebbe (negativi se la mesh si riduce). */
+    public long pendingMeshBytes() {
+        long total = 0;
+        for (ChunkSection section : sections)
+            total += section.pendingBytes();
+        return total;
     }
 
-    public void render(int shaderProgram) {
-        int modelLoc = glGetUniformLocation(shaderProgram, "model");
-        Matrix4f model = new Matrix4f().translation(offsetX, offsetY, offsetZ);
-        float[] modelMat = new float[16];
-        model.get(modelMat);
-        glUniformMatrix4fv(modelLoc, false, modelMat);
+    /** {@code true} se la mesh è sulla GPU e il chunk può essere disegnato. */
+    public boolean isUploaded() {
+        return sections[0].isUploaded();
+    }
 
-        glActiveTexture(GL_TEXTURE0);
-        glBindTexture(GL_TEXTURE_2D, textureID);
-        glUniform1i(glGetUniformLocation(shaderProgram, "ourTexture"), 0);
+    int sectionCount() {
+        return sections.length;
+    }
 
-        glBindVertexArray(vao);
-        glDrawArrays(GL_TRIANGLES, 0, vertexCount);
-        glBindVertexArray(0);
+    /** Sezione {@code index}, dal basso; la disegna {@link ChunkCuller} se è nel frustum. */
+    ChunkSection section(int index) {
+        return sections[index];
     }
 
+    /** Libera la mesh e la restituisce al pool. Solo thread di rendering. */
     public void cleanup() {
-        glDeleteBuffers(vbo);
-        glDeleteVertexArrays(vao);
+        for (ChunkSection section : sections)
+            section.cleanup(backend);
+        backend = null;
+    }
+
+    /**
+     * Toglie la mesh dalla GPU ma tiene i blocchi, per un chunk appena uscito
+     * dalla distanza di vista: se ci si torna non va riletto né rigenerato.
+     * Le mesh in costruzione sui worker vengono invalidate.
+     */
+    public void dropMesh() {
+        cleanup();
+        meshDropped = true;
+        meshVersion++;
+    }
+
+    /**
+     * Riporta tra i chunk da disegnare un chunk passato per
+     * {@link #dropMesh()}: la mesh va ricostruita, quindi
+     * {@link #needsBorderRemesh()} diventa vero.
+     */
+    public void restoreMesh() {
+        meshDropped = false;
+        meshedNeighbours = -1;
+    }
+
+    public boolean isMeshDropped() {
+        return meshDropped;
+    }
+
+    /**
+     * Restituisce al pool gli array dei blocchi: dopo la chiamata il chunk non
+     * va più usato. Solo quando nessun thread lo legge più (mesh in corso,
+     * query, copie da salvare già fatte).
+     */
+    public void recycle() {
+        blocks.release();
+        occupancy.release(pool);
+        heights.release(pool);
     }
 
     public boolean isSolid(int x, int y, int z) {
         if (x >= 0 && x < sizeX && y >= 0 && y < sizeY && z >= 0 && z < sizeZ) {
-            return blockTypes[x][y][z] != null;
+            return occupancy.get(x, y, z);
         }
         return false;
     }
@@ -400,9 +635,10 @@ public class Chunk {
         if (!isSolid(x, y, z))
             return false;
         Main.inventory.addItem(type, 1);
-        blockTypes[x][y][z] = null;
+        set(x, y, z, null);
+        heights.onRemoved(blocks, x, y, z);
         markDirty(); // <—
-        rebuildMesh();
+        rebuildMeshAt(x, y, z);
         return true;
     }
 
@@ -410,68 +646,98 @@ public class Chunk {
         if (isSolid(x, y, z))
             return false;
         Main.inventory.removeFromSelected(1);
-        blockTypes[x][y][z] = type;
+        place(x, y, z, type);
         markDirty();
-        rebuildMesh();
+        rebuildMeshAt(x, y, z);
         return true;
     }
 
-    public BlockType getBlockType(int x, int y, int z) {
-        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ)
-            return null;
-        return blockTypes[x][y][z];
+    /**
+     * Quota su cui poggia chi scende dalla colonna {@code (x, z)} partendo da
+     * {@code fromY}: {@code y + 1} del primo blocco pieno incontrato, -1 se nel
+     * chunk non ce n'è (il mondo prosegue nel cubo sotto). Sopra la cima della
+     * colonna (il caso normale) la risposta viene dalla heightmap; solo sotto
+     * una sporgenza si scende cella per cella.
+     */
+    public int getGroundUnder(int x, int fromY, int z) {
+        if (x < 0 || x >= sizeX || z < 0 || z >= sizeZ)
+            return -1;
+        int startY = Math.min(fromY, sizeY - 1);
+        int top = heights.top(x, z);
+        if (top - 1 <= startY)
+            return top == 0 ? -1 : top;
+        for (int y = startY; y >= 0; y--) {
+            if (occupancy.get(x, y, z))
+                return y + 1;
+        }
+        return -1;
     }
 
-    public void save(Path path) throws IOException {
-        // crea le cartelle se mancano
-        Files.createDirectories(path.getParent());
-
-        try (DataOutputStream out = new DataOutputStream(
-                new GZIPOutputStream(Files.newOutputStream(path)))) {
+    /**
+     * {@code true} se almeno un blocco pieno cade nel box di celle (estremi
+     * inclusi, coordinate del chunk); la parte fuori dal chunk non conta.
+     */
+    public boolean isSolidBox(int x0, int y0, int z0, int x1, int y1, int z1) {
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        z0 = Math.max(z0, 0);
+        x1 = Math.min(x1, sizeX - 1);
+        y1 = Math.min(y1, sizeY - 1);
+        z1 = Math.min(z1, sizeZ - 1);
+        if (x0 > x1 || y0 > y1 || z0 > z1)
+            return false;
+        return occupancy.any(x0, y0, z0, x1, y1, z1);
+    }
 
-            // 1-byte firma per futura espansione
-            out.writeByte(1); // versione file
-            out.writeInt(sizeX);
-            out.writeInt(sizeY);
-            out.writeInt(sizeZ);
+    /** Heightmap del chunk (cima e suolo di ogni colonna), solo thread di rendering. */
+    public Heightmaps getHeightmaps() {
+        return heights;
+    }
 
-            for (int x = 0; x < sizeX; x++) {
-                for (int y = 0; y < sizeY; y++) {
-                    for (int z = 0; z < sizeZ; z++) {
-                        BlockType bt = blockTypes[x][y][z];
-                        out.writeByte(bt == null ? -1 : bt.ordinal());
-                    }
-                }
-            }
-        }
-        dirty = false; // ora è in sync con il disco
+    public BlockType getBlockType(int x, int y, int z) {
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ)
+            return null;
+        return get(x, y, z);
     }
 
-    public static Chunk load(int shaderProgram, Path path) throws IOException {
-        try (DataInputStream in = new DataInputStream(
-                new GZIPInputStream(Files.newInputStream(path)))) {
+    /**
+     * Copia immutabile dei blocchi da consegnare ai thread di salvataggio:
+     * le modifiche successive al chunk non la toccano.
+     */
+    public ChunkCodec.Blocks snapshot() {
+        return new ChunkCodec.Blocks(sizeX, sizeY, sizeZ, blocks.toIds(), heights.toArray());
+    }
 
-            int version = in.readByte(); // per eventuali futuri cambi
-            if (version != 1)
-                throw new IOException("Versione file non supportata");
+    /** Ricrea un chunk da un payload in versione 1, 2 o 3 (senza toccare OpenGL). */
+    public static Chunk load(DataInputStream in) throws IOException {
+        return load(in, ChunkPool.NONE);
+    }
 
-            int sx = in.readInt();
-            int sy = in.readInt();
-            int sz = in.readInt();
+    /** Come {@link #load(DataInputStream)}, con array e buffer presi da {@code pool}. */
+    public static Chunk load(DataInputStream in, ChunkPool pool) throws IOException {
+        Chunk c = restore(ChunkCodec.decode(in), pool);
+        c.buildMesh(); // importantissimo! (il caricamento su GPU avviene dopo)
+        return c; // è già sincronizzato
+    }
 
-            Chunk c = new Chunk(shaderProgram, sx, sy, sz);
+    /**
+     * Ricrea un chunk da una copia non ancora scritta su disco (salvataggio
+     * in corso). La copia resta immutabile: il chunk ne compatta gli id in un
+     * suo storage.
+     */
+    public static Chunk fromSnapshot(ChunkCodec.Blocks snapshot, ChunkPool pool) {
+        Chunk c = restore(snapshot, pool);
+        c.buildMesh();
+        return c;
+    }
 
-            for (int x = 0; x < sx; x++) {
-                for (int y = 0; y < sy; y++) {
-                    for (int z = 0; z < sz; z++) {
-                        int id = in.readByte();
-                        c.blockTypes[x][y][z] = (id == -1) ? null : BlockType.values()[id];
-                    }
-                }
-            }
-            c.rebuildMesh(); // importantissimo!
-            c.dirty = false; // è già sincronizzato
-            return c;
-        }
+    /** Chunk con i blocchi della copia; le heightmap si ricalcolano se la copia non le ha (formati vecchi). */
+    private static Chunk restore(ChunkCodec.Blocks b, ChunkPool pool) {
+        BlockStorage storage = BlockStorage.fromIds(b.sizeX(), b.sizeY(), b.sizeZ(), b.ids(), pool);
+        Heightmaps heights = b.heightmaps() != null
+                ? Heightmaps.fromArray(b.sizeX(), b.sizeY(), b.sizeZ(), b.heightmaps(), pool)
+                : Heightmaps.compute(storage, pool);
+        Occupancy occupancy = Occupancy.fromIds(b.sizeX(), b.sizeY(), b.sizeZ(), b.ids(), pool);
+        return new Chunk(b.sizeX(), b.sizeY(), b.sizeZ(), storage, heights, occupancy, pool);
     }
-}
\ No newline at end of file
+}
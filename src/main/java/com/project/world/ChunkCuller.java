@@ -0,0 +1,285 @@
+package com.project.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.project.graphics.Camera;
+
+/**
+ * Frustum culling gerarchico dei chunk caricati: un quadtree sulle colonne
+ * di chunk (x, z), in cui ogni nodo conosce la quota minima e massima dei
+ * chunk che contiene. Un gruppo fuori dal frustum viene scartato con un solo
+ * test, uno tutto dentro viene disegnato senza testarne il contenuto; nei
+ * nodi a cavallo si scende fino ai chunk e poi alle sezioni alte
+ * {@value ChunkSection#HEIGHT} blocchi, così di un chunk si disegnano solo le
+ * sezioni nel frustum.
+ *
+ * <p>
+ * Con l'occlusion culling ({@code -Docclusion=false} per disattivarlo) si
+ * disegnano inoltre solo le sezioni raggiunte da una {@link VisibilityWalk}
+ * partita dalla sezione della camera; se la camera è in un chunk non
+ * caricato si disegna tutto ciò che è nel frustum.
+ *
+ * <p>
+ * Le radici coprono {@code 2^}{@value #LEVELS} colonne per lato e si creano
+ * (e spariscono) con i chunk; i nodi si aggiornano a ogni chunk aggiunto o
+ * tolto. Il disegno non alloca. Solo thread di rendering.
+ */
+public final class ChunkCuller {
+
+    /**
+     * Contatori dall'avvio: gruppi (nodi del quadtree e chunk) e sezioni; le
+     * sezioni raggiunte sono quelle della visita di visibilità, le occluse
+     * quelle non raggiunte (e quindi non testate col frustum).
+     */
+    public record Stats(long frames, long groupsTested, long groupsCulled, long sectionsReached,
+            long sectionsOccluded, long sectionsTested, long sectionsCulled, long sectionsDrawn) {
+
+        @Override
+        public String toString() {
+            double f = Math.max(frames, 1);
+            return String.format("per frame: gruppi testati %.1f (scartati %.1f), sezioni raggiunte %.1f "
+                    + "(occluse %.1f), testate %.1f (scartate %.1f), disegnate %.1f", groupsTested / f,
+                    groupsCulled / f, sectionsReached / f, sectionsOccluded / f, sectionsTested / f,
+                    sectionsCulled / f, sectionsDrawn / f);
+        }
+    }
+
+    /** Occlusion culling attivo all'avvio ({@code -Docclusion=false} per spegnerlo). */
+    static final boolean OCCLUSION = Boolean.parseBoolean(System.getProperty("occlusion", "true"));
+
+    /** Livelli sotto la radice: una radice copre 16×16 colonne. */
+    private static final int LEVELS = 4;
+
+    private static final class Node {
+        final int level, nx, nz;
+        final Node parent;
+        /** Posizione nel padre. */
+        final int slot;
+        /** Quattro figli nei nodi interni, {@code null} nelle foglie. */
+        final Node[] children;
+        /** Chunk della colonna (solo foglie) con la loro quota in chunk. */
+        Chunk[] chunks;
+        int[] chunkY;
+        int count;
+        /** Chunk nel sottoalbero e loro quote minima e massima, in chunk. */
+        int size;
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+
+        Node(int level, int nx, int nz, Node parent, int slot) {
+            this.level = level;
+            this.nx = nx;
+            this.nz = nz;
+            this.parent = parent;
+            this.slot = slot;
+            if (level > 0) {
+                children = new Node[4];
+            } else {
+                children = null;
+                chunks = new Chunk[4];
+                chunkY = new int[4];
+            }
+        }
+
+        /** Ricalcola le quote dai chunk o dai figli. */
+        void updateBounds() {
+            minY = Integer.MAX_VALUE;
+            maxY = Integer.MIN_VALUE;
+            if (children == null) {
+                for (int i = 0; i < count; i++) {
+                    minY = Math.min(minY, chunkY[i]);
+                    maxY = Math.max(maxY, chunkY[i]);
+                }
+            } else {
+                for (Node child : children) {
+                    if (child != null) {
+                        minY = Math.min(minY, child.minY);
+                        maxY = Math.max(maxY, child.maxY);
+                    }
+                }
+            }
+        }
+    }
+
+    private final int chunkSize;
+    private final Map<Long, Node> rootsByKey = new HashMap<>();
+    /** Le stesse radici, in una lista da scorrere senza iteratori. */
+    private final List<Node> roots = new ArrayList<>();
+
+    private final VisibilityWalk walk = new VisibilityWalk();
+    private boolean occlusion = OCCLUSION;
+
+    /** Camera e backend del {@link #render} in corso; {@code walked} se c'è una visita valida. */
+    private Camera cam;
+    private RenderBackend backend;
+    private boolean walked;
+    private long frames, groupsTested, groupsCulled, sectionsReached, sectionsOccluded, sectionsTested,
+            sectionsCulled, sectionsDrawn;
+
+    ChunkCuller(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    private static long rootKey(int rx, int rz) {
+        return ((long) rx << 32) | (rz & 0xFFFFFFFFL);
+    }
+
+    /** Indice del figlio che contiene la colonna, sotto un nodo di livello {@code level}. */
+    private static int slot(int level, int cx, int cz) {
+        return ((cx >> (level - 1)) & 1) | (((cz >> (level - 1)) & 1) << 1);
+    }
+
+    /** Aggiunge il chunk di coordinate (in chunk) {@code cx, cy, cz}. */
+    void add(int cx, int cy, int cz, Chunk chunk) {
+        long key = rootKey(cx >> LEVELS, cz >> LEVELS);
+        Node node = rootsByKey.get(key);
+        if (node == null) {
+            node = new Node(LEVELS, cx >> LEVELS, cz >> LEVELS, null, -1);
+            rootsByKey.put(key, node);
+            roots.add(node);
+        }
+        while (node.level > 0) {
+            int slot = slot(node.level, cx, cz);
+            Node child = node.children[slot];
+            if (child == null) {
+                int level = node.level - 1;
+                child = node.children[slot] = new Node(level, cx >> level, cz >> level, node, slot);
+            }
+            node = child;
+        }
+        if (node.count == node.chunks.length) {
+            node.chunks = Arrays.copyOf(node.chunks, node.count * 2);
+            node.chunkY = Arrays.copyOf(node.chunkY, node.count * 2);
+        }
+        node.chunks[node.count] = chunk;
+        node.chunkY[node.count++] = cy;
+        for (Node n = node; n != null; n = n.parent) {
+            n.size++;
+            n.minY = Math.min(n.minY, cy);
+            n.maxY = Math.max(n.maxY, cy);
+        }
+    }
+
+    /** Toglie il chunk aggiunto con {@link #add}; nulla se non c'è. */
+    void remove(int cx, int cy, int cz, Chunk chunk) {
+        Node node = rootsByKey.get(rootKey(cx >> LEVELS, cz >> LEVELS));
+        while (node != null && node.level > 0)
+            node = node.children[slot(node.level, cx, cz)];
+        if (node == null)
+            return;
+        int i = 0;
+        while (i < node.count && node.chunks[i] != chunk)
+            i++;
+        if (i == node.count)
+            return;
+        node.count--;
+        node.chunks[i] = node.chunks[node.count];
+        node.chunkY[i] = node.chunkY[node.count];
+        node.chunks[node.count] = null;
+
+        for (Node n = node; n != null; n = n.parent) {
+            if (--n.size > 0) {
+                n.updateBounds();
+            } else if (n.parent != null) {
+                n.parent.children[n.slot] = null; // vuoto: si stacca, il padre lo ignora già
+            } else {
+                rootsByKey.remove(rootKey(n.nx, n.nz));
+                roots.remove(n);
+            }
+        }
+    }
+
+    void setOcclusionEnabled(boolean enabled) {
+        occlusion = enabled;
+    }
+
+    /**
+     * Disegna le sezioni visibili da {@code cam}; non alloca.
+     *
+     * @param camChunk chunk che contiene la camera, {@code null} se non è caricato
+     */
+    void render(Camera cam, RenderBackend backend, Chunk camChunk) {
+        this.cam = cam;
+        this.backend = backend;
+        frames++;
+        walked = occlusion && camChunk != null;
+        if (walked) {
+            int y = (int) Math.floor(cam.getPosition().y) - camChunk.offsetY(); // dentro il chunk
+            sectionsReached += walk.run(camChunk, ChunkSection.indexOf(y), cam);
+        }
+        for (int i = 0; i < roots.size(); i++)
+            visit(roots.get(i), false);
+        this.cam = null;
+        this.backend = null;
+    }
+
+    /** @param inside se un antenato è già tutto nel frustum */
+    private void visit(Node node, boolean inside) {
+        if (!inside) {
+            int x0 = (node.nx << node.level) * chunkSize, z0 = (node.nz << node.level) * chunkSize;
+            int side = (1 << node.level) * chunkSize;
+            int result = cam.classifyAABB(x0, node.minY * chunkSize, z0,
+                    x0 + side, (node.maxY + 1) * chunkSize, z0 + side);
+            groupsTested++;
+            if (result == Camera.OUTSIDE) {
+                groupsCulled++;
+                return;
+            }
+            inside = result == Camera.INSIDE;
+        }
+        if (node.children == null) {
+            for (int i = 0; i < node.count; i++)
+                draw(node.chunks[i], inside);
+        } else {
+            for (Node child : node.children)
+                if (child != null)
+                    visit(child, inside);
+        }
+    }
+
+    private void draw(Chunk c, boolean inside) {
+        if (!c.isUploaded())
+            return; // mesh non ancora caricata
+        int x = c.offsetX(), y = c.offsetY(), z = c.offsetZ();
+        if (!inside) {
+            int result = cam.classifyAABB(x, y, z, x + c.sizeX, y + c.sizeY, z + c.sizeZ);
+            groupsTested++;
+            if (result == Camera.OUTSIDE) {
+                groupsCulled++;
+                return;
+            }
+            inside = result == Camera.INSIDE;
+        }
+        boolean originSet = false;
+        for (int i = 0; i < c.sectionCount(); i++) {
+            ChunkSection section = c.section(i);
+            if (section.getVertexCount() == 0)
+                continue;
+            if (walked && !walk.reached(section)) {
+                sectionsOccluded++;
+                continue;
+            }
+            if (!inside) {
+                sectionsTested++;
+                if (!cam.isAABBInFrustum(x, y + section.y0, z, x + c.sizeX, y + section.y1, z + c.sizeZ)) {
+                    sectionsCulled++;
+                    continue;
+                }
+            }
+            if (!originSet) {
+                backend.setChunkOrigin(x, y, z); // solo per i chunk con qualcosa da disegnare
+                originSet = true;
+            }
+            section.render(backend);
+            sectionsDrawn++;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(frames, groupsTested, groupsCulled, sectionsReached, sectionsOccluded, sectionsTested,
+                sectionsCulled, sectionsDrawn);
+    }
+}
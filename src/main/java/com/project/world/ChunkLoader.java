@@ -0,0 +1,258 @@
+package com.project.world;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.project.math.Point3i;
+import com.project.world.storage.ChunkCache;
+
+/**
+ * Fase CPU dello streaming dei chunk: caricamento dal disco o generazione del
+ * terreno e costruzione della mesh girano su un pool di thread; il thread di
+ * rendering raccoglie i chunk pronti con {@link #poll()} e li carica sulla GPU.
+ * Sugli stessi worker girano le ricostruzioni della mesh dei chunk già caricati
+ * quando cambiano i vicini ({@link #remesh}, {@link #pollRemeshed()}) e la
+ * compressione dei chunk scaricati nella cache ({@link #archive},
+ * {@link #pollArchived()}).
+ *
+ * <p>
+ * Tutti i metodi pubblici vanno chiamati dal thread di rendering; i worker
+ * comunicano solo tramite i {@link Future} e la coda dei chunk completati.
+ */
+final class ChunkLoader implements AutoCloseable {
+
+    /** Produce un chunk completo di mesh (non caricata) per la chiave indicata. */
+    @FunctionalInterface
+    interface Source {
+        Chunk load(Point3i key) throws IOException;
+    }
+
+    /** Chunk pronto per la fase GL. */
+    record Ready(Point3i key, Chunk chunk) {
+    }
+
+    /**
+     * Mesh ricostruita da un worker, da passare a {@link Chunk#installMesh};
+     * {@code sections} è {@code null} se la costruzione è fallita.
+     */
+    record Remeshed(Point3i key, Chunk chunk, int[][] sections, int neighbours, int version) {
+    }
+
+    private final Source source;
+    private final ExecutorService pool;
+    /** Richieste in corso o completate ma non ancora raccolte. */
+    private final Map<Point3i, Future<Chunk>> pending = new HashMap<>();
+    /** Chiavi dei lavori terminati (risultato già disponibile), nell'ordine di completamento. */
+    private final ConcurrentLinkedQueue<Point3i> finished = new ConcurrentLinkedQueue<>();
+    /** Mesh ricostruite, nell'ordine di completamento. */
+    private final ConcurrentLinkedQueue<Remeshed> remeshed = new ConcurrentLinkedQueue<>();
+    /** Chunk scaricati già compressi nella cache, nell'ordine di completamento. */
+    private final ConcurrentLinkedQueue<Point3i> archived = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    ChunkLoader(Source source, int workerCount) {
+        this.source = source;
+        AtomicInteger n = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "chunk-load-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Caricamento che annuncia la propria chiave in {@link #finished} da
+     * {@link #done()}, cioè quando il risultato (o l'errore, o l'annullamento)
+     * è già registrato: {@link #poll()} non trova mai la chiave di un lavoro che
+     * risulta ancora in corso. Un chunk finito dopo l'annullamento non viene
+     * registrato: lo restituisce al pool {@link #set}.
+     */
+    private final class LoadTask extends FutureTask<Chunk> {
+        private final Point3i key;
+
+        LoadTask(Point3i key) {
+            super(() -> source.load(key));
+            this.key = key;
+        }
+
+        @Override
+        protected void set(Chunk chunk) {
+            super.set(chunk);
+            if (isCancelled() && chunk != null)
+                chunk.recycle(); // annullato mentre girava: nessuno lo raccoglierà
+        }
+
+        @Override
+        protected void done() {
+            finished.add(key);
+        }
+    }
+
+    /** Accoda il chunk se non è già richiesto; nulla dopo {@link #close()}. */
+    void request(Point3i key) {
+        if (closed || pending.containsKey(key))
+            return;
+        LoadTask task = new LoadTask(key);
+        pending.put(key, task);
+        pool.execute(task);
+    }
+
+    /**
+     * Ricostruisce su un worker la mesh di un chunk già caricato con i vicini
+     * indicati. Il risultato arriva da {@link #pollRemeshed()} anche in caso di
+     * errore, così il chiamante può tenere il conto delle richieste in corso.
+     * Dopo {@link #close()} non fa nulla.
+     *
+     * @param neighbours bit dei vicini presenti in {@code blocks}
+     * @param version    {@link Chunk#getMeshVersion()} al momento della richiesta
+     */
+    void remesh(Point3i key, Chunk chunk, ChunkMesher.Neighbours blocks, int neighbours, int version) {
+        if (closed)
+            return;
+        pool.execute(() -> {
+            int[][] sections = null;
+            try {
+                if (!closed)
+                    sections = chunk.meshSections(blocks);
+            } catch (RuntimeException e) {
+                System.err.println("Ricostruzione della mesh del chunk (" + key.x + ", " + key.y + ", " + key.z + ") fallita: " + e);
+            }
+            remeshed.add(new Remeshed(key, chunk, sections, neighbours, version));
+        });
+    }
+
+    /**
+     * Comprime su un worker una copia di un chunk appena scaricato e la mette
+     * in {@code cache}. Il chunk non deve più cambiare; la fine del lavoro
+     * arriva da {@link #pollArchived()} anche in caso di errore. Dopo
+     * {@link #close()} non fa nulla.
+     */
+    void archive(Point3i key, Chunk chunk, ChunkCache cache) {
+        if (closed)
+            return;
+        pool.execute(() -> {
+            try {
+                if (!closed)
+                    cache.put(key.x, key.y, key.z, chunk.snapshot());
+            } catch (RuntimeException e) {
+                System.err.println("Compressione del chunk (" + key.x + ", " + key.y + ", " + key.z + ") fallita: " + e);
+            }
+            archived.add(key);
+        });
+    }
+
+    /** Prossimo chunk finito in cache da {@link #archive}, o {@code null}. */
+    Point3i pollArchived() {
+        return archived.poll();
+    }
+
+    /** Prossima mesh ricostruita, o {@code null} se nessuna è pronta. */
+    Remeshed pollRemeshed() {
+        return remeshed.poll();
+    }
+
+    boolean isPending(Point3i key) {
+        return pending.containsKey(key);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /** Rinuncia a un chunk uscito dalla distanza visiva. */
+    void cancel(Point3i key) {
+        Future<Chunk> f = pending.remove(key);
+        if (f != null)
+            discard(f);
+    }
+
+    /**
+     * Annulla il lavoro; se era già finito ne restituisce il chunk al pool. Se
+     * è in esecuzione ci pensa {@link LoadTask#set} quando termina.
+     */
+    private static void discard(Future<Chunk> f) {
+        if (f.cancel(false) || f.isCancelled())
+            return;
+        try {
+            f.get().recycle(); // già pronto: non ancora collegato né caricato
+        } catch (ExecutionException | InterruptedException e) {
+            // fallito: niente da restituire
+        }
+    }
+
+    /**
+     * Prossimo chunk completato, senza attendere.
+     *
+     * @return il chunk pronto oppure {@code null} se nessun lavoro è terminato
+     */
+    Ready poll() throws IOException {
+        Point3i key;
+        while ((key = finished.poll()) != null) {
+            Future<Chunk> f = pending.get(key);
+            if (f == null || !f.isDone())
+                continue; // annullato o già raccolto; se richiesto di nuovo, il nuovo lavoro si annuncerà da sé
+            pending.remove(key);
+            return new Ready(key, result(key, f));
+        }
+        return null;
+    }
+
+    /**
+     * Attende il chunk indicato (richiedendolo se necessario). Serve solo per il
+     * chunk sotto il giocatore, che non può restare vuoto.
+     */
+    Chunk await(Point3i key) throws IOException {
+        request(key);
+        Future<Chunk> f = pending.remove(key);
+        if (f == null)
+            throw new IOException("Caricamento del chunk (" + key.x + ", " + key.y + ", " + key.z
+                    + ") dopo la chiusura");
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attesa del chunk interrotta", e);
+        } catch (ExecutionException e) {
+            // gestita da result()
+        }
+        return result(key, f);
+    }
+
+    private static Chunk result(Point3i key, Future<Chunk> f) throws IOException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Caricamento del chunk (" + key.x + ", " + key.y + ", " + key.z + ") fallito", e.getCause());
+        } catch (InterruptedException | CancellationException e) {
+            throw new IOException("Caricamento del chunk (" + key.x + ", " + key.y + ", " + key.z + ") interrotto", e);
+        }
+    }
+
+    /**
+     * Ferma i worker; i chunk non ancora raccolti vengono scartati (non hanno
+     * risorse GL). Se il thread viene interrotto smette di attendere e ne
+     * ripristina lo stato di interruzione.
+     */
+    @Override
+    public void close() {
+        closed = true; // le ricostruzioni ancora in coda non servono più
+        pending.values().forEach(ChunkLoader::discard);
+        pending.clear();
+        pool.shutdown();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.project.world;
+
+/**
+ * Mappa dei chunk caricati per coordinate di chunk {@code (cx, cy, cz)}, con
+ * la chiave impacchettata in un {@code long} ({@link #key}) e indirizzamento
+ * aperto a scansione lineare: una ricerca non alloca nulla e non passa da
+ * {@code equals}/{@code hashCode}.
+ *
+ * <p>
+ * Le query sui blocchi (collisioni, raycast) cadono quasi sempre nello stesso
+ * chunk della precedente: l'ultimo chunk trovato resta in cache e viene
+ * restituito senza toccare la tabella.
+ *
+ * <p>
+ * Non è thread-safe: la usa solo il thread di rendering.
+ */
+public final class ChunkMap {
+
+    /** Riceve le voci di {@link #forEach}. */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long key, Chunk chunk);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Chunk[] values; // null = slot libero
+    private int mask;
+    private int size;
+
+    /** Cache dell'ultima ricerca riuscita ({@code lastChunk == null}: vuota). */
+    private long lastKey;
+    private Chunk lastChunk;
+
+    public ChunkMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /** @param expected numero di chunk previsto (la tabella resta piena al più a metà) */
+    public ChunkMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expected * 2 - 1) << 1);
+        keys = new long[capacity];
+        values = new Chunk[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Chiave di {@code (cx, cy, cz)}: x nei 26 bit alti, poi z su 26 bit e y nei
+     * 12 bassi (±2²⁵ chunk in orizzontale, ±2048 in verticale).
+     */
+    public static long key(int cx, int cy, int cz) {
+        return ((long) cx << 38) | ((cz & 0x3FFFFFFL) << 12) | (cy & 0xFFFL);
+    }
+
+    public static int keyX(long key) {
+        return (int) (key >> 38);
+    }
+
+    public static int keyY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    public static int keyZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    /** Mescola i bit della chiave (finalizzatore di MurmurHash3): vicini diversi, slot lontani. */
+    private static int slot(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    public Chunk get(int cx, int cy, int cz) {
+        return get(key(cx, cy, cz));
+    }
+
+    /** @return il chunk, o {@code null} se non è caricato */
+    public Chunk get(long key) {
+        if (lastChunk != null && lastKey == key)
+            return lastChunk;
+        for (int i = slot(key, mask);; i = (i + 1) & mask) {
+            Chunk c = values[i];
+            if (c == null)
+                return null;
+            if (keys[i] == key) {
+                lastKey = key;
+                lastChunk = c;
+                return c;
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /** Inserisce o sostituisce il chunk della chiave. */
+    public void put(long key, Chunk chunk) {
+        if (chunk == null)
+            throw new IllegalArgumentException("chunk nullo per la chiave " + keyX(key) + "," + keyY(key) + "," + keyZ(key));
+        if (lastKey == key)
+            lastChunk = null;
+        int i = slot(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = chunk;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = chunk;
+        if (++size * 2 > keys.length)
+            resize(keys.length * 2);
+    }
+
+    /** @return il chunk rimosso, o {@code null} se non c'era */
+    public Chunk remove(long key) {
+        if (lastKey == key)
+            lastChunk = null;
+        int i = slot(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                Chunk removed = values[i];
+                shiftBack(i);
+                size--;
+                return removed;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Libera lo slot {@code hole} riportando indietro le voci successive della
+     * stessa sequenza di scansione, così non servono lapidi.
+     */
+    private void shiftBack(int hole) {
+        for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i], mask);
+            // la voce può occupare il buco solo se home non è tra il buco (escluso) e i
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Chunk[] oldValues = values;
+        keys = new long[capacity];
+        values = new Chunk[capacity];
+        mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] == null)
+                continue;
+            int i = slot(oldKeys[j], mask);
+            while (values[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Visita tutte le voci; il visitatore non deve modificare la mappa. */
+    public void forEach(Visitor visitor) {
+        Chunk[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            if (vs[i] != null)
+                visitor.visit(keys[i], vs[i]);
+        }
+    }
+
+    /** Chiavi presenti, in un nuovo array (per modificare la mappa mentre le si scorre). */
+    public long[] keys() {
+        long[] out = new long[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null)
+                out[n++] = keys[i];
+        }
+        return out;
+    }
+}
@@ -0,0 +1,269 @@
+package com.project.world;
+
+/**
+ * Costruzione della mesh di un chunk: una faccia per ogni lato di blocco che
+ * confina con l'aria. Oltre il bordo del chunk si guardano i blocchi dei chunk
+ * vicini ({@link Neighbours}); dove il vicino non è caricato si assume aria.
+ * Solo CPU, nessuna chiamata OpenGL: può girare su qualsiasi thread.
+ *
+ * <p>
+ * I blocchi arrivano compressi ({@link BlockStorage}); le righe della fascia da
+ * costruire, più una sopra e una sotto, vengono prima scompattate in un array
+ * di id del thread ({@link BlockType#toId}, 0 = aria) nell'ordine del chunk:
+ * cella {@code (x, y, z)} all'indice {@code (x * sy + y) * sz + z}.
+ */
+public final class ChunkMesher {
+
+    /**
+     * Blocchi dei sei chunk confinanti (stesse dimensioni e stesso ordine del
+     * chunk), o {@code null} dove il vicino non è caricato. Nord è verso z
+     * negativo, est verso x positivo, come in {@link Direction}.
+     */
+    public record Neighbours(BlockStorage north, BlockStorage south, BlockStorage east, BlockStorage west,
+            BlockStorage up, BlockStorage down) {
+
+        /** Nessun vicino: tutto il bordo confina con l'aria. */
+        public static final Neighbours NONE = new Neighbours(null, null, null, null, null, null);
+
+        /** Solo i vicini orizzontali (chunk alti quanto il mondo). */
+        public Neighbours(BlockStorage north, BlockStorage south, BlockStorage east, BlockStorage west) {
+            this(north, south, east, west, null, null);
+        }
+
+        /** Vicino lungo l'asse {@code axis} (0 = x, 1 = y, 2 = z) nel verso {@code step}. */
+        BlockStorage along(int axis, int step) {
+            return switch (axis) {
+                case 0 -> step > 0 ? east : west;
+                case 1 -> step > 0 ? up : down;
+                default -> step > 0 ? south : north;
+            };
+        }
+    }
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final BlockType[] TYPES = BlockType.values();
+
+    /** Modalità usata dai chunk del gioco. */
+    private static volatile MeshingMode mode = MeshingMode.fromSystemProperty();
+
+    private ChunkMesher() {
+    }
+
+    public static MeshingMode getMode() {
+        return mode;
+    }
+
+    /** Cambia la modalità per le mesh costruite da qui in poi. */
+    public static void setMode(MeshingMode newMode) {
+        mode = newMode;
+    }
+
+    /** Mesh dell'intero chunk isolato nella modalità corrente. */
+    public static int[] mesh(BlockStorage blocks) {
+        return mesh(blocks, 0, blocks.sizeY, Neighbours.NONE, mode);
+    }
+
+    /** Mesh dell'intero chunk isolato nella modalità indicata. */
+    public static int[] mesh(BlockStorage blocks, MeshingMode mode) {
+        return mesh(blocks, 0, blocks.sizeY, Neighbours.NONE, mode);
+    }
+
+    /** Mesh della fascia {@code [y0, y1)} del chunk isolato nella modalità indicata. */
+    public static int[] mesh(BlockStorage blocks, int y0, int y1, MeshingMode mode) {
+        return mesh(blocks, y0, y1, Neighbours.NONE, mode);
+    }
+
+    /** Mesh della fascia {@code [y0, y1)} nella modalità corrente. */
+    public static int[] mesh(BlockStorage blocks, int y0, int y1, Neighbours neighbours) {
+        return mesh(blocks, y0, y1, neighbours, mode);
+    }
+
+    /**
+     * Vertici delle facce visibili dei blocchi con {@code y0 <= y < y1}
+     * (formato {@link MeshBuilder}), in coordinate locali al chunk. I vicini
+     * appena fuori dalla fascia vengono letti dal chunk, quindi le facce tra due
+     * fasce adiacenti sono scartate come all'interno di una sola mesh. Usa
+     * l'arena del thread corrente: l'unica allocazione è l'array restituito.
+     * Una fascia tutta d'aria non viene nemmeno scompattata.
+     */
+    public static int[] mesh(BlockStorage blocks, int y0, int y1, Neighbours neighbours, MeshingMode mode) {
+        int sx = blocks.sizeX, sy = blocks.sizeY, sz = blocks.sizeZ;
+        if (sx > MeshBuilder.MAX_SIZE_XZ || sz > MeshBuilder.MAX_SIZE_XZ || sy > MeshBuilder.MAX_SIZE_Y)
+            throw new IllegalArgumentException("Chunk troppo grande per il formato compatto: " + sx + "×" + sy + "×" + sz);
+        if (y0 < 0 || y1 > sy || y0 > y1)
+            throw new IllegalArgumentException("Fascia non valida: [" + y0 + ", " + y1 + ") su " + sy);
+        MeshBuilder out = MeshBuilder.forCurrentThread();
+        if (y0 == y1 || blocks.isAir(y0, y1))
+            return out.toArray();
+
+        byte[] ids = out.ids(sx * sy * sz);
+        blocks.copyRows(Math.max(0, y0 - 1), Math.min(sy, y1 + 1), ids); // fascia più i vicini
+        if (mode == MeshingMode.GREEDY)
+            meshGreedy(ids, sx, sy, sz, y0, y1, neighbours, out);
+        else
+            meshPerFace(ids, sx, sy, sz, y0, y1, neighbours, out);
+        return out.toArray();
+    }
+
+    /**
+     * Grafo di visibilità della fascia {@code [y0, y1)} (vedi
+     * {@link SectionVisibility}), calcolato insieme alla mesh della sezione.
+     * Dipende solo dai blocchi della fascia, non dai vicini. Usa l'arena del
+     * thread corrente e non alloca.
+     */
+    public static long visibility(BlockStorage blocks, int y0, int y1) {
+        if (y0 == y1 || blocks.isAir(y0, y1))
+            return SectionVisibility.ALL;
+        int sx = blocks.sizeX, sy = blocks.sizeY, sz = blocks.sizeZ;
+        byte[] ids = MeshBuilder.forCurrentThread().ids(sx * sy * sz);
+        blocks.copyRows(y0, y1, ids);
+        return SectionVisibility.compute(ids, sx, sy, sz, y0, y1);
+    }
+
+    private static void meshPerFace(byte[] blocks, int sx, int sy, int sz, int y0, int y1,
+            Neighbours neighbours, MeshBuilder out) {
+        int[] offsets = new int[DIRECTIONS.length]; // passo d'indice verso il vicino
+        for (Direction dir : DIRECTIONS)
+            offsets[dir.ordinal()] = (dir.dx * sy + dir.dy) * sz + dir.dz;
+
+        for (int x = 0; x < sx; x++) {
+            for (int y = y0; y < y1; y++) {
+                int i = (x * sy + y) * sz;
+                for (int z = 0; z < sz; z++, i++) {
+                    byte id = blocks[i];
+                    if (id == BlockType.AIR)
+                        continue;
+                    for (Direction dir : DIRECTIONS) {
+                        int nx = x + dir.dx, ny = y + dir.dy, nz = z + dir.dz;
+                        byte neigh = (nx >= 0 && nx < sx && ny >= 0 && ny < sy && nz >= 0 && nz < sz)
+                                ? blocks[i + offsets[dir.ordinal()]]
+                                : outside(neighbours, sx, sy, sz, nx, ny, nz);
+                        if (neigh == BlockType.AIR) {
+                            Cube.addFace(out, x, y, z, dir, TYPES[id - 1]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Blocco appena fuori dal chunk (una sola coordinata è fuori dai limiti). */
+    private static byte outside(Neighbours n, int sx, int sy, int sz, int x, int y, int z) {
+        BlockStorage other;
+        if (y < 0 || y >= sy) {
+            other = n.along(1, y);
+            return other == null ? BlockType.AIR : other.get(x, y < 0 ? sy - 1 : 0, z);
+        }
+        if (x < 0 || x >= sx) {
+            other = n.along(0, x);
+            return other == null ? BlockType.AIR : other.get(x < 0 ? sx - 1 : 0, y, z);
+        }
+        other = n.along(2, z);
+        return other == null ? BlockType.AIR : other.get(x, y, z < 0 ? sz - 1 : 0);
+    }
+
+    /**
+     * Per ogni direzione e ogni strato perpendicolare alla normale si costruisce
+     * una maschera 2D delle facce visibili (id del blocco, 0 = nessuna faccia) e
+     * la si copre con rettangoli massimali: prima si allarga lungo l'asse
+     * {@code b}, poi si aggiungono righe lungo {@code a} finché restano uguali.
+     * Tipo uguale implica tassello uguale, perché la UV dipende solo da tipo e
+     * direzione.
+     *
+     * <p>
+     * Gli strati si leggono dall'array scompattato con semplici passi di
+     * indice; sul bordo la cella oltre la faccia è sullo strato opposto del
+     * chunk vicino, letta dal suo storage.
+     */
+    private static void meshGreedy(byte[] ids, int sx, int sy, int sz, int y0, int y1,
+            Neighbours neighbours, MeshBuilder out) {
+        int[] lo = { 0, y0, 0 }; // celle da coprire
+        int[] hi = { sx, y1, sz };
+        int[] limit = { sx, sy, sz }; // oltre il bordo c'è il chunk vicino o l'aria
+        int[] strides = { sy * sz, sz, 1 };
+        int[] p = new int[3];
+        int[] e = new int[3];
+        int[] q = new int[3]; // cella del vicino oltre il bordo
+
+        for (Direction dir : DIRECTIONS) {
+            int n = dir.dx != 0 ? 0 : dir.dy != 0 ? 1 : 2; // asse della normale
+            int step = dir.dx + dir.dy + dir.dz; // +1 o -1 lungo la normale
+            int a = n == 0 ? 1 : 0; // assi del piano, a < b
+            int b = n == 2 ? 1 : 2;
+            int dimA = hi[a] - lo[a], dimB = hi[b] - lo[b];
+            int strideA = strides[a], strideB = strides[b];
+            int neighbourOffset = step * strides[n];
+            int planeBase = lo[a] * strideA + lo[b] * strideB;
+
+            for (int s = lo[n]; s < hi[n]; s++) {
+                int[] mask = out.mask(dimA * dimB);
+                boolean edge = s + step < 0 || s + step >= limit[n];
+                BlockStorage other = edge ? neighbours.along(n, step) : null;
+                q[n] = step > 0 ? 0 : limit[n] - 1;
+                boolean any = false;
+                int base = s * strides[n] + planeBase;
+                for (int ia = 0; ia < dimA; ia++) {
+                    int idx = base + ia * strideA;
+                    int m = ia * dimB;
+                    for (int ib = 0; ib < dimB; ib++, idx += strideB, m++) {
+                        byte id = ids[idx];
+                        if (id == BlockType.AIR)
+                            continue;
+                        boolean visible;
+                        if (!edge) {
+                            visible = ids[idx + neighbourOffset] == BlockType.AIR;
+                        } else if (other == null) {
+                            visible = true; // vicino non caricato: aria
+                        } else {
+                            q[a] = lo[a] + ia;
+                            q[b] = lo[b] + ib;
+                            visible = other.get(q[0], q[1], q[2]) == BlockType.AIR;
+                        }
+                        if (visible) {
+                            mask[m] = id;
+                            any = true;
+                        }
+                    }
+                }
+                if (!any)
+                    continue;
+
+                for (int ia = 0; ia < dimA; ia++) {
+                    for (int ib = 0; ib < dimB;) {
+                        int m = mask[ia * dimB + ib];
+                        if (m == 0) {
+                            ib++;
+                            continue;
+                        }
+                        int w = 1;
+                        while (ib + w < dimB && mask[ia * dimB + ib + w] == m)
+                            w++;
+                        int len = 1;
+                        grow: while (ia + len < dimA) {
+                            int row = (ia + len) * dimB + ib;
+                            for (int k = 0; k < w; k++) {
+                                if (mask[row + k] != m)
+                                    break grow;
+                            }
+                            len++;
+                        }
+                        for (int da = 0; da < len; da++) {
+                            int row = (ia + da) * dimB + ib;
+                            for (int k = 0; k < w; k++)
+                                mask[row + k] = 0;
+                        }
+
+                        p[n] = s;
+                        p[a] = lo[a] + ia;
+                        p[b] = lo[b] + ib;
+                        e[n] = 1;
+                        e[a] = len;
+                        e[b] = w;
+                        Cube.addQuad(out, p[0], p[1], p[2], e[0], e[1], e[2], dir, TYPES[m - 1]);
+                        ib += w;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.project.world;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Riciclo delle allocazioni dei chunk scaricati: chi vola in linea retta
+ * scarica e genera chunk di continuo, e senza pool ognuno rialloca gli stessi
+ * array (bitset di occupazione, heightmap, indici delle sezioni di blocchi) e
+ * richiede al {@link RenderBackend} le mesh delle sue sezioni.
+ *
+ * <p>
+ * Gli array sono divisi per lunghezza (le dimensioni possibili sono poche:
+ * quelle delle sezioni a 1/2/4/8 bit, del bitset e delle heightmap) e tornano
+ * azzerati. Si prendono da qualsiasi thread (i worker che generano i chunk);
+ * oltre {@code maxBytes} gli array restituiti vengono lasciati al GC.
+ *
+ * <p>
+ * Le mesh si usano solo dal thread di rendering e vengono dal
+ * {@link RenderBackend} del mondo: al rilascio i vertici vengono liberati
+ * (lo spazio nel buffer condiviso torna libero, l'handle resta) e oltre
+ * {@code maxMeshes} mesh vengono eliminate.
+ */
+public final class ChunkPool {
+
+    /** Nessun riciclo: ogni richiesta alloca, ogni rilascio libera subito. */
+    public static final ChunkPool NONE = new ChunkPool(0, 0);
+
+    /** Proprietario in {@code GpuResources} del buffer e del VAO delle mesh dei chunk. */
+    static final String OWNER = "chunk";
+
+    /** Istantanea dei contatori del pool. */
+    public record Stats(long arrayHits, long arrayMisses, long pooledBytes,
+            long meshHits, long meshMisses, int pooledMeshes) {
+
+        @Override
+        public String toString() {
+            return String.format("array riusati %d, nuovi %d (%.1f MiB nel pool), "
+                    + "mesh riusate %d, nuove %d (%d nel pool)",
+                    arrayHits, arrayMisses, pooledBytes / (1024.0 * 1024.0),
+                    meshHits, meshMisses, pooledMeshes);
+        }
+    }
+
+    private final long maxBytes;
+    private final int maxMeshes;
+
+    // --- array, protetti da this ---
+    private final Map<Integer, ArrayDeque<long[]>> longs = new HashMap<>();
+    private final Map<Integer, ArrayDeque<short[]>> shorts = new HashMap<>();
+    private long pooledBytes;
+    private long arrayHits, arrayMisses;
+
+    // --- mesh, solo thread di rendering ---
+    private long[] freeMesh = new long[0];
+    private int freeMeshes;
+    private long meshHits, meshMisses;
+
+    /**
+     * @param maxBytes   byte di array tenuti da parte al massimo
+     * @param maxMeshes mesh tenute da parte al massimo
+     */
+    public ChunkPool(long maxBytes, int maxMeshes) {
+        this.maxBytes = maxBytes;
+        this.maxMeshes = maxMeshes;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Array
+    // ---------------------------------------------------------------------------------
+
+    /** Array azzerato di {@code length} long, riciclato se possibile. */
+    public synchronized long[] longs(int length) {
+        ArrayDeque<long[]> free = longs.get(length);
+        long[] a = free == null ? null : free.poll();
+        if (a == null) {
+            arrayMisses++;
+            return new long[length];
+        }
+        arrayHits++;
+        pooledBytes -= (long) length * Long.BYTES;
+        Arrays.fill(a, 0L);
+        return a;
+    }
+
+    /** Array azzerato di {@code length} short, riciclato se possibile. */
+    public synchronized short[] shorts(int length) {
+        ArrayDeque<short[]> free = shorts.get(length);
+        short[] a = free == null ? null : free.poll();
+        if (a == null) {
+            arrayMisses++;
+            return new short[length];
+        }
+        arrayHits++;
+        pooledBytes -= (long) length * Short.BYTES;
+        Arrays.fill(a, (short) 0);
+        return a;
+    }
+
+    /** Restituisce un array che nessuno legge più. */
+    public synchronized void release(long[] a) {
+        long bytes = (long) a.length * Long.BYTES;
+        if (pooledBytes + bytes > maxBytes)
+            return;
+        longs.computeIfAbsent(a.length, k -> new ArrayDeque<>()).push(a);
+        pooledBytes += bytes;
+    }
+
+    /** Restituisce un array che nessuno legge più. */
+    public synchronized void release(short[] a) {
+        long bytes = (long) a.length * Short.BYTES;
+        if (pooledBytes + bytes > maxBytes)
+            return;
+        shorts.computeIfAbsent(a.length, k -> new ArrayDeque<>()).push(a);
+        pooledBytes += bytes;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Mesh
+    // ---------------------------------------------------------------------------------
+
+    /** Mesh vuota di {@code backend}, riciclata o creata ora (solo thread di rendering). */
+    long takeMesh(RenderBackend backend) {
+        if (freeMeshes == 0) {
+            meshMisses++;
+            return backend.createMesh();
+        }
+        meshHits++;
+        return freeMesh[--freeMeshes];
+    }
+
+    /** Restituisce una mesh non più disegnata; i suoi vertici vengono liberati. */
+    void releaseMesh(RenderBackend backend, long mesh) {
+        if (freeMeshes == maxMeshes) {
+            backend.deleteMesh(mesh);
+            return;
+        }
+        backend.clearMesh(mesh);
+        if (freeMeshes == freeMesh.length)
+            freeMesh = Arrays.copyOf(freeMesh, Math.min(maxMeshes, Math.max(16, freeMeshes * 2)));
+        freeMesh[freeMeshes++] = mesh;
+    }
+
+    /** Elimina le mesh tenute da parte e svuota il pool (solo thread di rendering). */
+    public void clear(RenderBackend backend) {
+        for (int i = 0; i < freeMeshes; i++)
+            backend.deleteMesh(freeMesh[i]);
+        freeMeshes = 0;
+        synchronized (this) {
+            longs.clear();
+            shorts.clear();
+            pooledBytes = 0;
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(arrayHits, arrayMisses, pooledBytes, meshHits, meshMisses, freeMeshes);
+    }
+}
@@ -0,0 +1,127 @@
+package com.project.world;
+
+/**
+ * Fascia orizzontale di un chunk ({@link #HEIGHT} blocchi) con la propria
+ * mesh: modificare un blocco ricostruisce e ricarica solo la sezione che lo
+ * contiene, non tutto il chunk.
+ *
+ * <p>
+ * Come per il chunk, {@link #build} è solo CPU e {@link #upload} va chiamato
+ * dal thread di rendering. Una sezione vuota (tutta aria o tutta nascosta) non
+ * crea mesh nel backend. La mesh viene presa dal {@link ChunkPool} del chunk
+ * e gli torna in {@link #cleanup()}.
+ */
+final class ChunkSection {
+
+    /** Altezza in blocchi di una sezione. */
+    static final int HEIGHT = 16;
+
+    /** Fascia {@code [y0, y1)} coperta, in coordinate del chunk. */
+    final int y0, y1;
+
+    private long mesh; // 0 finché non c'è una mesh non vuota nel backend
+    private int vertexCount;
+    /** Vertici costruiti ma non ancora caricati sulla GPU. */
+    private int[] pendingMesh;
+    private boolean uploaded;
+    private final ChunkPool pool;
+    /** Facce collegate dall'aria ({@link SectionVisibility}); tutte finché la sezione non è costruita. */
+    private long visibility = SectionVisibility.ALL;
+    /** Ultima visita di {@link VisibilityWalk} che ha raggiunto la sezione. */
+    int walkStamp;
+
+    ChunkSection(int y0, int y1, ChunkPool pool) {
+        this.y0 = y0;
+        this.y1 = y1;
+        this.pool = pool;
+    }
+
+    /** Sezione che contiene la quota {@code y}. */
+    static int indexOf(int y) {
+        return y / HEIGHT;
+    }
+
+    /** Numero di sezioni di un chunk alto {@code sizeY}. */
+    static int countFor(int sizeY) {
+        return (sizeY + HEIGHT - 1) / HEIGHT;
+    }
+
+    /** Costruisce i vertici e il grafo di visibilità della sezione. Non tocca OpenGL. */
+    void build(BlockStorage blocks, ChunkMesher.Neighbours neighbours) {
+        setPending(mesh(blocks, neighbours));
+        visibility = ChunkMesher.visibility(blocks, y0, y1);
+    }
+
+    long visibility() {
+        return visibility;
+    }
+
+    /** Vertici della sezione, senza toccarne lo stato: può girare su un worker. */
+    int[] mesh(BlockStorage blocks, ChunkMesher.Neighbours neighbours) {
+        return ChunkMesher.mesh(blocks, y0, y1, neighbours);
+    }
+
+    /** Sostituisce la mesh in attesa di caricamento. */
+    void setPending(int[] mesh) {
+        pendingMesh = mesh;
+    }
+
+    /**
+     * Consegna la mesh in attesa al backend, creandola alla prima mesh non vuota.
+     *
+     * @return {@code false} se non c'era nulla da caricare
+     */
+    boolean upload(RenderBackend backend) {
+        int[] buf = pendingMesh;
+        if (buf == null)
+            return false;
+        pendingMesh = null;
+        uploaded = true;
+        vertexCount = buf.length / MeshBuilder.INTS_PER_VERTEX;
+        if (vertexCount == 0 && mesh == 0)
+            return true; // niente da disegnare, niente da creare
+
+        if (mesh == 0)
+            mesh = pool.takeMesh(backend);
+        backend.uploadMesh(mesh, buf);
+        return true;
+    }
+
+    /** Byte di memoria video in più (o in meno, se negativo) dopo {@link #upload}. */
+    long pendingBytes() {
+        int[] buf = pendingMesh;
+        if (buf == null)
+            return 0;
+        return ((long) buf.length - (long) vertexCount * MeshBuilder.INTS_PER_VERTEX) * Integer.BYTES;
+    }
+
+    boolean hasPendingMesh() {
+        return pendingMesh != null;
+    }
+
+    boolean isUploaded() {
+        return uploaded;
+    }
+
+    int getVertexCount() {
+        return vertexCount;
+    }
+
+    /** Disegna la sezione; l'origine del chunk è già impostata. */
+    void render(RenderBackend backend) {
+        if (vertexCount == 0)
+            return;
+        backend.drawMesh(mesh, vertexCount);
+    }
+
+    /** Restituisce la mesh al pool; {@code backend} è quello che l'ha ricevuta. */
+    void cleanup(RenderBackend backend) {
+        pendingMesh = null;
+        uploaded = false;
+        vertexCount = 0;
+        if (mesh == 0)
+            return;
+        pool.releaseMesh(backend, mesh);
+        mesh = 0;
+    }
+}
@@ -1,70 +1,106 @@
 // Cube.java
 package com.project.world;
-import java.util.List;
-import org.joml.Vector3f;
 
 /**
  * Gestisce i vertici e le coordinate UV di un cubo
  * in base a un texture-atlas 64 × 32 (1024 × 512 px).
+ *
+ * <p>
+ * Ogni vertice (formato compatto di {@link MeshBuilder}) porta il tassello
+ * dell'atlante (colonna, riga) e una UV locale espressa in tasselli: lo shader campiona
+ * {@code (tassello + fract(uvLocale)) / dimensioneAtlante}, così un quad
+ * largo N blocchi ripete la texture N volte (mesh greedy).
  */
 public final class Cube {
 
-    private static final int ATLAS_COLS = 64; // colonne nel texture-atlas
-    private static final int ATLAS_ROWS = 32; // righe nel texture-atlas
-
-    private static final float TILE_U = 1f / ATLAS_COLS; // larghezza UV di un tassello
-    private static final float TILE_V = 1f / ATLAS_ROWS; // altezza UV di un tassello
-
     private Cube() {
         // Classe statica, non instanziabile
     }
 
+    /** Angolo UV usato da ciascuno dei sei vertici (0 = inizio, 1 = fine del tassello). */
+    private static final int[] CORNER_U = { 0, 1, 1, 1, 0, 0 };
+    private static final int[] CORNER_V = { 0, 0, 1, 1, 1, 0 };
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final BlockType[] TYPES = BlockType.values();
+
     /**
-     * Aggiunge i vertici e le UV per una faccia del cubo.
-     *
-     * @param data lista di float (x, y, z, u, v, ...)
-     * @param pos  posizione del blocco
-     * @param dir  direzione della faccia da disegnare
-     * @param type tipo di blocco (dirt, stone, ecc.)
+     * Modelli di faccia precalcolati, indicizzati per {@code Direction.ordinal()}:
+     * per ognuno dei sei vertici {@code dx, dy, dz, angoloU, angoloV} (0 o 1).
      */
-    public static void addFace(List<Float> data,
-            Vector3f pos,
-            Direction dir,
-            BlockType type) {
+    private static final int[][] FACE_TEMPLATES = new int[DIRECTIONS.length][];
 
-        float[][] verts = CubeFaceVertices.forDirection(dir); // sei vertici per due triangoli
-        BlockType.UV uv = type.getUV(dir); // coordinate del tassello
+    /** Asse (0 = x, 1 = y, 2 = z) lungo cui corrono la U e la V di ogni direzione. */
+    private static final int[] U_AXIS = new int[DIRECTIONS.length];
+    private static final int[] V_AXIS = new int[DIRECTIONS.length];
 
-        // Coordinate UV del tassello sulla texture
-        float u0 = uv.x() * TILE_U;
-        float v0 = uv.y() * TILE_V;
-        float u1 = (uv.x() + 1) * TILE_U;
-        float v1 = (uv.y() + 1) * TILE_V;
+    /** Tassello dell'atlante {@code (colonna, riga)} per tipo e direzione. */
+    private static final int[] TILES = new int[TYPES.length * DIRECTIONS.length * 2];
 
-        // Mappa vertici → corner UV (ordine compatibile con triangolazione)
-        int[] cornerIndex = { 0, 1, 2, 2, 3, 0 };
+    static {
+        for (Direction dir : DIRECTIONS) {
+            float[][] verts = CubeFaceVertices.forDirection(dir); // sei vertici per due triangoli
+            int[] template = new int[6 * 5];
+            for (int i = 0; i < 6; i++) {
+                template[i * 5] = (int) verts[i][0];
+                template[i * 5 + 1] = (int) verts[i][1];
+                template[i * 5 + 2] = (int) verts[i][2];
+                template[i * 5 + 3] = CORNER_U[i];
+                template[i * 5 + 4] = CORNER_V[i];
+            }
+            FACE_TEMPLATES[dir.ordinal()] = template;
+            // il primo spigolo (vertici 0 → 1) percorre la U, il secondo (1 → 2) la V
+            U_AXIS[dir.ordinal()] = axisBetween(verts[0], verts[1]);
+            V_AXIS[dir.ordinal()] = axisBetween(verts[1], verts[2]);
+        }
+        for (BlockType type : TYPES) {
+            for (Direction dir : DIRECTIONS) {
+                BlockType.UV uv = type.getUV(dir); // coordinate del tassello
+                int i = (type.ordinal() * DIRECTIONS.length + dir.ordinal()) * 2;
+                TILES[i] = uv.x();
+                TILES[i + 1] = uv.y();
+            }
+        }
+    }
 
-        for (int i = 0; i < 6; i++) {
-            float[] vertex = verts[i];
+    private static int axisBetween(float[] a, float[] b) {
+        for (int axis = 0; axis < 3; axis++) {
+            if (a[axis] != b[axis])
+                return axis;
+        }
+        throw new IllegalStateException("Spigolo degenere");
+    }
 
-            int cornerIdx = cornerIndex[i];
+    /**
+     * Aggiunge i sei vertici di una faccia del cubo.
+     *
+     * @param out  arena dei vertici
+     * @param x    posizione del blocco nel chunk
+     * @param dir  direzione della faccia da disegnare
+     * @param type tipo di blocco (dirt, stone, ecc.)
+     */
+    public static void addFace(MeshBuilder out, int x, int y, int z, Direction dir, BlockType type) {
+        addQuad(out, x, y, z, 1, 1, 1, dir, type);
+    }
 
-            float u = switch (cornerIdx) {
-                case 0, 3 -> u0;
-                case 1, 2 -> u1;
-                default -> u0;
-            };
-            float v = switch (cornerIdx) {
-                case 0, 1 -> v0;
-                case 2, 3 -> v1;
-                default -> v0;
-            };
+    /**
+     * Aggiunge un quad che copre più facce complanari dello stesso tipo.
+     * Le estensioni sono in blocchi lungo x, y, z; quella lungo la normale
+     * della faccia deve valere 1.
+     */
+    public static void addQuad(MeshBuilder out, int x, int y, int z, int ex, int ey, int ez,
+            Direction dir, BlockType type) {
+        int d = dir.ordinal();
+        int[] t = FACE_TEMPLATES[d];
+        int r = (type.ordinal() * DIRECTIONS.length + d) * 2;
+        int tileU = TILES[r], tileV = TILES[r + 1];
+        int extentU = U_AXIS[d] == 0 ? ex : U_AXIS[d] == 1 ? ey : ez;
+        int extentV = V_AXIS[d] == 0 ? ex : V_AXIS[d] == 1 ? ey : ez;
 
-            data.add(pos.x + vertex[0]);
-            data.add(pos.y + vertex[1]);
-            data.add(pos.z + vertex[2]);
-            data.add(u);
-            data.add(v);
+        out.ensureCapacity(6);
+        for (int i = 0; i < 30; i += 5) {
+            out.vertex(x + t[i] * ex, y + t[i + 1] * ey, z + t[i + 2] * ez,
+                    tileU, tileV, t[i + 3] * extentU, t[i + 4] * extentV);
         }
     }
-}
\ No newline at end of file
+}
@@ -20,5 +20,16 @@ public enum Direction {
         this.dy = dy;
         this.dz = dz;
     }
-    
+
+    /** Direzione opposta (la faccia del vicino che guarda verso questa). */
+    public Direction opposite() {
+        return switch (this) {
+            case UP -> DOWN;
+            case DOWN -> UP;
+            case NORTH -> SOUTH;
+            case SOUTH -> NORTH;
+            case EAST -> WEST;
+            case WEST -> EAST;
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.project.world;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL14.glMultiDrawArrays;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.lwjgl.BufferUtils;
+
+import com.project.graphics.GlState;
+import com.project.graphics.GpuResources;
+import com.project.graphics.GpuResources.Kind;
+import com.project.graphics.TextureRegistry;
+
+/**
+ * Backend OpenGL delle mesh dei chunk: tutte le mesh stanno in un unico VBO
+ * (con un unico VAO), diviso tra le sezioni da un {@link VertexArena}. Un
+ * handle è l'id della mesh nell'arena. Il buffer è registrato in
+ * {@link GpuResources} a nome di {@value ChunkPool#OWNER} con la sua capacità;
+ * quando una mesh non trova posto viene ricreato deframmentato, e se serve
+ * più grande, copiando le mesh sulla GPU. Cresce solo entro il budget del
+ * registro: {@link #canUpload} guarda lo spazio libero dell'arena più quello
+ * che il budget lascia per ingrandirla.
+ *
+ * <p>
+ * Le sezioni di un chunk condividono la matrice model e vengono disegnate con
+ * un solo {@code glMultiDrawArrays}: un draw per chunk invece di un draw e un
+ * cambio di VAO per sezione. Un unico draw per tutti i chunk richiederebbe
+ * l'origine per draw nello shader ({@code gl_DrawID} o base instance, GL 4.x),
+ * oltre il 3.3 su cui gira il gioco.
+ *
+ * <p>
+ * Il disegno non alloca: posizioni degli uniform lette una volta, matrice
+ * model e liste dei draw riusate, cambi di stato filtrati da {@link GlState}.
+ * Gli uniform che cambiano di rado (blocco evidenziato, unità della texture)
+ * vengono inviati solo quando cambiano.
+ */
+public final class GlRenderBackend implements RenderBackend {
+
+    private static final int VERTEX_BYTES = VertexArena.VERTEX_BYTES;
+    /** Draw raccolti per chunk al massimo (le sezioni di un chunk di 64 blocchi sono 4). */
+    private static final int MAX_BATCH = 64;
+
+    private final int shaderProgram;
+    private final int modelLoc, highlightLoc, textureLoc;
+    /** Matrice model: solo la traslazione cambia da un chunk all'altro. */
+    private final float[] model = new float[16];
+    private int highlightX = Integer.MAX_VALUE, highlightY, highlightZ;
+    private boolean samplerSet;
+
+    private final VertexArena arena;
+    private final int vao;
+    private int vbo;
+    /** Id liberi da riusare (l'arena indicizza per id: meglio tenerli piccoli). */
+    private int[] freeIds = new int[16];
+    private int freeIdCount;
+    private int nextId;
+
+    /** Draw del chunk corrente, inviati insieme da {@link #flush()}. */
+    private final IntBuffer firsts = BufferUtils.createIntBuffer(MAX_BATCH);
+    private final IntBuffer counts = BufferUtils.createIntBuffer(MAX_BATCH);
+
+    public GlRenderBackend(int shaderProgram) {
+        this.shaderProgram = shaderProgram;
+        modelLoc = glGetUniformLocation(shaderProgram, "model");
+        highlightLoc = glGetUniformLocation(shaderProgram, "uHighlightBlock");
+        textureLoc = glGetUniformLocation(shaderProgram, "ourTexture");
+        model[0] = model[5] = model[10] = model[15] = 1f;
+
+        GpuResources gpu = GpuResources.get();
+        arena = new VertexArena(VertexArena.INITIAL_CAPACITY);
+        vao = gpu.create(Kind.VERTEX_ARRAY, ChunkPool.OWNER);
+        vbo = createBuffer(arena.capacity());
+        bindAttributes();
+    }
+
+    /** Nuovo VBO di {@code vertices} vertici, legato a {@code GL_ARRAY_BUFFER}. */
+    private static int createBuffer(int vertices) {
+        GpuResources gpu = GpuResources.get();
+        int buffer = gpu.create(Kind.BUFFER, ChunkPool.OWNER);
+        GlState.bindArrayBuffer(buffer);
+        glBufferData(GL_ARRAY_BUFFER, (long) vertices * VERTEX_BYTES, GL_STATIC_DRAW);
+        gpu.setSize(Kind.BUFFER, buffer, (long) vertices * VERTEX_BYTES);
+        return buffer;
+    }
+
+    /** Collega il VBO corrente al VAO. */
+    private void bindAttributes() {
+        GlState.bindVertexArray(vao);
+        GlState.bindArrayBuffer(vbo);
+        // vertice compatto: 2 int letti come uvec2 e spacchettati nello shader
+        glVertexAttribIPointer(0, 2, GL_UNSIGNED_INT, VERTEX_BYTES, 0);
+        glEnableVertexAttribArray(0);
+    }
+
+    @Override
+    public long createMesh() {
+        return freeIdCount > 0 ? freeIds[--freeIdCount] : ++nextId;
+    }
+
+    /** Capacità massima dell'arena in vertici: quella attuale più quanto resta del budget. */
+    private int maxCapacity() {
+        long vertices = arena.capacity() + Math.max(0, GpuResources.get().headroom()) / VERTEX_BYTES;
+        return (int) Math.min(vertices, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean canUpload(long extraBytes) {
+        if (extraBytes <= 0)
+            return true;
+        long vertices = (extraBytes + VERTEX_BYTES - 1) / VERTEX_BYTES;
+        return vertices <= Integer.MAX_VALUE
+                && arena.capacityFor((int) vertices, maxCapacity()) != VertexArena.NONE;
+    }
+
+    @Override
+    public void uploadMesh(long mesh, int[] vertices) {
+        int id = (int) mesh;
+        arena.free(id);
+        int count = vertices.length / MeshBuilder.INTS_PER_VERTEX;
+        if (count == 0)
+            return;
+        int offset = arena.allocate(id, count);
+        if (offset == VertexArena.NONE) {
+            int capacity = arena.capacityFor(count, maxCapacity());
+            if (capacity == VertexArena.NONE)
+                throw new IllegalStateException("Mesh di " + count + " vertici oltre il budget di memoria video: "
+                        + arena.stats());
+            relocate(capacity);
+            offset = arena.allocate(id, count);
+        }
+        GlState.bindArrayBuffer(vbo);
+        glBufferSubData(GL_ARRAY_BUFFER, (long) offset * VERTEX_BYTES, vertices);
+    }
+
+    /** Ricrea il VBO con {@code capacity} vertici, copiandovi le mesh deframmentate. */
+    private void relocate(int capacity) {
+        int old = vbo;
+        List<VertexArena.Move> moves = arena.compact(capacity);
+        vbo = createBuffer(capacity);
+        glBindBuffer(GL_COPY_READ_BUFFER, old);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, vbo);
+        for (VertexArena.Move m : moves)
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, (long) m.from() * VERTEX_BYTES,
+                    (long) m.to() * VERTEX_BYTES, (long) m.size() * VERTEX_BYTES);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        GpuResources.get().delete(Kind.BUFFER, old);
+        bindAttributes();
+    }
+
+    @Override
+    public VertexArena.Stats arenaStats() {
+        return arena.stats();
+    }
+
+    @Override
+    public void clearMesh(long mesh) {
+        arena.free((int) mesh);
+    }
+
+    @Override
+    public void deleteMesh(long mesh) {
+        arena.free((int) mesh);
+        if (freeIdCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        freeIds[freeIdCount++] = (int) mesh;
+    }
+
+    @Override
+    public void beginChunks(int highlightX, int highlightY, int highlightZ) {
+        GlState.useProgram(shaderProgram); // assicura che il programma sia attivo
+        if (highlightX != this.highlightX || highlightY != this.highlightY || highlightZ != this.highlightZ) {
+            glUniform3i(highlightLoc, highlightX, highlightY, highlightZ);
+            this.highlightX = highlightX;
+            this.highlightY = highlightY;
+            this.highlightZ = highlightZ;
+        }
+
+        // atlante condiviso, legato una volta per tutti i chunk
+        GlState.bindTexture(0, TextureRegistry.blockAtlas());
+        if (!samplerSet) {
+            glUniform1i(textureLoc, 0);
+            samplerSet = true;
+        }
+        GlState.bindVertexArray(vao);
+    }
+
+    @Override
+    public void setChunkOrigin(int x, int y, int z) {
+        flush(); // i draw raccolti sono del chunk precedente
+        model[12] = x;
+        model[13] = y;
+        model[14] = z;
+        glUniformMatrix4fv(modelLoc, false, model);
+    }
+
+    @Override
+    public void drawMesh(long mesh, int vertexCount) {
+        if (firsts.position() == MAX_BATCH)
+            flush();
+        firsts.put(arena.offset((int) mesh));
+        counts.put(vertexCount);
+    }
+
+    /** Disegna i draw raccolti con una sola chiamata. */
+    private void flush() {
+        int n = firsts.position();
+        if (n == 0)
+            return;
+        if (n == 1) {
+            glDrawArrays(GL_TRIANGLES, firsts.get(0), counts.get(0));
+        } else {
+            firsts.flip();
+            counts.flip();
+            glMultiDrawArrays(GL_TRIANGLES, firsts, counts);
+        }
+        firsts.clear();
+        counts.clear();
+    }
+
+    @Override
+    public void endChunks() {
+        flush();
+        GlState.bindVertexArray(0);
+    }
+
+    @Override
+    public void close() {
+        System.out.println("Arena dei vertici: " + arena.stats());
+        GpuResources gpu = GpuResources.get();
+        gpu.delete(Kind.BUFFER, vbo);
+        gpu.delete(Kind.VERTEX_ARRAY, vao);
+    }
+}
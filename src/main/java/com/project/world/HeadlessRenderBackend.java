@@ -0,0 +1,170 @@
+package com.project.world;
+
+import java.util.Arrays;
+
+/**
+ * Backend senza GPU: non disegna nulla, tiene le dimensioni delle mesh vive
+ * e conta caricamenti e draw, per misurare il mondo su macchine senza
+ * finestra (server, CI) e per confrontare il lavoro di rendering tra due
+ * versioni. Come il backend OpenGL, il disegno non alloca.
+ *
+ * <p>
+ * Le mesh passano da un {@link VertexArena} con la stessa politica di
+ * {@link GlRenderBackend}, e i draw si contano anche per chiamata al driver
+ * (uno per chunk, come i {@code glMultiDrawArrays}): frammentazione,
+ * compattazioni e chiamate si misurano senza contesto. L'arena cresce solo
+ * entro un budget in byte, come quella OpenGL entro il budget di
+ * {@link com.project.graphics.GpuResources}.
+ */
+public final class HeadlessRenderBackend implements RenderBackend {
+
+    /** Istantanea dei contatori. */
+    public record Stats(int meshes, long bytes, long peakBytes, long uploads, long uploadedBytes, long frames,
+            long draws, long drawCalls, long drawnVertices, VertexArena.Stats arena, long copiedBytes) {
+
+        @Override
+        public String toString() {
+            return String.format("%d mesh (%.1f MiB, picco %.1f), caricamenti %d (%.1f MiB), "
+                    + "frame %d, draw %d in %d chiamate (%.1f per frame, %d vertici), "
+                    + "arena %s, %.1f MiB copiati",
+                    meshes, bytes / MIB, peakBytes / MIB, uploads, uploadedBytes / MIB,
+                    frames, draws, drawCalls, frames == 0 ? 0.0 : (double) drawCalls / frames, drawnVertices,
+                    arena, copiedBytes / MIB);
+        }
+    }
+
+    private static final double MIB = 1024.0 * 1024.0;
+
+    /** Byte dei vertici per handle, -1 per le mesh eliminate (gli handle non vengono riusati). */
+    private long[] sizes = new long[256];
+    private int nextMesh;
+    private int meshes;
+    private long bytes, peakBytes;
+    private long uploads, uploadedBytes;
+    private long frames, draws, drawCalls, drawnVertices;
+    private final VertexArena arena = new VertexArena(VertexArena.INITIAL_CAPACITY);
+    /** Capacità massima dell'arena, in vertici. */
+    private final int maxCapacity;
+    private long copiedBytes;
+    /** Se il chunk corrente ha già aperto una chiamata di disegno. */
+    private boolean batchOpen;
+
+    /** Backend con l'arena libera di crescere. */
+    public HeadlessRenderBackend() {
+        this(Long.MAX_VALUE);
+    }
+
+    /** Backend la cui arena non supera {@code budgetBytes} byte (almeno la capacità iniziale). */
+    public HeadlessRenderBackend(long budgetBytes) {
+        maxCapacity = (int) Math.max(arena.capacity(), Math.min(budgetBytes / VertexArena.VERTEX_BYTES,
+                Integer.MAX_VALUE));
+    }
+
+    @Override
+    public long createMesh() {
+        int mesh = ++nextMesh;
+        if (mesh == sizes.length)
+            sizes = Arrays.copyOf(sizes, sizes.length * 2);
+        sizes[mesh] = 0;
+        meshes++;
+        return mesh;
+    }
+
+    /** Indice della mesh viva, altrimenti eccezione. */
+    private int check(long mesh) {
+        if (mesh <= 0 || mesh > nextMesh || sizes[(int) mesh] < 0)
+            throw new IllegalStateException("Mesh " + mesh + " non esistente");
+        return (int) mesh;
+    }
+
+    @Override
+    public boolean canUpload(long extraBytes) {
+        if (extraBytes <= 0)
+            return true;
+        long vertices = (extraBytes + VertexArena.VERTEX_BYTES - 1) / VertexArena.VERTEX_BYTES;
+        return vertices <= Integer.MAX_VALUE && arena.capacityFor((int) vertices, maxCapacity) != VertexArena.NONE;
+    }
+
+    @Override
+    public void uploadMesh(long mesh, int[] vertices) {
+        long size = (long) vertices.length * Integer.BYTES;
+        resize(mesh, size);
+        int id = (int) mesh;
+        arena.free(id);
+        int count = vertices.length / MeshBuilder.INTS_PER_VERTEX;
+        if (count > 0 && arena.allocate(id, count) == VertexArena.NONE) {
+            int capacity = arena.capacityFor(count, maxCapacity);
+            if (capacity == VertexArena.NONE)
+                throw new IllegalStateException("Mesh di " + count + " vertici oltre il budget: " + arena.stats());
+            for (VertexArena.Move m : arena.compact(capacity))
+                copiedBytes += (long) m.size() * VertexArena.VERTEX_BYTES;
+            arena.allocate(id, count);
+        }
+        uploads++;
+        uploadedBytes += size;
+    }
+
+    @Override
+    public void clearMesh(long mesh) {
+        resize(mesh, 0);
+        arena.free((int) mesh);
+    }
+
+    @Override
+    public void deleteMesh(long mesh) {
+        int i = check(mesh);
+        bytes -= sizes[i];
+        sizes[i] = -1;
+        meshes--;
+        arena.free(i);
+    }
+
+    private void resize(long mesh, long size) {
+        int i = check(mesh);
+        bytes += size - sizes[i];
+        sizes[i] = size;
+        peakBytes = Math.max(peakBytes, bytes);
+    }
+
+    @Override
+    public void beginChunks(int highlightX, int highlightY, int highlightZ) {
+        frames++;
+    }
+
+    @Override
+    public void setChunkOrigin(int x, int y, int z) {
+        batchOpen = false;
+    }
+
+    @Override
+    public void drawMesh(long mesh, int vertexCount) {
+        check(mesh);
+        if (arena.size((int) mesh) < vertexCount)
+            throw new IllegalStateException("Mesh " + mesh + " senza " + vertexCount + " vertici nell'arena");
+        draws++;
+        drawnVertices += vertexCount;
+        if (!batchOpen) {
+            drawCalls++;
+            batchOpen = true;
+        }
+    }
+
+    @Override
+    public void endChunks() {
+        batchOpen = false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public VertexArena.Stats arenaStats() {
+        return arena.stats();
+    }
+
+    public Stats stats() {
+        return new Stats(meshes, bytes, peakBytes, uploads, uploadedBytes, frames, draws, drawCalls, drawnVertices,
+                arena.stats(), copiedBytes);
+    }
+}
@@ -0,0 +1,141 @@
+package com.project.world;
+
+/**
+ * Quote delle colonne di un chunk, tenute aggiornate a ogni modifica così che
+ * "dov'è il suolo qui?" costi una lettura invece di una scansione verticale.
+ *
+ * <p>
+ * Per ogni colonna {@code (x, z)} (indice {@code x * sizeZ + z}) ci sono due
+ * valori, entrambi espressi come quota del primo blocco libero sopra la cima
+ * ({@code y + 1} del blocco più alto, 0 se la colonna è vuota):
+ * <ul>
+ * <li>{@link #top}: il blocco più alto in assoluto, cioè quello che vedono
+ * collisioni e raycast ({@link Chunk#isSolid}), acqua e foglie comprese;</li>
+ * <li>{@link #surface}: il suolo, cioè il blocco più alto che non sia acqua o
+ * foglie (fondale sotto il mare, terreno sotto le chiome).</li>
+ * </ul>
+ */
+public final class Heightmaps {
+
+    private static final byte WATER = BlockType.toId(BlockType.WATER);
+    private static final byte LEAVES = BlockType.toId(BlockType.LEAVES);
+
+    private final int sizeX, sizeY, sizeZ;
+    private final short[] top;
+    private final short[] surface;
+
+    /** Colonne tutte vuote. */
+    Heightmaps(int sizeX, int sizeY, int sizeZ) {
+        this(sizeX, sizeY, sizeZ, ChunkPool.NONE);
+    }
+
+    /** Colonne tutte vuote, con le mappe prese da {@code pool}. */
+    Heightmaps(int sizeX, int sizeY, int sizeZ, ChunkPool pool) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.top = pool.shorts(sizeX * sizeZ);
+        this.surface = pool.shorts(sizeX * sizeZ);
+    }
+
+    /** Calcola entrambe le mappe scandendo ogni colonna dall'alto. */
+    static Heightmaps compute(BlockStorage blocks) {
+        return compute(blocks, ChunkPool.NONE);
+    }
+
+    /** Come {@link #compute(BlockStorage)}, con le mappe prese da {@code pool}. */
+    static Heightmaps compute(BlockStorage blocks, ChunkPool pool) {
+        Heightmaps h = new Heightmaps(blocks.sizeX, blocks.sizeY, blocks.sizeZ, pool);
+        for (int x = 0; x < h.sizeX; x++) {
+            for (int z = 0; z < h.sizeZ; z++) {
+                int i = x * h.sizeZ + z;
+                h.top[i] = (short) scanDown(blocks, x, h.sizeY - 1, z, false);
+                h.surface[i] = (short) scanDown(blocks, x, h.top[i] - 1, z, true);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Ricostruisce le mappe dal formato di {@link #toArray()}.
+     *
+     * @throws IllegalArgumentException se la lunghezza non corrisponde al chunk
+     */
+    static Heightmaps fromArray(int sizeX, int sizeY, int sizeZ, short[] packed, ChunkPool pool) {
+        int columns = sizeX * sizeZ;
+        if (packed.length != 2 * columns)
+            throw new IllegalArgumentException("Heightmap di " + packed.length + " valori per " + columns + " colonne");
+        Heightmaps h = new Heightmaps(sizeX, sizeY, sizeZ, pool);
+        System.arraycopy(packed, 0, h.top, 0, columns);
+        System.arraycopy(packed, columns, h.surface, 0, columns);
+        return h;
+    }
+
+    /** Copia delle due mappe in un solo array: prima {@link #top}, poi {@link #surface}. */
+    public short[] toArray() {
+        int columns = top.length;
+        short[] packed = new short[2 * columns];
+        System.arraycopy(top, 0, packed, 0, columns);
+        System.arraycopy(surface, 0, packed, columns, columns);
+        return packed;
+    }
+
+    /** Restituisce le mappe al pool; l'oggetto non va più usato. */
+    void release(ChunkPool pool) {
+        pool.release(top);
+        pool.release(surface);
+    }
+
+    /** Quota sopra il blocco più alto della colonna (0 = colonna vuota). */
+    public int top(int x, int z) {
+        return top[x * sizeZ + z];
+    }
+
+    /** Quota sopra il suolo della colonna, acqua e foglie escluse (0 = nessun suolo). */
+    public int surface(int x, int z) {
+        return surface[x * sizeZ + z];
+    }
+
+    /** {@code true} se il blocco conta come suolo per {@link #surface}. */
+    static boolean isGround(byte id) {
+        return id != BlockType.AIR && id != WATER && id != LEAVES;
+    }
+
+    /** Imposta le quote di una colonna (generazione del terreno). */
+    void setColumn(int x, int z, int top, int surface) {
+        int i = x * sizeZ + z;
+        this.top[i] = (short) top;
+        this.surface[i] = (short) surface;
+    }
+
+    /** Aggiorna la colonna dopo aver messo il blocco {@code id} in {@code (x, y, z)}. */
+    void onPlaced(int x, int y, int z, byte id) {
+        int i = x * sizeZ + z;
+        if (y >= top[i])
+            top[i] = (short) (y + 1);
+        if (y >= surface[i] && isGround(id))
+            surface[i] = (short) (y + 1);
+    }
+
+    /**
+     * Aggiorna la colonna dopo aver tolto il blocco in {@code (x, y, z)}: se era
+     * la cima si scende fino al prossimo blocco, altrimenti non cambia nulla.
+     */
+    void onRemoved(BlockStorage blocks, int x, int y, int z) {
+        int i = x * sizeZ + z;
+        if (y + 1 == top[i])
+            top[i] = (short) scanDown(blocks, x, y - 1, z, false);
+        if (y + 1 == surface[i])
+            surface[i] = (short) scanDown(blocks, x, Math.min(y - 1, top[i] - 1), z, true);
+    }
+
+    /** Quota sopra il primo blocco (o il primo suolo) da {@code fromY} in giù, 0 se non c'è. */
+    private static int scanDown(BlockStorage blocks, int x, int fromY, int z, boolean ground) {
+        for (int y = fromY; y >= 0; y--) {
+            byte id = blocks.get(x, y, z);
+            if (ground ? isGround(id) : id != BlockType.AIR)
+                return y + 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.project.world;
+
+import java.util.Arrays;
+
+/**
+ * Arena di int riutilizzabile per costruire le mesh dei chunk senza
+ * boxing né allocazioni per vertice: l'array cresce fino alla mesh più grande
+ * vista dal thread e poi resta lì. Alla fine del chunk si copia solo la parte
+ * usata ({@link #toArray()}).
+ *
+ * <p>
+ * Ogni vertice occupa due int (8 byte) letti dallo shader come {@code uvec2}:
+ *
+ * <pre>
+ * int 0: bit  0-6  x (0..127)    bit 7-14  y (0..255)     bit 15-21 z (0..127)
+ * int 1: bit  0-5  colonna del tassello   bit 6-10  riga del tassello
+ *        bit 11-18 u locale (0..255)      bit 19-26 v locale (0..255)
+ * </pre>
+ *
+ * Le coordinate sono locali al chunk (estremo superiore incluso), le UV locali
+ * sono in tasselli e valgono al massimo l'estensione del quad.
+ *
+ * <p>
+ * Non è thread-safe: ogni thread usa la propria istanza tramite
+ * {@link #forCurrentThread()}.
+ */
+public final class MeshBuilder {
+
+    /** Int per vertice (vedi layout sopra). */
+    public static final int INTS_PER_VERTEX = 2;
+
+    /** Dimensioni massime di un chunk rappresentabili nel formato compatto. */
+    public static final int MAX_SIZE_XZ = 127, MAX_SIZE_Y = 255;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<MeshBuilder> PER_THREAD = ThreadLocal.withInitial(MeshBuilder::new);
+
+    private int[] data = new int[INITIAL_CAPACITY];
+    private int size;
+    /** Spazi di lavoro del mesher, riusati tra i chunk. */
+    private int[] mask = new int[0];
+    private byte[] ids = new byte[0];
+
+    /** Arena del thread corrente, già svuotata. */
+    public static MeshBuilder forCurrentThread() {
+        MeshBuilder builder = PER_THREAD.get();
+        builder.reset();
+        return builder;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    /** Garantisce spazio per altri {@code vertices} vertici. */
+    public void ensureCapacity(int vertices) {
+        int ints = vertices * INTS_PER_VERTEX;
+        if (size + ints > data.length)
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + ints));
+    }
+
+    /** Aggiunge un vertice; lo spazio va garantito prima con {@link #ensureCapacity}. */
+    public void vertex(int x, int y, int z, int tileU, int tileV, int localU, int localV) {
+        int i = size;
+        data[i] = x | y << 7 | z << 15;
+        data[i + 1] = tileU | tileV << 6 | localU << 11 | localV << 19;
+        size = i + INTS_PER_VERTEX;
+    }
+
+    /** Maschera azzerata di almeno {@code length} celle. */
+    int[] mask(int length) {
+        if (mask.length < length)
+            mask = new int[length];
+        else
+            Arrays.fill(mask, 0, length, 0);
+        return mask;
+    }
+
+    /** Array di almeno {@code length} id di blocco (contenuto da sovrascrivere). */
+    byte[] ids(int length) {
+        if (ids.length < length)
+            ids = new byte[length];
+        return ids;
+    }
+
+    public int vertexCount() {
+        return size / INTS_PER_VERTEX;
+    }
+
+    /** Copia dei soli vertici scritti: è l'unica allocazione per chunk. */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
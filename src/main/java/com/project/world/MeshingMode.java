@@ -0,0 +1,25 @@
+package com.project.world;
+
+/**
+ * Strategia di costruzione della mesh dei chunk.
+ *
+ * <p>
+ * Si sceglie all'avvio con {@code -Dmeshing=per-face} oppure
+ * {@code -Dmeshing=greedy} (predefinito).
+ */
+public enum MeshingMode {
+    /** Due triangoli per ogni faccia visibile. */
+    PER_FACE,
+    /** Facce complanari adiacenti dello stesso tipo fuse in rettangoli più grandi. */
+    GREEDY;
+
+    /** Modalità indicata dalla proprietà di sistema {@code meshing}. */
+    public static MeshingMode fromSystemProperty() {
+        String value = System.getProperty("meshing", "greedy");
+        return switch (value.toLowerCase()) {
+            case "per-face", "per_face", "face" -> PER_FACE;
+            case "greedy" -> GREEDY;
+            default -> throw new IllegalArgumentException("Modalità di meshing sconosciuta: " + value);
+        };
+    }
+}
@@ -0,0 +1,105 @@
+package com.project.world;
+
+/**
+ * Bitset dei blocchi pieni di un chunk (un bit per cella, 1 = non aria),
+ * tenuto accanto ai blocchi per le query di collisione: rispondere "c'è
+ * qualcosa in questo volume?" costa qualche AND su parole intere invece di
+ * una lettura di palette per ogni punto.
+ *
+ * <p>
+ * I bit sono ordinati per colonna: la colonna {@code (x, z)} occupa
+ * {@code ceil(sizeY / 64)} parole consecutive a partire da
+ * {@code (x * sizeZ + z) * words}, con il bit {@code y & 63} della parola
+ * {@code y >> 6}. Un intervallo di quote di una colonna si verifica quindi con
+ * una o due maschere.
+ *
+ * <p>
+ * Come i blocchi, si scrive solo dal thread che possiede il chunk.
+ */
+final class Occupancy {
+
+    private final int sizeZ;
+    /** Parole per colonna. */
+    private final int words;
+    private final long[] bits;
+
+    /** Chunk vuoto. */
+    Occupancy(int sizeX, int sizeY, int sizeZ) {
+        this(sizeX, sizeY, sizeZ, ChunkPool.NONE);
+    }
+
+    /** Chunk vuoto, con il bitset preso da {@code pool}. */
+    Occupancy(int sizeX, int sizeY, int sizeZ, ChunkPool pool) {
+        this.sizeZ = sizeZ;
+        this.words = (sizeY + Long.SIZE - 1) / Long.SIZE;
+        this.bits = pool.longs(sizeX * sizeZ * words);
+    }
+
+    /** Bitset degli id nell'ordine del chunk ({@code (x * sizeY + y) * sizeZ + z}). */
+    static Occupancy fromIds(int sizeX, int sizeY, int sizeZ, byte[] ids, ChunkPool pool) {
+        Occupancy o = new Occupancy(sizeX, sizeY, sizeZ, pool);
+        int i = 0;
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                long bit = 1L << y;
+                int w = (x * sizeZ) * o.words + (y >> 6);
+                for (int z = 0; z < sizeZ; z++, i++, w += o.words) {
+                    if (ids[i] != BlockType.AIR)
+                        o.bits[w] |= bit;
+                }
+            }
+        }
+        return o;
+    }
+
+    /** Restituisce il bitset al pool; l'oggetto non va più usato. */
+    void release(ChunkPool pool) {
+        pool.release(bits);
+    }
+
+    private int word(int x, int y, int z) {
+        return (x * sizeZ + z) * words + (y >> 6);
+    }
+
+    /** Coordinate già dentro il chunk. */
+    boolean get(int x, int y, int z) {
+        return (bits[word(x, y, z)] & (1L << y)) != 0;
+    }
+
+    void set(int x, int y, int z, boolean solid) {
+        int w = word(x, y, z);
+        if (solid)
+            bits[w] |= 1L << y;
+        else
+            bits[w] &= ~(1L << y);
+    }
+
+    /** {@code true} se la colonna {@code (x, z)} ha un blocco con {@code y0 <= y <= y1}. */
+    boolean anyInColumn(int x, int z, int y0, int y1) {
+        int base = (x * sizeZ + z) * words;
+        for (int w = y0 >> 6; w <= y1 >> 6; w++) {
+            long mask = -1L;
+            if (w == y0 >> 6)
+                mask &= -1L << y0; // lo shift usa solo i 6 bit bassi
+            if (w == y1 >> 6)
+                mask &= -1L >>> (63 - (y1 & 63));
+            if ((bits[base + w] & mask) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@code true} se almeno una cella del box è piena; estremi inclusi e già
+     * ritagliati sul chunk ({@code y0 <= y1 < sizeY}).
+     */
+    boolean any(int x0, int y0, int z0, int x1, int y1, int z1) {
+        for (int x = x0; x <= x1; x++) {
+            for (int z = z0; z <= z1; z++) {
+                if (anyInColumn(x, z, y0, y1))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
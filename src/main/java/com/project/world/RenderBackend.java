@@ -0,0 +1,59 @@
+package com.project.world;
+
+/**
+ * Destinazione delle mesh dei chunk: {@link Chunk} e {@link World} non
+ * chiamano OpenGL, consegnano vertici e comandi di disegno a un backend.
+ * {@link GlRenderBackend} li porta sulla GPU; {@link HeadlessRenderBackend}
+ * li conta soltanto, così generazione, meshing, streaming e salvataggi
+ * girano (e si misurano) senza finestra né contesto.
+ *
+ * <p>
+ * Una mesh è identificata da un handle opaco diverso da zero, valido finché
+ * non viene eliminata. I vertici sono nel formato di {@link MeshBuilder}.
+ * Tutti i metodi vanno chiamati dal thread di rendering.
+ */
+public interface RenderBackend {
+
+    /** Crea una mesh vuota. */
+    long createMesh();
+
+    /**
+     * {@code true} se altri {@code extraBytes} di vertici (negativi: liberati)
+     * si possono caricare, nello spazio libero delle mesh o facendolo crescere
+     * entro il budget di memoria video. Chi carica mesh controlla prima.
+     */
+    boolean canUpload(long extraBytes);
+
+    /** Occupazione dello spazio delle mesh, su cui decide {@link #canUpload}. */
+    VertexArena.Stats arenaStats();
+
+    /**
+     * Sostituisce i vertici della mesh.
+     *
+     * @throws IllegalStateException se i vertici non stanno nel budget (vedi {@link #canUpload})
+     */
+    void uploadMesh(long mesh, int[] vertices);
+
+    /** Libera i vertici ma tiene la mesh, per riusarla con {@link #uploadMesh}. */
+    void clearMesh(long mesh);
+
+    void deleteMesh(long mesh);
+
+    /**
+     * Inizio del disegno dei chunk di un frame.
+     *
+     * @param highlightX blocco evidenziato, {@code Integer.MIN_VALUE} se nessuno
+     */
+    void beginChunks(int highlightX, int highlightY, int highlightZ);
+
+    /** Origine in coordinate mondo del chunk disegnato dalle prossime {@link #drawMesh}. */
+    void setChunkOrigin(int x, int y, int z);
+
+    void drawMesh(long mesh, int vertexCount);
+
+    /** Fine del disegno dei chunk del frame. */
+    void endChunks();
+
+    /** Libera le risorse del backend, dopo che tutte le mesh sono state eliminate. */
+    void close();
+}
@@ -0,0 +1,152 @@
+package com.project.world;
+
+import java.util.Arrays;
+
+/**
+ * Grafo di visibilità di una {@link ChunkSection}: quali coppie delle sei
+ * facce sono collegate da celle d'aria all'interno della sezione. Se dalla
+ * faccia da cui si entra non si arriva a quella da cui si vorrebbe uscire, da
+ * lì non si vede nulla di ciò che sta oltre. Lo usa {@link VisibilityWalk}
+ * per scartare le sezioni sotterranee nascoste dalla roccia.
+ *
+ * <p>
+ * Il grafo è una matrice 6×6 di bit in un {@code long}: il bit
+ * {@code from * 6 + to} (ordinali di {@link Direction}) vale 1 se le due
+ * facce si vedono; la diagonale dice se la faccia ha almeno una cella
+ * d'aria. Si calcola con un flood fill che parte dalle sole celle di bordo
+ * (le sacche chiuse non collegano nulla), su un array di id scompattato come
+ * quello di {@link ChunkMesher}. Solo CPU; il lavoro temporaneo sta in array
+ * del thread corrente.
+ */
+final class SectionVisibility {
+
+    private static final int FACES = 6;
+    /** Tutte le facce collegate: sezione d'aria, o grafo non ancora calcolato. */
+    static final long ALL = (1L << (FACES * FACES)) - 1;
+
+    private static final int UP = Direction.UP.ordinal(), DOWN = Direction.DOWN.ordinal();
+    private static final int NORTH = Direction.NORTH.ordinal(), SOUTH = Direction.SOUTH.ordinal();
+    private static final int EAST = Direction.EAST.ordinal(), WEST = Direction.WEST.ordinal();
+
+    /** Celle visitate (un bit per cella della sezione) e coda del flood fill. */
+    private static final class Scratch {
+        long[] visited = new long[0];
+        int[] queue = new int[0];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private SectionVisibility() {
+    }
+
+    /** {@code true} se nel grafo si passa dalla faccia {@code from} alla faccia {@code to}. */
+    static boolean connected(long graph, int from, int to) {
+        return (graph & (1L << (from * FACES + to))) != 0;
+    }
+
+    /**
+     * Grafo della fascia {@code [y0, y1)} dell'array {@code ids} (ordine del
+     * chunk, cella {@code (x, y, z)} all'indice {@code (x * sy + y) * sz + z}),
+     * di cui servono solo le righe della fascia.
+     */
+    static long compute(byte[] ids, int sx, int sy, int sz, int y0, int y1) {
+        int h = y1 - y0, layer = h * sz, cells = sx * layer;
+        Scratch s = SCRATCH.get();
+        int words = (cells + Long.SIZE - 1) / Long.SIZE;
+        if (s.visited.length < words)
+            s.visited = new long[words];
+        else
+            Arrays.fill(s.visited, 0, words, 0L);
+        if (s.queue.length < cells)
+            s.queue = new int[cells];
+
+        long graph = 0;
+        for (int x = 0; x < sx; x++) {
+            boolean sideX = x == 0 || x == sx - 1;
+            for (int ly = 0; ly < h; ly++) {
+                boolean side = sideX || ly == 0 || ly == h - 1;
+                // all'interno bastano la prima e l'ultima cella della riga
+                int step = side ? 1 : Math.max(sz - 1, 1);
+                for (int z = 0; z < sz; z += step) {
+                    int cell = (x * h + ly) * sz + z;
+                    if (isVisited(s.visited, cell) || ids[(x * sy + y0 + ly) * sz + z] != BlockType.AIR)
+                        continue;
+                    graph |= pairs(fill(ids, sx, sy, sz, y0, h, cell, s));
+                    if (graph == ALL)
+                        return ALL;
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static boolean isVisited(long[] visited, int cell) {
+        return (visited[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /** Visita la regione d'aria di {@code start}; restituisce le facce che tocca, un bit per faccia. */
+    private static int fill(byte[] ids, int sx, int sy, int sz, int y0, int h, int start, Scratch s) {
+        long[] visited = s.visited;
+        int[] queue = s.queue;
+        int layer = h * sz;
+        int head = 0, tail = 0;
+        visited[start >>> 6] |= 1L << start;
+        queue[tail++] = start;
+        int faces = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell / layer, rest = cell - x * layer;
+            int ly = rest / sz, z = rest - ly * sz;
+            int id = (x * sy + y0 + ly) * sz + z; // stessa cella nell'array del chunk
+
+            if (x == 0)
+                faces |= 1 << WEST;
+            else
+                tail = visit(ids, id - sy * sz, cell - layer, visited, queue, tail);
+            if (x == sx - 1)
+                faces |= 1 << EAST;
+            else
+                tail = visit(ids, id + sy * sz, cell + layer, visited, queue, tail);
+            if (ly == 0)
+                faces |= 1 << DOWN;
+            else
+                tail = visit(ids, id - sz, cell - sz, visited, queue, tail);
+            if (ly == h - 1)
+                faces |= 1 << UP;
+            else
+                tail = visit(ids, id + sz, cell + sz, visited, queue, tail);
+            if (z == 0)
+                faces |= 1 << NORTH;
+            else
+                tail = visit(ids, id - 1, cell - 1, visited, queue, tail);
+            if (z == sz - 1)
+                faces |= 1 << SOUTH;
+            else
+                tail = visit(ids, id + 1, cell + 1, visited, queue, tail);
+        }
+        return faces;
+    }
+
+    /** Accoda la cella se è d'aria e non ancora visitata; restituisce la nuova coda. */
+    private static int visit(byte[] ids, int id, int cell, long[] visited, int[] queue, int tail) {
+        long bit = 1L << cell;
+        if ((visited[cell >>> 6] & bit) != 0 || ids[id] != BlockType.AIR)
+            return tail;
+        visited[cell >>> 6] |= bit;
+        queue[tail] = cell;
+        return tail + 1;
+    }
+
+    /** Tutte le coppie (diagonale compresa) delle facce in {@code faces}. */
+    private static long pairs(int faces) {
+        long graph = 0;
+        for (int from = 0; from < FACES; from++) {
+            if ((faces & (1 << from)) == 0)
+                continue;
+            for (int to = 0; to < FACES; to++)
+                if ((faces & (1 << to)) != 0)
+                    graph |= 1L << (from * FACES + to);
+        }
+        return graph;
+    }
+}
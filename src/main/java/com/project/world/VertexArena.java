@@ -0,0 +1,221 @@
+package com.project.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Allocatore di un unico buffer di vertici condiviso dalle mesh dei chunk:
+ * ogni mesh (identificata da un intero positivo) occupa un intervallo
+ * contiguo, misurato in vertici. Solo contabilità, senza OpenGL: il backend
+ * copia i dati dove dice l'allocatore.
+ *
+ * <p>
+ * Gli intervalli liberi stanno in una lista ordinata per posizione e si
+ * fondono con i vicini quando una mesh viene liberata; la ricerca è
+ * first-fit. Quando una mesh non trova posto {@link #compact} deframmenta,
+ * spostando tutte le mesh in testa al buffer (eventualmente più grande,
+ * vedi {@link #capacityFor}), e restituisce le copie da fare.
+ *
+ * <p>
+ * Non thread-safe: lo usa il thread di rendering.
+ */
+public final class VertexArena {
+
+    /** Risultato di {@link #allocate} quando non c'è un intervallo libero abbastanza grande. */
+    public static final int NONE = -1;
+    /** Byte di un vertice nel formato di {@link MeshBuilder}. */
+    public static final int VERTEX_BYTES = MeshBuilder.INTS_PER_VERTEX * Integer.BYTES;
+    /** Capacità iniziale in vertici per i backend ({@code -DvertexArena=<MiB>}); poi raddoppia se serve. */
+    public static final int INITIAL_CAPACITY =
+            (int) (Long.getLong("vertexArena", 32) * 1024 * 1024 / VERTEX_BYTES);
+
+    /** Copia di {@code size} vertici da {@code from} (buffer vecchio) a {@code to} (buffer nuovo). */
+    public record Move(int from, int to, int size) {
+    }
+
+    /** Istantanea dell'occupazione. */
+    public record Stats(int capacity, int used, int allocations, int freeBlocks, int largestFree, long compactions) {
+
+        /** Frazione dello spazio libero che non sta nel blocco libero più grande. */
+        public double fragmentation() {
+            int free = capacity - used;
+            return free == 0 ? 0 : 1 - (double) largestFree / free;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d vertici usati da %d mesh, %d blocchi liberi (frammentazione %.0f%%), "
+                    + "%d compattazioni", used, capacity, allocations, freeBlocks, fragmentation() * 100,
+                    compactions);
+        }
+    }
+
+    /** Intervalli liberi: posizione → lunghezza, mai adiacenti tra loro. */
+    private final TreeMap<Integer, Integer> free = new TreeMap<>();
+    /** Posizione e lunghezza per id, {@link #NONE} se l'id non ha un intervallo. */
+    private int[] offsets = new int[0];
+    private int[] sizes = new int[0];
+    private int capacity;
+    private int used;
+    private int allocations;
+    private long compactions;
+
+    public VertexArena(int capacity) {
+        this.capacity = capacity;
+        if (capacity > 0)
+            free.put(0, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Posizione del primo vertice della mesh {@code id}, {@link #NONE} se non ne ha. */
+    public int offset(int id) {
+        return id < offsets.length ? offsets[id] : NONE;
+    }
+
+    /** Vertici riservati alla mesh {@code id} (0 se non ne ha). */
+    public int size(int id) {
+        return id < offsets.length && offsets[id] != NONE ? sizes[id] : 0;
+    }
+
+    /**
+     * Riserva {@code size} vertici alla mesh {@code id}, che non deve averne già.
+     *
+     * @return la posizione, oppure {@link #NONE} se nessun intervallo libero basta
+     */
+    public int allocate(int id, int size) {
+        if (id <= 0 || size <= 0)
+            throw new IllegalArgumentException("id " + id + ", " + size + " vertici");
+        if (offset(id) != NONE)
+            throw new IllegalStateException("La mesh " + id + " ha già un intervallo");
+        for (Iterator<Map.Entry<Integer, Integer>> it = free.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Integer, Integer> block = it.next();
+            int length = block.getValue();
+            if (length < size)
+                continue;
+            int offset = block.getKey();
+            it.remove();
+            if (length > size)
+                free.put(offset + size, length - size);
+            assign(id, offset, size);
+            return offset;
+        }
+        return NONE;
+    }
+
+    private void assign(int id, int offset, int size) {
+        if (id >= offsets.length) {
+            int length = Math.max(id + 1, offsets.length * 2);
+            int old = offsets.length;
+            offsets = Arrays.copyOf(offsets, length);
+            sizes = Arrays.copyOf(sizes, length);
+            Arrays.fill(offsets, old, length, NONE);
+        }
+        offsets[id] = offset;
+        sizes[id] = size;
+        used += size;
+        allocations++;
+    }
+
+    /** Libera l'intervallo della mesh {@code id}, fondendolo con quelli liberi adiacenti; nulla se non ne ha. */
+    public void free(int id) {
+        int offset = offset(id);
+        if (offset == NONE)
+            return;
+        int size = sizes[id];
+        offsets[id] = NONE;
+        used -= size;
+        allocations--;
+
+        Map.Entry<Integer, Integer> before = free.lowerEntry(offset);
+        if (before != null && before.getKey() + before.getValue() == offset) {
+            offset = before.getKey();
+            size += before.getValue();
+        }
+        Integer after = free.remove(offset + size);
+        if (after != null)
+            size += after;
+        free.put(offset, size);
+    }
+
+    /**
+     * Capacità con cui compattare per far posto a {@code size} vertici: la
+     * stessa se lo spazio libero basta (si deframmenta soltanto), altrimenti il
+     * doppio, o quanto serve se non basta neanche quello.
+     */
+    public int capacityFor(int size) {
+        return capacityFor(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Come {@link #capacityFor(int)}, senza superare {@code maxCapacity}: se il
+     * doppio non ci sta si cresce solo fin dove si può.
+     *
+     * @return la capacità, oppure {@link #NONE} se {@code size} vertici non
+     *         stanno neanche in {@code maxCapacity}
+     */
+    public int capacityFor(int size, int maxCapacity) {
+        if (capacity - used >= size)
+            return capacity;
+        long needed = (long) used + size;
+        if (needed > maxCapacity)
+            return NONE;
+        return (int) Math.min(Math.max(capacity * 2L, needed), maxCapacity);
+    }
+
+    /**
+     * Sposta tutte le mesh in testa a un buffer di {@code newCapacity} vertici,
+     * nell'ordine in cui si trovano, lasciando un unico intervallo libero in coda.
+     *
+     * @return le copie dal buffer vecchio al nuovo; intervalli contigui sono fusi in una copia
+     */
+    public List<Move> compact(int newCapacity) {
+        if (newCapacity < used)
+            throw new IllegalArgumentException(newCapacity + " vertici, " + used + " in uso");
+        Integer[] ids = new Integer[allocations];
+        int n = 0;
+        for (int id = 0; id < offsets.length; id++)
+            if (offsets[id] != NONE)
+                ids[n++] = id;
+        Arrays.sort(ids, (a, b) -> Integer.compare(offsets[a], offsets[b]));
+
+        List<Move> moves = new ArrayList<>();
+        int to = 0, runFrom = 0, runTo = 0, runSize = 0;
+        for (int id : ids) {
+            int from = offsets[id];
+            if (runSize > 0 && from == runFrom + runSize) {
+                runSize += sizes[id]; // contiguo al precedente: stessa copia
+            } else {
+                if (runSize > 0)
+                    moves.add(new Move(runFrom, runTo, runSize));
+                runFrom = from;
+                runTo = to;
+                runSize = sizes[id];
+            }
+            offsets[id] = to;
+            to += sizes[id];
+        }
+        if (runSize > 0)
+            moves.add(new Move(runFrom, runTo, runSize));
+
+        capacity = newCapacity;
+        free.clear();
+        if (capacity > used)
+            free.put(used, capacity - used);
+        compactions++;
+        return moves;
+    }
+
+    public Stats stats() {
+        int largest = 0;
+        for (int length : free.values())
+            largest = Math.max(largest, length);
+        return new Stats(capacity, used, allocations, free.size(), largest, compactions);
+    }
+}
@@ -0,0 +1,104 @@
+package com.project.world;
+
+import java.util.Arrays;
+
+import com.project.graphics.Camera;
+
+/**
+ * Occlusion culling delle sezioni: una visita in ampiezza che parte dalla
+ * sezione della camera e passa da una sezione alla vicina solo se, nel grafo
+ * di visibilità ({@link SectionVisibility}), la faccia da cui si è entrati
+ * vede quella da cui si esce. Le sezioni non raggiunte sono nascoste dalla
+ * roccia anche se stanno nel frustum: gallerie chiuse, il sottosuolo visto
+ * dalla superficie, la superficie vista da una grotta.
+ *
+ * <p>
+ * Come una linea di vista, la visita non torna indietro: una direzione già
+ * presa esclude la sua opposta. Si entra solo nelle sezioni nel frustum e si
+ * segue il collegamento tra chunk ({@link Chunk#neighbour}), quindi la visita
+ * si ferma dove il mondo non è caricato. Le sezioni raggiunte vengono
+ * marcate con il numero della visita, senza insiemi da svuotare; la coda
+ * cresce solo le prime volte. Solo thread di rendering.
+ */
+final class VisibilityWalk {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int[] OPPOSITE = new int[DIRECTIONS.length];
+    /** Faccia d'ingresso della sezione di partenza, da cui si può uscire ovunque. */
+    private static final int NO_FACE = 7;
+
+    static {
+        for (Direction d : DIRECTIONS)
+            OPPOSITE[d.ordinal()] = d.opposite().ordinal();
+    }
+
+    /** Coda: chunk e, impacchettati, sezione, faccia d'ingresso e direzioni prese. */
+    private Chunk[] queueChunks = new Chunk[256];
+    private int[] queueInfo = new int[256];
+    private int stamp;
+    private Camera cam;
+
+    /**
+     * Marca le sezioni visibili dalla sezione {@code section} di
+     * {@code start}, dove sta la camera.
+     *
+     * @return le sezioni raggiunte
+     */
+    int run(Chunk start, int section, Camera cam) {
+        this.cam = cam;
+        stamp++;
+        int head = 0, tail = 0;
+        start.section(section).walkStamp = stamp;
+        tail = push(tail, start, section, NO_FACE, 0);
+        while (head < tail) {
+            Chunk chunk = queueChunks[head];
+            int info = queueInfo[head];
+            queueChunks[head++] = null;
+            int index = info & 0xFF, entry = (info >>> 8) & 0xF, taken = info >>> 12;
+            long graph = chunk.section(index).visibility();
+            for (Direction dir : DIRECTIONS) {
+                int d = dir.ordinal();
+                if ((taken & (1 << OPPOSITE[d])) != 0)
+                    continue; // si tornerebbe indietro
+                if (entry != NO_FACE && !SectionVisibility.connected(graph, entry, d))
+                    continue; // dall'ingresso quella faccia non si vede
+                Chunk next = chunk;
+                int nextIndex = index + dir.dy;
+                if (dir.dy == 0 || nextIndex < 0 || nextIndex >= chunk.sectionCount()) {
+                    next = chunk.neighbour(dir);
+                    if (next == null)
+                        continue;
+                    if (dir.dy != 0)
+                        nextIndex = dir.dy > 0 ? 0 : next.sectionCount() - 1;
+                }
+                ChunkSection s = next.section(nextIndex);
+                if (s.walkStamp == stamp || !inFrustum(next, s))
+                    continue;
+                s.walkStamp = stamp;
+                tail = push(tail, next, nextIndex, OPPOSITE[d], taken | (1 << d));
+            }
+        }
+        this.cam = null;
+        return tail;
+    }
+
+    private boolean inFrustum(Chunk c, ChunkSection s) {
+        int x = c.offsetX(), y = c.offsetY(), z = c.offsetZ();
+        return cam.isAABBInFrustum(x, y + s.y0, z, x + c.sizeX, y + s.y1, z + c.sizeZ);
+    }
+
+    private int push(int tail, Chunk chunk, int section, int entry, int taken) {
+        if (tail == queueChunks.length) {
+            queueChunks = Arrays.copyOf(queueChunks, tail * 2);
+            queueInfo = Arrays.copyOf(queueInfo, tail * 2);
+        }
+        queueChunks[tail] = chunk;
+        queueInfo[tail] = section | entry << 8 | taken << 12;
+        return tail + 1;
+    }
+
+    /** {@code true} se l'ultima visita ha raggiunto la sezione. */
+    boolean reached(ChunkSection section) {
+        return section.walkStamp == stamp;
+    }
+}
@@ -4,24 +4,45 @@ import org.joml.Vector3f;
 
 import com.project.Main;
 import com.project.graphics.Camera;
-import com.project.math.Point2i;
-
-import static org.lwjgl.opengl.GL20.glGetUniformLocation;
-import static org.lwjgl.opengl.GL20.glUniform3i;
-import static org.lwjgl.opengl.GL20.glUseProgram;
+import com.project.math.Point3i;
+import com.project.world.storage.ChunkCache;
+import com.project.world.storage.ChunkCodec;
+import com.project.world.storage.ChunkSaveQueue;
+import com.project.world.storage.RegionStorage;
 
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class World {
 
     // sotto alle altre variabili d’istanza
-    private static final double AUTOSAVE_INTERVAL = 30.0; // secondi
-    private double lastAutosave = 0.0;
+    private static final long AUTOSAVE_INTERVAL_NANOS = 30_000_000_000L; // 30 secondi
+    private long lastAutosave = System.nanoTime();
+    private static final int SAVE_WORKERS = 2;
+    private static final int SAVE_QUEUE_CAPACITY = 64; // chunk in attesa di scrittura
+    private static final int LOAD_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final long UPLOAD_BUDGET_NANOS = 4_000_000L; // tempo massimo di upload GPU per frame
+    /** Array dei chunk scaricati tenuti da parte, in MiB ({@code -DchunkPool=0} per disattivare il riciclo). */
+    private static final long POOL_BYTES = Long.getLong("chunkPool", 64) * 1024 * 1024;
+    private static final int POOL_MESHES = POOL_BYTES > 0 ? 2048 : 0;
+    /** Chunk scaricati in attesa di restituire i blocchi al pool; oltre si lasciano al GC. */
+    private static final int MAX_RETIRED = 256;
+    /**
+     * Isteresi dello scaricamento, in chunk: fino a questa distanza oltre la
+     * vista un chunk resta caricato senza mesh sulla GPU.
+     */
+    private static final int UNLOAD_MARGIN = 1;
+    /** Chunk scaricati tenuti compressi in memoria, in MiB ({@code -DchunkCache=0} per disattivarli). */
+    private static final long CACHE_BYTES = Long.getLong("chunkCache", 64) * 1024 * 1024;
 
     // ---------------- RaycastResult ----------------
     public static class RaycastResult {
@@ -36,30 +57,100 @@ public class World {
 
     // -------------------------------------------------
 
+    /** Lato dei chunk cubici. */
     private static final int CHUNK_SIZE = 64;
+    private static final Direction[] DIRECTIONS = Direction.values();
     private final int viewDistance;
+    /** Raggio verticale dello streaming, in chunk sopra e sotto quello della camera. */
+    private final int verticalViewDistance;
+
+    /** Destinazione delle mesh: OpenGL nel gioco, {@link HeadlessRenderBackend} senza finestra. */
+    private final RenderBackend backend;
+    /** Chunk caricati (solo thread di rendering). */
+    private final ChunkMap chunks = new ChunkMap();
+    private final WorldQueries queries = new WorldQueries(chunks, CHUNK_SIZE);
+    /** Cursore del raycast: attraversa i bordi seguendo i collegamenti tra chunk. */
+    private final BlockCursor cursor = new BlockCursor(chunks, CHUNK_SIZE);
+    private final RegionStorage storage;
+    private final ChunkSaveQueue saveQueue;
+    private final ChunkLoader loader;
+    /** Chunk con blocchi pronti ma mesh non ancora caricata sulla GPU, in ordine di arrivo. */
+    private final Deque<Point3i> uploadQueue = new ArrayDeque<>();
+    /**
+     * Chunk con una ricostruzione della mesh (per i vicini) in corso sui worker,
+     * con il numero progressivo del lavoro.
+     */
+    private final Map<Point3i, Long> remeshing = new HashMap<>();
+    /** Chunk scaricati in compressione verso {@link #cache}, con il numero progressivo del lavoro. */
+    private final Map<Point3i, Long> archiving = new HashMap<>();
+    /** Lavori sui worker che leggono blocchi di chunk già caricati (ricostruzioni e compressioni). */
+    private long jobCount;
+    /** Chunk scaricati, compressi: tra quelli appena fuori vista (ancora caricati) e il disco. */
+    private final ChunkCache cache = new ChunkCache(CACHE_BYTES);
+    /** Chunk tornati in vista mentre erano ancora caricati senza mesh. */
+    private long hotHits;
+    /** Riciclo di array e mesh dei chunk scaricati, per i nuovi chunk. */
+    private final ChunkPool pool = new ChunkPool(POOL_BYTES, POOL_MESHES);
+    /**
+     * Chunk scaricati i cui blocchi possono essere ancora letti da un lavoro
+     * sui worker, in ordine di scaricamento: tornano al pool quando sono finiti
+     * tutti i lavori avviati prima.
+     */
+    private final Deque<Retired> retired = new ArrayDeque<>();
 
-    private final int shaderProgram;
-    private final Map<Point2i, Chunk> chunks = new HashMap<>();
+    /** Chunk scaricato quando erano stati avviati {@code jobCount} lavori. */
+    private record Retired(Chunk chunk, long jobCount) {
+    }
+    /** Quadtree dei chunk caricati per il frustum culling, aggiornato con {@link #chunks}. */
+    private final ChunkCuller culler = new ChunkCuller(CHUNK_SIZE);
+    /** Chunk della camera all'ultimo {@link #update}, {@code null} prima del primo. */
+    private Point3i camChunk;
+    /** Chunk mancanti da richiedere, riusata a ogni {@link #update}. */
+    private final List<Point3i> missing = new ArrayList<>();
+    private final Comparator<Point3i> byCameraDistance = Comparator.comparingInt(this::cameraDistanceSq);
+    /** Visita di {@link #chunks} che scarica, lascia senza mesh o riprende i chunk; creata una volta. */
+    private final ChunkMap.Visitor streamVisitor = this::stream;
+    /** Chiavi dei chunk da scaricare raccolte da {@link #stream}; le prime {@code unloadCount}. */
+    private long[] unloadKeys = new long[64];
+    private int unloadCount;
+    /** Cella e normale dell'ultimo raycast riuscito (solo thread di rendering). */
+    private final org.joml.Vector3i rayHit = new org.joml.Vector3i();
+    private final org.joml.Vector3i rayNormal = new org.joml.Vector3i();
+    /** {@code false} da quando una mesh non sta nel budget di memoria video (per avvisare una volta). */
+    private boolean vramAvailable = true;
+    private boolean cleanedUp = false;
 
     private final org.joml.Vector3i lastPrinted = new org.joml.Vector3i(Integer.MIN_VALUE);
     // evidenziazione blocco puntato
     private final org.joml.Vector3i highlight = new org.joml.Vector3i(Integer.MIN_VALUE); // disattivo finché non c’è un
                                                                                           // blocco
 
-    public World(int shaderProgram, int viewDistance) {
-        this.shaderProgram = shaderProgram;
+    public World(int shaderProgram, int viewDistance) throws IOException {
+        this(new GlRenderBackend(shaderProgram), Main.worldDir, viewDistance);
+    }
+
+    /**
+     * Mondo salvato in {@code worldDir} che consegna le mesh a {@code backend}:
+     * con {@link HeadlessRenderBackend} non serve un contesto OpenGL.
+     */
+    public World(RenderBackend backend, Path worldDir, int viewDistance) throws IOException {
+        this.backend = backend;
         this.viewDistance = viewDistance;
+        this.verticalViewDistance = Math.max(1, viewDistance / 2);
+        this.storage = new RegionStorage(worldDir, CHUNK_SIZE);
+        this.saveQueue = new ChunkSaveQueue(storage, SAVE_WORKERS, SAVE_QUEUE_CAPACITY);
+        this.loader = new ChunkLoader(this::produceChunk, LOAD_WORKERS);
     }
 
     // --- utilità per ricavare il tipo di blocco in coordinate mondo ---
     private BlockType getBlockTypeAt(int wx, int wy, int wz) {
         int cx = Math.floorDiv(wx, CHUNK_SIZE);
+        int cy = Math.floorDiv(wy, CHUNK_SIZE);
         int cz = Math.floorDiv(wz, CHUNK_SIZE);
-        Chunk c = chunks.get(new Point2i(cx, cz));
+        Chunk c = chunks.get(cx, cy, cz);
         if (c == null)
             return null;
-        return c.getBlockType(wx - cx * CHUNK_SIZE, wy, wz - cz * CHUNK_SIZE);
+        return c.getBlockType(wx - cx * CHUNK_SIZE, wy - cy * CHUNK_SIZE, wz - cz * CHUNK_SIZE);
     }
 
     /**
@@ -84,69 +175,298 @@ public class World {
         }
     }
 
+    /**
+     * Un passo dello streaming: carica e scarica i chunk attorno alla camera e
+     * carica sulla GPU le mesh pronte. A regime (nessun chunk che entra o esce
+     * dalla vista) non alloca. Dopo {@link #cleanup()} non fa nulla.
+     */
     public void update(Camera cam) throws IOException {
-        double now = org.lwjgl.glfw.GLFW.glfwGetTime();
-        if (now - lastAutosave >= AUTOSAVE_INTERVAL) {
-            for (Map.Entry<Point2i, Chunk> e : chunks.entrySet()) {
-                Chunk c = e.getValue();
+        if (cleanedUp)
+            return;
+        long now = System.nanoTime(); // non glfwGetTime: il mondo gira anche senza finestra
+        if (now - lastAutosave >= AUTOSAVE_INTERVAL_NANOS) {
+            chunks.forEach((k, c) -> {
                 if (c.isDirty()) {
-                    c.save(chunkFile(e.getKey()));
+                    saveChunk(k, c, false); // se la coda è piena riprova al prossimo giro
                 }
-            }
+            });
+            saveQueue.retryFailed(); // anche le copie dei chunk già scaricati
             lastAutosave = now;
         }
         updateHighlight(cam, 10.0f);
-        Point2i camChunk = worldToChunk(cam.getPosition());
-        // genera nuovi chunk intorno
+        Point3i camChunk = worldToChunk(cam.getPosition());
+        this.camChunk = camChunk;
+
+        // il chunk della camera e quello sotto i piedi non possono mancare: sono gli unici che si attendono
+        if (!chunks.containsKey(key(camChunk)))
+            addChunk(camChunk, loader.await(camChunk));
+        if (!chunks.containsKey(ChunkMap.key(camChunk.x, camChunk.y - 1, camChunk.z))) {
+            Point3i below = new Point3i(camChunk.x, camChunk.y - 1, camChunk.z);
+            addChunk(below, loader.await(below));
+        }
+
+        // richiede ai worker i chunk mancanti, dal più vicino
         for (int dx = -viewDistance; dx <= viewDistance; dx++) {
             for (int dz = -viewDistance; dz <= viewDistance; dz++) {
-                Point2i key = new Point2i(camChunk.x + dx, camChunk.y + dz);
-
-                if (!chunks.containsKey(key)) {
-                    Path p = Path.of("world", Main.worldName, key.x + "_" + key.y + ".nbt");
-                    Chunk c;
-
-                    if (Files.exists(p)) {
-                        c = Chunk.load(shaderProgram, p); // ricrea blocchi e mesh
-                        c.setWorldOffset(key.x * CHUNK_SIZE, // ← AGGIUNGA QUESTA
-                                0,
-                                key.y * CHUNK_SIZE);
-                    } else {
-                        c = new Chunk(shaderProgram, CHUNK_SIZE, 128, CHUNK_SIZE);
-                        c.setWorldOffset(key.x * CHUNK_SIZE, 0, key.y * CHUNK_SIZE);
-                        c.generateTerrain();
-                    }
-                    chunks.put(key, c);
+                for (int dy = -verticalViewDistance; dy <= verticalViewDistance; dy++) {
+                    int cx = camChunk.x + dx, cy = camChunk.y + dy, cz = camChunk.z + dz;
+                    if (chunks.containsKey(ChunkMap.key(cx, cy, cz)))
+                        continue;
+                    Point3i key = new Point3i(cx, cy, cz);
+                    // in compressione: si richiede quando la copia è in cache
+                    if (!loader.isPending(key) && !archiving.containsKey(key))
+                        missing.add(key);
                 }
             }
         }
-        Iterator<Map.Entry<Point2i, Chunk>> it = chunks.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Point2i, Chunk> e = it.next();
-            Point2i k = e.getKey();
-            if (Math.abs(k.x - camChunk.x) > viewDistance ||
-                    Math.abs(k.y - camChunk.y) > viewDistance) {
-
-                Chunk c = e.getValue();
-                if (c.isDirty())
-                    c.save(Path.of("world", Main.worldName, k.x + "_" + k.y + ".nbt"));
-                it.remove();
+        if (!missing.isEmpty()) {
+            missing.sort(byCameraDistance);
+            for (int i = 0; i < missing.size(); i++)
+                loader.request(missing.get(i));
+            missing.clear();
+        }
+
+        // raccoglie i chunk pronti (solo CPU: i blocchi sono subito utilizzabili)
+        ChunkLoader.Ready ready;
+        while ((ready = loader.poll()) != null) {
+            if (inView(ready.key(), camChunk) && !chunks.containsKey(key(ready.key())))
+                addChunk(ready.key(), ready.chunk());
+            else
+                ready.chunk().recycle(); // mai collegato né caricato: nessuno lo legge
+        }
+        collectRemeshed();
+        collectArchived();
+
+        // appena fuori vista: solo blocchi; oltre il margine: cache compressa e disco
+        chunks.forEach(streamVisitor);
+        for (int i = 0; i < unloadCount; i++) {
+            long key = unloadKeys[i];
+            Point3i k = new Point3i(ChunkMap.keyX(key), ChunkMap.keyY(key), ChunkMap.keyZ(key));
+            Chunk c = chunks.remove(key);
+            culler.remove(k.x, k.y, k.z, c);
+            if (c.isDirty())
+                saveChunk(key, c, true);
+            c.cleanup(); // restituisce le mesh al pool
+            unlink(k, c);
+            archive(k, c);
+            retire(c);
+        }
+        unloadCount = 0;
+        uploadMeshes();
+        recycleRetired();
+        // richieste rimaste appena fuori dal raggio dopo uno spostamento
+        if (loader.pendingCount() == 0)
+            return;
+        for (int dx = -viewDistance - 1; dx <= viewDistance + 1; dx++) {
+            for (int dz = -viewDistance - 1; dz <= viewDistance + 1; dz++) {
+                for (int dy = -verticalViewDistance - 1; dy <= verticalViewDistance + 1; dy++) {
+                    if (Math.abs(dx) > viewDistance || Math.abs(dz) > viewDistance
+                            || Math.abs(dy) > verticalViewDistance)
+                        loader.cancel(new Point3i(camChunk.x + dx, camChunk.y + dy, camChunk.z + dz));
+                }
             }
         }
     }
 
-    public void render(Camera cam) {
-        // --- evidenziazione blocco puntato ---
-        glUseProgram(shaderProgram); // assicura che il programma sia attivo
-        glUniform3i(glGetUniformLocation(shaderProgram, "uHighlightBlock"),
-                highlight.x, highlight.y, highlight.z); // highlight impostato da updateHighlight()
-
-        // --- draw dei chunk ---
-        for (Chunk c : chunks.values()) {
-            if (c.isInFrustum(cam)) {
-                c.render(shaderProgram);
+    /**
+     * Visitatore di {@link #update}: toglie la mesh ai chunk appena fuori vista,
+     * la ridà a quelli rientrati e annota in {@link #unloadKeys} quelli oltre il
+     * margine, che si scaricano dopo la visita.
+     */
+    private void stream(long key, Chunk c) {
+        int x = ChunkMap.keyX(key), y = ChunkMap.keyY(key), z = ChunkMap.keyZ(key);
+        if (!within(x, y, z, camChunk, UNLOAD_MARGIN)) {
+            if (unloadCount == unloadKeys.length)
+                unloadKeys = Arrays.copyOf(unloadKeys, unloadCount * 2);
+            unloadKeys[unloadCount++] = key;
+        } else if (!within(x, y, z, camChunk, 0)) {
+            if (!c.isMeshDropped())
+                c.dropMesh();
+        } else if (c.isMeshDropped()) {
+            c.restoreMesh();
+            hotHits++;
+            requestBorderRemesh(new Point3i(x, y, z), c);
+        }
+    }
+
+    private int cameraDistanceSq(Point3i k) {
+        int dx = k.x - camChunk.x, dy = k.y - camChunk.y, dz = k.z - camChunk.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /** Mette da parte un chunk appena scaricato finché i worker possono leggerne i blocchi. */
+    private void retire(Chunk c) {
+        if (retired.size() < MAX_RETIRED)
+            retired.add(new Retired(c, jobCount));
+    }
+
+    /**
+     * Restituisce al pool i blocchi dei chunk scaricati che nessun lavoro in
+     * corso può più leggere: le ricostruzioni richieste dopo lo scaricamento
+     * non li vedono, perché il chunk è già scollegato.
+     */
+    private void recycleRetired() {
+        if (retired.isEmpty())
+            return;
+        long oldest = Long.MAX_VALUE;
+        for (long n : remeshing.values())
+            oldest = Math.min(oldest, n);
+        for (long n : archiving.values())
+            oldest = Math.min(oldest, n);
+        while (!retired.isEmpty() && retired.peek().jobCount() <= oldest)
+            retired.poll().chunk().recycle();
+    }
+
+    /** Fa comprimere su un worker la copia di un chunk appena scaricato, per la cache. */
+    private void archive(Point3i key, Chunk c) {
+        archiving.put(key, jobCount++);
+        loader.archive(key, c, cache);
+    }
+
+    private void collectArchived() {
+        Point3i key;
+        while ((key = loader.pollArchived()) != null)
+            archiving.remove(key);
+    }
+
+    private boolean inView(Point3i key, Point3i camChunk) {
+        return within(key, camChunk, 0);
+    }
+
+    /** {@code true} se il chunk è entro la distanza di vista più {@code margin} chunk su ogni asse. */
+    private boolean within(Point3i key, Point3i camChunk, int margin) {
+        return within(key.x, key.y, key.z, camChunk, margin);
+    }
+
+    private boolean within(int cx, int cy, int cz, Point3i camChunk, int margin) {
+        return Math.abs(cx - camChunk.x) <= viewDistance + margin
+                && Math.abs(cz - camChunk.z) <= viewDistance + margin
+                && Math.abs(cy - camChunk.y) <= verticalViewDistance + margin;
+    }
+
+    private static long key(Point3i p) {
+        return ChunkMap.key(p.x, p.y, p.z);
+    }
+
+    private void addChunk(Point3i key, Chunk c) {
+        chunks.put(key(key), c);
+        culler.add(key.x, key.y, key.z, c);
+        uploadQueue.add(key);
+        for (Direction side : DIRECTIONS) {
+            Point3i k = neighbourKey(key, side);
+            Chunk other = chunks.get(k.x, k.y, k.z);
+            if (other != null) {
+                c.link(side, other);
+                requestBorderRemesh(k, other); // il suo bordo verso c ora è coperto
             }
         }
+        requestBorderRemesh(key, c);
+    }
+
+    /** Scollega un chunk scaricato: i vicini tornano a disegnare il bordo verso di lui. */
+    private void unlink(Point3i key, Chunk c) {
+        c.unlink();
+        for (Direction side : DIRECTIONS) {
+            Point3i k = neighbourKey(key, side);
+            Chunk other = chunks.get(k.x, k.y, k.z);
+            if (other != null)
+                requestBorderRemesh(k, other);
+        }
+    }
+
+    private static Point3i neighbourKey(Point3i key, Direction side) {
+        return new Point3i(key.x + side.dx, key.y + side.dy, key.z + side.dz);
+    }
+
+    /** Fa ricostruire la mesh sui worker se i vicini collegati sono cambiati. */
+    private void requestBorderRemesh(Point3i key, Chunk c) {
+        if (c.isMeshDropped() || !c.needsBorderRemesh() || remeshing.containsKey(key))
+            return; // senza mesh o al termine di quella in corso si ricontrolla
+        remeshing.put(key, jobCount++);
+        loader.remesh(key, c, c.neighbourBlocks(), c.linkedNeighbours(), c.getMeshVersion());
+    }
+
+    /** Adotta le mesh ricostruite e le mette in coda per il caricamento. */
+    private void collectRemeshed() {
+        ChunkLoader.Remeshed r;
+        while ((r = loader.pollRemeshed()) != null) {
+            remeshing.remove(r.key());
+            Chunk c = chunks.get(key(r.key()));
+            if (c != r.chunk() || r.sections() == null)
+                continue; // scaricato nel frattempo o costruzione fallita
+            if (c.installMesh(r.sections(), r.neighbours(), r.version()))
+                uploadQueue.add(r.key());
+            requestBorderRemesh(r.key(), c); // vicini cambiati o mesh superata da una modifica
+        }
+    }
+
+    /**
+     * Fase GL: carica le mesh in attesa finché non si esaurisce il budget del
+     * frame (almeno una per frame, così lo streaming avanza sempre). Una mesh
+     * che non trova posto ({@link RenderBackend#canUpload}: spazio libero
+     * delle mesh più la crescita concessa dal budget di memoria video) resta in
+     * coda, e con lei quelle dopo, finché lo scaricamento dei chunk lontani
+     * non libera spazio.
+     */
+    private void uploadMeshes() {
+        long deadline = System.nanoTime() + UPLOAD_BUDGET_NANOS;
+        Point3i key;
+        while ((key = uploadQueue.peek()) != null) {
+            Chunk c = chunks.get(key(key));
+            boolean fits = c == null || backend.canUpload(c.pendingMeshBytes());
+            if (fits != vramAvailable) {
+                vramAvailable = fits;
+                if (!fits)
+                    System.out.println("Budget di memoria video esaurito, mesh in attesa. Arena: "
+                            + backend.arenaStats());
+            }
+            if (!fits)
+                break;
+            uploadQueue.poll();
+            if (c == null || !c.uploadMesh(backend))
+                continue; // scaricato nel frattempo o già caricato da una modifica
+            if (System.nanoTime() >= deadline)
+                break;
+        }
+    }
+
+    /**
+     * Fase CPU di un chunk, eseguita sui thread di caricamento: legge dal disco
+     * (o dalla coda di salvataggio) oppure genera il terreno, poi costruisce la mesh.
+     */
+    private Chunk produceChunk(Point3i key) throws IOException {
+        Chunk c = loadChunk(key);
+        if (c != null) {
+            c.setWorldOffset(key.x * CHUNK_SIZE, key.y * CHUNK_SIZE, key.z * CHUNK_SIZE);
+        } else {
+            c = new Chunk(CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE, pool);
+            c.setWorldOffset(key.x * CHUNK_SIZE, key.y * CHUNK_SIZE, key.z * CHUNK_SIZE);
+            c.generateTerrain();
+        }
+        return c;
+    }
+
+    /** Disegna le sezioni dei chunk visibili dalla camera; non alloca. Dopo {@link #cleanup()} non fa nulla. */
+    public void render(Camera cam) {
+        if (cleanedUp)
+            return;
+        // highlight impostato da updateHighlight()
+        backend.beginChunks(highlight.x, highlight.y, highlight.z);
+        Vector3f pos = cam.getPosition();
+        Chunk camChunk = chunks.get(Math.floorDiv((int) Math.floor(pos.x), CHUNK_SIZE),
+                Math.floorDiv((int) Math.floor(pos.y), CHUNK_SIZE), Math.floorDiv((int) Math.floor(pos.z), CHUNK_SIZE));
+        culler.render(cam, backend, camChunk);
+        backend.endChunks();
+    }
+
+    /** Attiva o spegne l'occlusion culling delle sezioni (di default {@code -Docclusion}, attivo). */
+    public void setOcclusionCulling(boolean enabled) {
+        culler.setOcclusionEnabled(enabled);
+    }
+
+    /** Contatori del frustum culling dall'avvio. */
+    public ChunkCuller.Stats cullingStats() {
+        return culler.stats();
     }
 
     /**
@@ -155,40 +475,57 @@ public class World {
      * per disattivare l'evidenziazione.
      */
     public void updateHighlight(Camera cam, float maxDistance) {
-        RaycastResult hit = raycast(cam.getPosition(), cam.getFront(), maxDistance);
-        if (hit == null) {
-            highlight.set(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE);
+        if (trace(cam.getPosition(), cam.getFront(), maxDistance)) {
+            highlight.set(rayHit); // senza RaycastResult: si chiama a ogni frame
         } else {
-            highlight.set((int) hit.blockPos.x,
-                    (int) hit.blockPos.y,
-                    (int) hit.blockPos.z);
+            highlight.set(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE);
         }
     }
 
     public void cleanup() {
-        for (Map.Entry<Point2i, Chunk> e : chunks.entrySet()) {
-            Chunk c = e.getValue();
+        if (cleanedUp)
+            return;
+        cleanedUp = true;
+        loader.close(); // i worker leggono dall'archivio: vanno fermati prima
+        chunks.forEach((k, c) -> {
             if (c.isDirty()) {
-                try {
-                    c.save(Path.of("world",
-                            Main.worldName,
-                            e.getKey().x + "_" + e.getKey().y + ".nbt"));
-                } catch (IOException ex) {
-                    ex.printStackTrace(); // logga l’errore ma continua
-                }
+                saveChunk(k, c, true);
             }
-            c.cleanup(); // libera VBO/VAO
+            c.cleanup(); // libera le mesh
+        });
+        retired.clear();
+        System.out.println("Pool dei chunk: " + pool.stats());
+        System.out.println("Frustum culling, " + culler.stats());
+        System.out.println("Chunk ripresi fuori vista: " + hotHits + ", cache compressa: " + cache.stats());
+        pool.clear(backend); // elimina le mesh tenute da parte
+        backend.close();
+        try {
+            saveQueue.close(); // attende le scritture in corso
+            System.out.println("Salvataggi: " + saveQueue.metrics());
+            storage.close(); // chiude i file di regione
+        } catch (IOException ex) {
+            ex.printStackTrace(); // logga l’errore ma continua
         }
     }
 
-    private Point2i worldToChunk(Vector3f pos) {
+    /** Metriche della pipeline di salvataggio (coda, byte scritti, latenza). */
+    public ChunkSaveQueue.Metrics getSaveMetrics() {
+        return saveQueue.metrics();
+    }
+
+    /** Chunk che contiene {@code pos}; se la camera non ha cambiato chunk, lo stesso oggetto di prima. */
+    private Point3i worldToChunk(Vector3f pos) {
         int cx = (int) Math.floor(pos.x / CHUNK_SIZE);
+        int cy = (int) Math.floor(pos.y / CHUNK_SIZE);
         int cz = (int) Math.floor(pos.z / CHUNK_SIZE);
-        return new Point2i(cx, cz);
+        if (camChunk != null && camChunk.x == cx && camChunk.y == cy && camChunk.z == cz)
+            return camChunk;
+        return new Point3i(cx, cy, cz);
     }
 
     /**
-     * Restituisce il terreno più alto **sotto** il giocatore.
+     * Restituisce il terreno più alto **sotto** il giocatore, scendendo di
+     * chunk in chunk finché ce ne sono di caricati.
      *
      * @param worldX coordinate X mondiali
      * @param worldZ coordinate Z mondiali
@@ -198,38 +535,75 @@ public class World {
     public int getGroundUnder(float worldX, float worldZ, int fromY) {
         int cx = (int) Math.floor(worldX / CHUNK_SIZE);
         int cz = (int) Math.floor(worldZ / CHUNK_SIZE);
-        Point2i key = new Point2i(cx, cz);
-        Chunk c = chunks.get(key);
-        if (c == null)
-            return -1;
-
         int lx = (int) (worldX - cx * CHUNK_SIZE);
         int lz = (int) (worldZ - cz * CHUNK_SIZE);
+        int cy = Math.floorDiv(fromY, CHUNK_SIZE);
+        // si scende seguendo i collegamenti: un chunk mancante interrompe la colonna
+        for (Chunk c = chunks.get(cx, cy, cz); c != null; c = c.neighbour(Direction.DOWN), cy--) {
+            int oy = cy * CHUNK_SIZE;
+            int ground = c.getGroundUnder(lx, fromY - oy, lz); // heightmap, scansione solo sotto le sporgenze
+            if (ground >= 0)
+                return oy + ground;
+        }
+        return -1;
+    }
+
+    /**
+     * Quota sopra il blocco più alto della colonna (acqua e foglie comprese)
+     * tra i chunk caricati, -1 se non ce n'è. Letta dalle heightmap, senza
+     * scansioni.
+     */
+    public int getHighestBlockY(int worldX, int worldZ) {
+        return columnHeight(worldX, worldZ, false);
+    }
 
-        int startY = Math.min(fromY, c.sizeY - 1); // limite superiore di ricerca
-        for (int y = startY; y >= 0; y--) {
-            if (c.isSolid(lx, y, lz)) {
-                return y + 1; // livello del pavimento
+    /**
+     * Quota sopra il suolo della colonna (senza acqua e foglie) tra i chunk
+     * caricati, -1 se non ce n'è: è il punto dove far comparire o appoggiare
+     * qualcosa.
+     */
+    public int getSurfaceY(int worldX, int worldZ) {
+        return columnHeight(worldX, worldZ, true);
+    }
+
+    /** Prima quota non nulla delle heightmap scendendo dal chunk caricato più alto. */
+    private int columnHeight(int worldX, int worldZ, boolean surface) {
+        if (camChunk == null)
+            return -1;
+        int cx = Math.floorDiv(worldX, CHUNK_SIZE);
+        int cz = Math.floorDiv(worldZ, CHUNK_SIZE);
+        int lx = worldX - cx * CHUNK_SIZE, lz = worldZ - cz * CHUNK_SIZE;
+        int top = camChunk.y + verticalViewDistance;
+        Chunk c = chunks.get(cx, top, cz);
+        for (int cy = top; cy >= camChunk.y - verticalViewDistance; cy--) {
+            if (c != null) {
+                int h = surface ? c.getHeightmaps().surface(lx, lz) : c.getHeightmaps().top(lx, lz);
+                if (h > 0)
+                    return cy * CHUNK_SIZE + h;
             }
+            // sotto un chunk caricato basta il collegamento; dopo un buco si torna alla mappa
+            c = c != null ? c.neighbour(Direction.DOWN) : chunks.get(cx, cy - 1, cz);
         }
         return -1;
     }
 
     public boolean breakBlock(Vector3f worldPos) {
         int cx = (int) Math.floor(worldPos.x / CHUNK_SIZE);
+        int cy = (int) Math.floor(worldPos.y / CHUNK_SIZE);
         int cz = (int) Math.floor(worldPos.z / CHUNK_SIZE);
-        Point2i key = new Point2i(cx, cz);
-        Chunk chunk = chunks.get(key);
+        Chunk chunk = chunks.get(cx, cy, cz);
         if (chunk == null)
             return false;
 
         int lx = (int) (worldPos.x - cx * CHUNK_SIZE);
-        int ly = (int) worldPos.y;
+        int ly = (int) (worldPos.y - cy * CHUNK_SIZE);
         int lz = (int) (worldPos.z - cz * CHUNK_SIZE);
 
         System.out.println("BLOCK: " + lx + " - " + ly + " - " + lz);
 
-        return chunk.removeBlock(lx, ly, lz, chunk.getBlockType(lx, ly, lz));
+        boolean removed = chunk.removeBlock(lx, ly, lz, chunk.getBlockType(lx, ly, lz));
+        queuePendingMeshes(cx, cy, cz, chunk);
+        return removed;
     }
 
     /**
@@ -241,31 +615,64 @@ public class World {
         int wy = (int) target.y;
         int wz = (int) target.z;
 
-        int cx = (int) Math.floor(wx / (float) CHUNK_SIZE);
-        int cz = (int) Math.floor(wz / (float) CHUNK_SIZE);
-        Point2i key = new Point2i(cx, cz);
-        Chunk chunk = chunks.get(key);
+        int cx = Math.floorDiv(wx, CHUNK_SIZE);
+        int cy = Math.floorDiv(wy, CHUNK_SIZE);
+        int cz = Math.floorDiv(wz, CHUNK_SIZE);
+        Chunk chunk = chunks.get(cx, cy, cz);
         if (chunk == null)
             return false;
 
         int lx = wx - cx * CHUNK_SIZE;
-        int ly = wy;
+        int ly = wy - cy * CHUNK_SIZE;
         int lz = wz - cz * CHUNK_SIZE;
 
-        return chunk.addBlock(lx, ly, lz, Main.inventory.getBlockTypeAt(Main.inventory.getSelectedHotbarIndex()));
+        boolean placed = chunk.addBlock(lx, ly, lz,
+                Main.inventory.getBlockTypeAt(Main.inventory.getSelectedHotbarIndex()));
+        queuePendingMeshes(cx, cy, cz, chunk);
+        return placed;
     }
 
     /**
-     * Raycast DDA: restituisce il blocco colpito e la normale della faccia.
+     * Dopo una modifica rimette in coda il chunk {@code (cx, cy, cz)} e i
+     * vicini le cui sezioni ricostruite non stavano nella memoria video: le
+     * carica {@link #uploadMeshes()} quando si libera spazio.
+     */
+    private void queuePendingMeshes(int cx, int cy, int cz, Chunk chunk) {
+        if (chunk.hasPendingMesh())
+            uploadQueue.add(new Point3i(cx, cy, cz));
+        for (Direction side : DIRECTIONS) {
+            Chunk other = chunk.neighbour(side);
+            if (other != null && other.hasPendingMesh())
+                uploadQueue.add(new Point3i(cx + side.dx, cy + side.dy, cz + side.dz));
+        }
+    }
+
+    /**
+     * Raycast DDA: restituisce il blocco colpito e la normale della faccia. Le
+     * celle si visitano con {@link BlockCursor}, che al bordo passa al chunk
+     * vicino senza cercarlo nella mappa.
      */
     public RaycastResult raycast(Vector3f origin, Vector3f direction, float maxDistance) {
-        int x = (int) Math.floor(origin.x);
-        int y = (int) Math.floor(origin.y);
-        int z = (int) Math.floor(origin.z);
+        if (!trace(origin, direction, maxDistance))
+            return null;
+        return new RaycastResult(new Vector3f(rayHit), new Vector3f(rayNormal));
+    }
+
+    /**
+     * Il raycast vero e proprio, senza allocare: se colpisce un blocco ne mette
+     * le coordinate in {@link #rayHit} e la normale della faccia in
+     * {@link #rayNormal}.
+     */
+    private boolean trace(Vector3f origin, Vector3f direction, float maxDistance) {
+        BlockCursor cell = cursor.moveTo((int) Math.floor(origin.x), (int) Math.floor(origin.y),
+                (int) Math.floor(origin.z));
 
         int stepX = direction.x > 0 ? 1 : -1;
         int stepY = direction.y > 0 ? 1 : -1;
         int stepZ = direction.z > 0 ? 1 : -1;
+        Direction sideX = stepX > 0 ? Direction.EAST : Direction.WEST;
+        Direction sideY = stepY > 0 ? Direction.UP : Direction.DOWN;
+        Direction sideZ = stepZ > 0 ? Direction.SOUTH : Direction.NORTH;
 
         float tMaxX = intBound(origin.x, direction.x);
         float tMaxY = intBound(origin.y, direction.y);
@@ -276,33 +683,34 @@ public class World {
         float tDeltaZ = stepZ / direction.z;
 
         float distance = 0f;
-        Vector3f lastNormal = new Vector3f(0, 0, 0);
+        rayNormal.zero();
 
         while (distance < maxDistance) {
             if (tMaxX < tMaxY && tMaxX < tMaxZ) {
-                x += stepX;
+                cell.step(sideX);
                 distance = tMaxX;
                 tMaxX += tDeltaX;
-                lastNormal.set(-stepX, 0, 0);
+                rayNormal.set(-stepX, 0, 0);
             } else if (tMaxY < tMaxZ) {
-                y += stepY;
+                cell.step(sideY);
                 distance = tMaxY;
                 tMaxY += tDeltaY;
-                lastNormal.set(0, -stepY, 0);
+                rayNormal.set(0, -stepY, 0);
             } else {
-                z += stepZ;
+                cell.step(sideZ);
                 distance = tMaxZ;
                 tMaxZ += tDeltaZ;
-                lastNormal.set(0, 0, -stepZ);
+                rayNormal.set(0, 0, -stepZ);
             }
 
             if (distance > maxDistance)
                 break;
-            if (isBlockSolid(x, y, z)) {
-                return new RaycastResult(new Vector3f(x, y, z), new Vector3f(lastNormal));
+            if (cell.isSolid()) {
+                rayHit.set(cell.x(), cell.y(), cell.z());
+                return true;
             }
         }
-        return null;
+        return false;
     }
 
     private float intBound(float s, float ds) {
@@ -317,34 +725,77 @@ public class World {
     }
 
     public boolean isBlockSolid(int worldX, int worldY, int worldZ) {
-        int cx = (int) Math.floor(worldX / (float) CHUNK_SIZE);
-        int cz = (int) Math.floor(worldZ / (float) CHUNK_SIZE);
-        Point2i key = new Point2i(cx, cz);
-        Chunk chunk = chunks.get(key);
-        if (chunk == null)
-            return false;
+        return queries.isSolid(worldX, worldY, worldZ);
+    }
 
-        int lx = worldX - cx * CHUNK_SIZE;
-        int ly = worldY;
-        int lz = worldZ - cz * CHUNK_SIZE;
-        return chunk.isSolid(lx, ly, lz);
+    /**
+     * {@code true} se il box in coordinate mondo tocca un blocco pieno (tutte le
+     * celle da {@code floor(min)} a {@code floor(max)}): una sola query sul
+     * bitset di occupazione invece di un campione per punto.
+     */
+    public boolean isAreaSolid(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return queries.isAreaSolid(minX, minY, minZ, maxX, maxY, maxZ);
     }
 
-    private Path chunkFile(Point2i key) {
-        return Main.worldDir.resolve(key.x + "_" + key.y + ".nbt");
+    /** {@code true} se la colonna ha un blocco pieno con {@code y0 <= y <= y1}. */
+    public boolean isColumnSolid(int worldX, int worldZ, int y0, int y1) {
+        return queries.isColumnSolid(worldX, worldZ, y0, y1);
+    }
+
+    /**
+     * Carica un chunk dall'archivio a regioni. Gira sui thread di caricamento.
+     *
+     * @return il chunk oppure {@code null} se non è mai stato salvato
+     */
+    private Chunk loadChunk(Point3i key) throws IOException {
+        // scaricato da poco: la copia compressa è la più recente
+        DataInputStream cached = cache.take(key.x, key.y, key.z);
+        if (cached != null) {
+            try (DataInputStream in = cached) {
+                return Chunk.load(in, pool);
+            }
+        }
+        // salvataggio ancora in coda: la copia in memoria è più recente del disco
+        ChunkCodec.Blocks unsaved = saveQueue.unsavedSnapshot(key.x, key.y, key.z);
+        if (unsaved != null)
+            return Chunk.fromSnapshot(unsaved, pool);
+        if (!storage.contains(key.x, key.y, key.z))
+            return null;
+        try (DataInputStream in = storage.read(key.x, key.y, key.z)) {
+            return Chunk.load(in, pool); // ricrea blocchi e mesh
+        }
+    }
+
+    /**
+     * Consegna una copia dei blocchi alla pipeline di salvataggio: codifica,
+     * compressione e scrittura avvengono sui thread di I/O e il chunk torna
+     * pulito solo se la scrittura riesce.
+     *
+     * @param wait se {@code true} attende un posto libero in coda (backpressure),
+     *             altrimenti con la coda piena il chunk resta sporco
+     */
+    private void saveChunk(long key, Chunk c, boolean wait) {
+        int cx = ChunkMap.keyX(key), cy = ChunkMap.keyY(key), cz = ChunkMap.keyZ(key);
+        int version = c.getModCount();
+        ChunkCodec.Blocks snapshot = c.snapshot();
+        Runnable onSaved = () -> c.markSaved(version);
+        if (!wait) {
+            saveQueue.offer(cx, cy, cz, snapshot, onSaved);
+            return;
+        }
+        try {
+            saveQueue.submit(cx, cy, cz, snapshot, onSaved);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public void save() {
-        for (Map.Entry<Point2i, Chunk> e : chunks.entrySet()) {
-            Chunk c = e.getValue();
+        chunks.forEach((k, c) -> {
             if (c.isDirty()) {
-                try {
-                    c.save(Main.worldDir.resolve(e.getKey().x + "_" + e.getKey().y + ".nbt"));
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                }
+                saveChunk(k, c, true);
             }
-        }
-        Main.exitToMenu(shaderProgram);
+        });
+        Main.exitToMenu();
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.project.world;
+
+/**
+ * Query sui blocchi pieni in coordinate mondo, sopra i chunk caricati: un
+ * punto, una colonna o un box di celle. I volumi vengono divisi per chunk e
+ * risolti sul bitset di occupazione ({@link Chunk#isSolidBox}), una colonna
+ * alla volta con maschere su parole intere. Lungo una colonna di chunk si
+ * passa al cubo sopra con il collegamento ai vicini, senza cercarlo nella mappa.
+ *
+ * <p>
+ * I chunk sono cubi di {@code chunkSize} blocchi per lato. Le celle di chunk
+ * non caricati contano come aria, come in {@link World#isBlockSolid}. Solo
+ * thread di rendering (come la mappa).
+ */
+public final class WorldQueries {
+
+    private final ChunkMap chunks;
+    private final int chunkSize;
+
+    public WorldQueries(ChunkMap chunks, int chunkSize) {
+        this.chunks = chunks;
+        this.chunkSize = chunkSize;
+    }
+
+    public boolean isSolid(int worldX, int worldY, int worldZ) {
+        int cx = Math.floorDiv(worldX, chunkSize);
+        int cy = Math.floorDiv(worldY, chunkSize);
+        int cz = Math.floorDiv(worldZ, chunkSize);
+        Chunk chunk = chunks.get(cx, cy, cz);
+        if (chunk == null)
+            return false;
+        return chunk.isSolid(worldX - cx * chunkSize, worldY - cy * chunkSize, worldZ - cz * chunkSize);
+    }
+
+    /** {@code true} se la colonna {@code (worldX, worldZ)} ha un blocco con {@code y0 <= y <= y1}. */
+    public boolean isColumnSolid(int worldX, int worldZ, int y0, int y1) {
+        return isBoxSolid(worldX, y0, worldZ, worldX, y1, worldZ);
+    }
+
+    /** {@code true} se almeno una cella del box (estremi inclusi) è piena. */
+    public boolean isBoxSolid(int x0, int y0, int z0, int x1, int y1, int z1) {
+        int cx0 = Math.floorDiv(x0, chunkSize), cx1 = Math.floorDiv(x1, chunkSize);
+        int cy0 = Math.floorDiv(y0, chunkSize), cy1 = Math.floorDiv(y1, chunkSize);
+        int cz0 = Math.floorDiv(z0, chunkSize), cz1 = Math.floorDiv(z1, chunkSize);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cz = cz0; cz <= cz1; cz++) {
+                Chunk chunk = chunks.get(cx, cy0, cz);
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    if (chunk != null) {
+                        int ox = cx * chunkSize, oy = cy * chunkSize, oz = cz * chunkSize;
+                        if (chunk.isSolidBox(x0 - ox, y0 - oy, z0 - oz, x1 - ox, y1 - oy, z1 - oz))
+                            return true;
+                    }
+                    if (cy < cy1) // il cubo sopra: collegamento diretto, mappa solo dopo un buco
+                        chunk = chunk != null ? chunk.neighbour(Direction.UP) : chunks.get(cx, cy + 1, cz);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code true} se il box {@code [min, max]} in coordinate mondo tocca una
+     * cella piena: sono coinvolte tutte le celle da {@code floor(min)} a
+     * {@code floor(max)} su ogni asse.
+     */
+    public boolean isAreaSolid(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return isBoxSolid((int) Math.floor(minX), (int) Math.floor(minY), (int) Math.floor(minZ),
+                (int) Math.floor(maxX), (int) Math.floor(maxY), (int) Math.floor(maxZ));
+    }
+}
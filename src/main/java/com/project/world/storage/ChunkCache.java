@@ -0,0 +1,89 @@
+package com.project.world.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import com.project.world.ChunkMap;
+
+/**
+ * Cache "tiepida" dei chunk scaricati: payload già codificati e compressi
+ * come su disco, tenuti in memoria in ordine LRU entro un limite di byte. Chi
+ * torna indietro oltre il confine di un chunk lo ritrova qui senza leggere la
+ * regione né rigenerare il terreno.
+ *
+ * <p>
+ * Un chunk ripreso con {@link #take} esce dalla cache: da quel momento la
+ * copia autorevole è di nuovo quella caricata, che al prossimo scaricamento
+ * verrà rimessa qui. La cache non sostituisce il salvataggio: i chunk
+ * modificati vanno comunque consegnati a {@link ChunkSaveQueue}.
+ *
+ * <p>
+ * Thread-safe: si riempie dai worker e si legge dai thread di caricamento.
+ */
+public final class ChunkCache {
+
+    /** Istantanea dei contatori. */
+    public record Stats(int entries, long bytes, long hits, long misses, long evictions) {
+
+        @Override
+        public String toString() {
+            return String.format("%d chunk (%.1f MiB), ripresi %d, mancati %d, espulsi %d",
+                    entries, bytes / (1024.0 * 1024.0), hits, misses, evictions);
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+    private long hits, misses, evictions;
+
+    public ChunkCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Comprime la copia e la mette in cima alla LRU, espellendo le voci meno
+     * recenti oltre il limite. Codifica e compressione avvengono fuori dal lock.
+     */
+    public void put(int chunkX, int chunkY, int chunkZ, ChunkCodec.Blocks snapshot) {
+        byte[] data = RegionStorage.deflate(ChunkCodec.encode(snapshot));
+        if (data.length > maxBytes)
+            return;
+        synchronized (this) {
+            byte[] old = entries.put(ChunkMap.key(chunkX, chunkY, chunkZ), data);
+            bytes += data.length - (old == null ? 0 : old.length);
+            for (Iterator<Map.Entry<Long, byte[]>> it = entries.entrySet().iterator(); bytes > maxBytes;) {
+                bytes -= it.next().getValue().length;
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Toglie il chunk dalla cache.
+     *
+     * @return il payload (formato di {@link ChunkCodec#decode}) oppure {@code null} se non c'è
+     */
+    public DataInputStream take(int chunkX, int chunkY, int chunkZ) {
+        byte[] data;
+        synchronized (this) {
+            data = entries.remove(ChunkMap.key(chunkX, chunkY, chunkZ));
+            if (data == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            bytes -= data.length;
+        }
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), bytes, hits, misses, evictions);
+    }
+}
@@ -0,0 +1,286 @@
+package com.project.world.storage;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.project.world.BlockType;
+
+/**
+ * Serializzazione dei blocchi di un chunk (payload non compresso).
+ *
+ * <p>
+ * <b>Versione 1</b>: un byte per cella in ordine x → y → z
+ * ({@code -1} = aria, altrimenti l'ordinale del {@link BlockType}).
+ *
+ * <p>
+ * <b>Versione 2</b>: il chunk è diviso in sezioni alte {@value #SECTION_HEIGHT}
+ * blocchi; ogni sezione ha una palette dei tipi presenti e gli indici
+ * nella palette impacchettati a {@code bits} bit in un {@code long[]}
+ * (le voci non attraversano il confine di una parola). Una sezione con un solo
+ * tipo (tutta aria, tutta pietra…) è scritta come sola palette.
+ *
+ * <pre>
+ * byte  versione (2)
+ * int   sizeX, sizeY, sizeZ
+ * byte  altezza sezione
+ * per ogni sezione dal basso:
+ *   byte  dimensione palette N
+ *   N × byte  id (-1 = aria)
+ *   se N > 1: byte bits, int numParole, numParole × long
+ * </pre>
+ *
+ * Dentro la sezione le celle sono in ordine x → y → z (z varia più in fretta),
+ * lo stesso dell'array dei blocchi in memoria ({@link Blocks}).
+ *
+ * <p>
+ * <b>Versione 3</b>: come la 2, seguita dalle heightmap del chunk
+ * ({@code com.project.world.Heightmaps}), così il caricamento non deve
+ * ricalcolarle colonna per colonna:
+ *
+ * <pre>
+ * ... sezioni come nella versione 2 ...
+ * 2 × sizeX × sizeZ × short  quote: prima la cima, poi il suolo (colonna x * sizeZ + z)
+ * </pre>
+ */
+public final class ChunkCodec {
+
+    public static final int VERSION_LEGACY = 1;
+    public static final int VERSION_PALETTE = 2;
+    public static final int VERSION_HEIGHTMAPS = 3;
+    public static final int SECTION_HEIGHT = 16;
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    private ChunkCodec() {
+    }
+
+    /**
+     * Blocchi di un chunk come id ({@link BlockType#toId}, 0 = aria) in un
+     * unico array, cella {@code (x, y, z)} all'indice
+     * {@code (x * sizeY + y) * sizeZ + z}, con le heightmap se note
+     * ({@code null} per i payload letti dalle versioni 1 e 2).
+     */
+    public record Blocks(int sizeX, int sizeY, int sizeZ, byte[] ids, short[] heightmaps) {
+
+        public Blocks(int sizeX, int sizeY, int sizeZ, byte[] ids) {
+            this(sizeX, sizeY, sizeZ, ids, null);
+        }
+
+        public BlockType type(int x, int y, int z) {
+            return BlockType.fromId(ids[(x * sizeY + y) * sizeZ + z]);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Scrittura
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Codifica nel formato corrente: versione 3 se la copia ha le heightmap,
+     * altrimenti versione 2.
+     */
+    public static byte[] encode(Blocks blocks) {
+        int sx = blocks.sizeX(), sy = blocks.sizeY(), sz = blocks.sizeZ();
+        byte[] ids = blocks.ids();
+        short[] heightmaps = blocks.heightmaps();
+        int column = sy * sz; // celle per x
+
+        // limite superiore: palette piena e 8 bit per cella in ogni sezione, più le heightmap
+        int sections = (sy + SECTION_HEIGHT - 1) / SECTION_HEIGHT;
+        int heightBytes = heightmaps == null ? 0 : heightmaps.length * Short.BYTES;
+        ByteBuffer out = ByteBuffer.allocate(14 + sections * (TYPES.length + 7) + sx * sy * sz + Long.BYTES + heightBytes);
+        int version = heightmaps == null ? VERSION_PALETTE : VERSION_HEIGHTMAPS;
+        out.put((byte) version).putInt(sx).putInt(sy).putInt(sz).put((byte) SECTION_HEIGHT);
+
+        int[] paletteIndex = new int[TYPES.length + 1]; // id interno → indice palette
+        int[] palette = new int[TYPES.length + 1];
+
+        for (int baseY = 0; baseY < sy; baseY += SECTION_HEIGHT) {
+            int height = Math.min(SECTION_HEIGHT, sy - baseY);
+            int count = height * sx * sz;
+
+            // 1° passaggio: quali tipi compaiono nella sezione (bitmask sugli id interni)
+            int slab = height * sz; // celle della sezione per ogni x
+            long seen = 0;
+            for (int x = 0; x < sx; x++) {
+                for (int i = x * column + baseY * sz, end = i + slab; i < end; i++)
+                    seen |= 1L << ids[i];
+            }
+            int paletteSize = 0;
+            for (int id = 0; id <= TYPES.length; id++) {
+                if ((seen & (1L << id)) != 0) {
+                    palette[paletteSize] = id;
+                    paletteIndex[id] = paletteSize++;
+                }
+            }
+
+            out.put((byte) paletteSize);
+            for (int p = 0; p < paletteSize; p++)
+                out.put((byte) (palette[p] - 1));
+            if (paletteSize == 1)
+                continue; // sezione uniforme
+
+            // 2° passaggio: indici impacchettati direttamente nelle parole
+            int bits = bitsFor(paletteSize);
+            int perWord = 64 / bits;
+            int words = (count + perWord - 1) / perWord;
+            out.put((byte) bits).putInt(words);
+            long word = 0;
+            int k = 0;
+            for (int x = 0; x < sx; x++) {
+                for (int i = x * column + baseY * sz, end = i + slab; i < end; i++) {
+                    word |= (long) paletteIndex[ids[i]] << (k * bits);
+                    if (++k == perWord) {
+                        out.putLong(word);
+                        word = 0;
+                        k = 0;
+                    }
+                }
+            }
+            if (k > 0)
+                out.putLong(word);
+        }
+        if (heightmaps != null) {
+            if (heightmaps.length != 2 * sx * sz)
+                throw new IllegalArgumentException("Heightmap di " + heightmaps.length + " valori per " + sx * sz + " colonne");
+            for (short h : heightmaps)
+                out.putShort(h);
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /** Codifica nel formato versione 1 (un byte per cella). */
+    public static byte[] encodeLegacy(Blocks blocks) {
+        int sx = blocks.sizeX(), sy = blocks.sizeY(), sz = blocks.sizeZ();
+        byte[] ids = blocks.ids();
+
+        byte[] raw = new byte[13 + sx * sy * sz];
+        ByteBuffer buf = ByteBuffer.wrap(raw);
+        buf.put((byte) VERSION_LEGACY).putInt(sx).putInt(sy).putInt(sz);
+        for (byte id : ids)
+            buf.put((byte) (id - 1)); // stesso ordine, -1 = aria
+        return raw;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Lettura
+    // ---------------------------------------------------------------------------------
+
+    /** Decodifica un payload in versione 1, 2 o 3. */
+    public static Blocks decode(DataInputStream in) throws IOException {
+        int version = in.readByte(); // per eventuali futuri cambi
+        int sx = in.readInt();
+        int sy = in.readInt();
+        int sz = in.readInt();
+        byte[] ids = new byte[sx * sy * sz];
+        short[] heightmaps = null;
+
+        switch (version) {
+            case VERSION_LEGACY -> decodeLegacy(in, ids);
+            case VERSION_PALETTE -> decodePalette(in, ids, sx, sy, sz);
+            case VERSION_HEIGHTMAPS -> {
+                decodePalette(in, ids, sx, sy, sz);
+                heightmaps = decodeHeightmaps(in, sx, sy, sz);
+            }
+            default -> throw new IOException("Versione file non supportata: " + version);
+        }
+        return new Blocks(sx, sy, sz, ids, heightmaps);
+    }
+
+    private static short[] decodeHeightmaps(DataInputStream in, int sx, int sy, int sz) throws IOException {
+        byte[] raw = new byte[2 * sx * sz * Short.BYTES];
+        in.readFully(raw);
+        ByteBuffer buf = ByteBuffer.wrap(raw);
+        short[] heightmaps = new short[2 * sx * sz];
+        for (int i = 0; i < heightmaps.length; i++) {
+            short h = buf.getShort();
+            if (h < 0 || h > sy)
+                throw new IOException("Quota di heightmap fuori range: " + h);
+            heightmaps[i] = h;
+        }
+        return heightmaps;
+    }
+
+    private static void decodeLegacy(DataInputStream in, byte[] ids) throws IOException {
+        in.readFully(ids); // stesso ordine x → y → z
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = id(ids[i]);
+    }
+
+    private static void decodePalette(DataInputStream in, byte[] ids, int sx, int sy, int sz)
+            throws IOException {
+        int sectionHeight = in.readUnsignedByte();
+        if (sectionHeight == 0)
+            throw new IOException("Altezza sezione non valida");
+
+        for (int baseY = 0; baseY < sy; baseY += sectionHeight) {
+            int height = Math.min(sectionHeight, sy - baseY);
+            int paletteSize = in.readUnsignedByte();
+            if (paletteSize == 0)
+                throw new IOException("Palette vuota nella sezione y=" + baseY);
+            byte[] palette = new byte[paletteSize];
+            for (int p = 0; p < paletteSize; p++)
+                palette[p] = id(in.readByte());
+            int column = sy * sz, slab = height * sz;
+
+            if (paletteSize == 1) {
+                if (palette[0] != BlockType.AIR) {
+                    for (int x = 0; x < sx; x++) {
+                        int from = x * column + baseY * sz;
+                        Arrays.fill(ids, from, from + slab, palette[0]);
+                    }
+                }
+                continue;
+            }
+
+            int bits = in.readUnsignedByte();
+            int words = in.readInt();
+            int count = height * sx * sz;
+            int perWord = bits == 0 ? 0 : 64 / bits;
+            if (bits == 0 || bits > 8 || words != (count + perWord - 1) / perWord)
+                throw new IOException("Sezione corrotta (y=" + baseY + ")");
+            long mask = (1L << bits) - 1;
+
+            // le parole vengono lette in blocco: niente readLong per parola
+            byte[] packed = new byte[words * Long.BYTES];
+            in.readFully(packed);
+            ByteBuffer buf = ByteBuffer.wrap(packed);
+
+            // la sezione occupa, per ogni x, un tratto contiguo di slab celle
+            int i = baseY * sz, end = i + slab, c = 0;
+            for (int w = 0; w < words; w++) {
+                long word = buf.getLong();
+                for (int k = 0; k < perWord && c < count; k++, c++) {
+                    int idx = (int) ((word >>> (k * bits)) & mask);
+                    if (idx >= paletteSize)
+                        throw new IOException("Indice di palette fuori range");
+                    ids[i++] = palette[idx];
+                    if (i == end) {
+                        i += column - slab;
+                        end = i + slab;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Id in memoria di un id su disco ({@code -1} = aria, altrimenti l'ordinale). */
+    private static byte id(int stored) throws IOException {
+        if (stored < -1 || stored >= TYPES.length)
+            throw new IOException("Tipo di blocco sconosciuto: " + stored);
+        return (byte) (stored + 1);
+    }
+
+    /**
+     * Bit per voce arrotondati a 1, 2, 4 o 8: con voci allineate al nibble il
+     * deflate ritrova le ripetizioni tra righe vicine.
+     */
+    private static int bitsFor(int paletteSize) {
+        int bits = 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+        if (bits <= 2)
+            return bits;
+        return bits <= 4 ? 4 : 8;
+    }
+}
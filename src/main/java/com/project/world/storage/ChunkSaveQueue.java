@@ -0,0 +1,294 @@
+package com.project.world.storage;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.project.world.ChunkMap;
+
+/**
+ * Pipeline di salvataggio asincrona: il thread di rendering consegna solo
+ * una copia immutabile dei blocchi, mentre codifica, compressione e scrittura
+ * nella regione avvengono su thread di I/O dedicati.
+ *
+ * <p>
+ * La coda è limitata: {@link #submit} blocca finché non si libera un posto
+ * (backpressure), {@link #offer} rinuncia subito e lascia il chunk sporco per
+ * il prossimo giro. Più salvataggi dello stesso chunk vengono fusi: conta solo
+ * l'ultima copia e due scritture dello stesso chunk non sono mai in volo insieme,
+ * quindi l'ordine su disco è sempre quello di consegna.
+ *
+ * <p>
+ * Una scrittura fallita non perde la copia: resta leggibile da
+ * {@link #unsavedSnapshot} (per un chunk scaricato è l'unica copia delle
+ * modifiche) finché una scrittura successiva dello stesso chunk non riesce, e
+ * {@link #retryFailed()} la rimette in coda.
+ */
+public final class ChunkSaveQueue implements AutoCloseable {
+
+    /** Lavoro di salvataggio: copia dei blocchi + azione da eseguire a scrittura riuscita. */
+    public record Job(int chunkX, int chunkY, int chunkZ, ChunkCodec.Blocks snapshot, Runnable onSaved, long submittedAt) {
+    }
+
+    /** Istantanea delle metriche della pipeline. */
+    public record Metrics(int queueDepth, int inFlight, long completed, long failed, int toRetry,
+            long bytesWritten, double avgLatencyMs, double maxLatencyMs) {
+
+        @Override
+        public String toString() {
+            return String.format("coda %d, in scrittura %d, salvati %d, falliti %d (da riprovare %d), "
+                    + "%.1f KiB scritti, latenza media %.1f ms, max %.1f ms",
+                    queueDepth, inFlight, completed, failed, toRetry, bytesWritten / 1024.0, avgLatencyMs,
+                    maxLatencyMs);
+        }
+    }
+
+    private final RegionStorage storage;
+    private final BlockingQueue<Long> queue;
+    private final Thread[] workers;
+    private final Object lock = new Object();
+
+    // --- protetti da lock ---
+    /** Ultima copia consegnata e non ancora presa da un worker, per chunk. */
+    private final Map<Long, Job> pending = new HashMap<>();
+    /** Copia che un worker sta scrivendo in questo momento, per chunk. */
+    private final Map<Long, Job> inFlight = new HashMap<>();
+    /** Ultima copia la cui scrittura è fallita, per chunk, finché una scrittura successiva non riesce. */
+    private final Map<Long, Job> failedJobs = new HashMap<>();
+    private boolean closed = false;
+
+    // --- metriche ---
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    public ChunkSaveQueue(RegionStorage storage, int workerCount, int capacity) {
+        this.storage = storage;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::runWorker, "chunk-save-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Consegna
+    // ---------------------------------------------------------------------------------
+
+    /** Accoda un salvataggio aspettando se la coda è piena. */
+    public void submit(int chunkX, int chunkY, int chunkZ, ChunkCodec.Blocks snapshot, Runnable onSaved)
+            throws InterruptedException {
+        Job job = new Job(chunkX, chunkY, chunkZ, snapshot, onSaved, System.nanoTime());
+        synchronized (lock) {
+            while (!enqueueLocked(job))
+                lock.wait();
+        }
+    }
+
+    /**
+     * Accoda un salvataggio senza attendere.
+     *
+     * @return {@code false} se la coda è piena
+     */
+    public boolean offer(int chunkX, int chunkY, int chunkZ, ChunkCodec.Blocks snapshot, Runnable onSaved) {
+        Job job = new Job(chunkX, chunkY, chunkZ, snapshot, onSaved, System.nanoTime());
+        synchronized (lock) {
+            return enqueueLocked(job);
+        }
+    }
+
+    private boolean enqueueLocked(Job job) {
+        if (closed)
+            throw new IllegalStateException("Coda di salvataggio già chiusa");
+        long key = ChunkMap.key(job.chunkX(), job.chunkY(), job.chunkZ());
+        // già in coda o in scrittura: basta sostituire la copia, il worker la raccoglierà
+        if (pending.containsKey(key) || inFlight.containsKey(key)) {
+            pending.put(key, job);
+            return true;
+        }
+        if (!queue.offer(key))
+            return false;
+        pending.put(key, job);
+        return true;
+    }
+
+    /**
+     * Copia più recente non ancora scritta su disco (in coda, in scrittura o
+     * fallita): chi ricarica un chunk appena scaricato deve partire da qui,
+     * non dalla regione.
+     */
+    public ChunkCodec.Blocks unsavedSnapshot(int chunkX, int chunkY, int chunkZ) {
+        long key = ChunkMap.key(chunkX, chunkY, chunkZ);
+        synchronized (lock) {
+            Job job = pending.get(key);
+            if (job == null)
+                job = inFlight.get(key);
+            if (job == null)
+                job = failedJobs.get(key);
+            return job == null ? null : job.snapshot();
+        }
+    }
+
+    /**
+     * Rimette in coda, senza attendere, le copie la cui scrittura è fallita
+     * (quelle di chunk già in coda sono superate dalla copia nuova).
+     *
+     * @return le copie rimesse in coda; le altre restano per il prossimo tentativo
+     */
+    public int retryFailed() {
+        int retried = 0;
+        synchronized (lock) {
+            for (Map.Entry<Long, Job> e : failedJobs.entrySet()) {
+                if (pending.containsKey(e.getKey()) || inFlight.containsKey(e.getKey()))
+                    continue;
+                if (!enqueueLocked(e.getValue()))
+                    break; // coda piena
+                retried++;
+            }
+        }
+        return retried;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Worker
+    // ---------------------------------------------------------------------------------
+
+    private void runWorker() {
+        try {
+            while (true) {
+                long key = queue.take();
+                Job job;
+                synchronized (lock) {
+                    job = pending.remove(key);
+                    inFlight.put(key, job);
+                    lock.notifyAll(); // si è liberato un posto in coda
+                }
+                while (job != null) {
+                    write(job);
+                    synchronized (lock) {
+                        // nel frattempo può essere arrivata una copia più recente
+                        job = pending.remove(key);
+                        if (job == null)
+                            inFlight.remove(key);
+                        else
+                            inFlight.put(key, job);
+                        lock.notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // chiusura
+        }
+    }
+
+    private void write(Job job) {
+        long key = ChunkMap.key(job.chunkX(), job.chunkY(), job.chunkZ());
+        try {
+            byte[] data = RegionStorage.deflate(ChunkCodec.encode(job.snapshot()));
+            storage.writeCompressed(job.chunkX(), job.chunkY(), job.chunkZ(), RegionFile.COMPRESSION_DEFLATE, data);
+
+            long latency = System.nanoTime() - job.submittedAt();
+            bytesWritten.addAndGet(data.length);
+            totalLatency.addAndGet(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+            completed.incrementAndGet();
+            synchronized (lock) {
+                failedJobs.remove(key); // su disco ora c'è una copia più recente
+            }
+            job.onSaved().run(); // solo a scrittura riuscita
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            synchronized (lock) {
+                failedJobs.put(key, job); // da riprovare, e leggibile finché non riesce
+            }
+            System.err.println("Salvataggio chunk (" + job.chunkX() + ", " + job.chunkY() + ", " + job.chunkZ() + ") fallito");
+            e.printStackTrace();
+        }
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Metriche e chiusura
+    // ---------------------------------------------------------------------------------
+
+    public Metrics metrics() {
+        int depth, writing, toRetry;
+        synchronized (lock) {
+            depth = pending.size();
+            writing = inFlight.size();
+            toRetry = failedJobs.size();
+        }
+        long done = completed.get();
+        return new Metrics(depth, writing, done, failed.get(), toRetry, bytesWritten.get(),
+                done == 0 ? 0 : totalLatency.get() / 1e6 / done, maxLatency.get() / 1e6);
+    }
+
+    /** Attende che tutti i salvataggi consegnati finora siano scritti (o falliti). */
+    public void flush() throws InterruptedException {
+        synchronized (lock) {
+            while (!pending.isEmpty() || !inFlight.isEmpty())
+                lock.wait();
+        }
+    }
+
+    /**
+     * Attende, con {@code lock} già preso, che coda e scritture in corso siano
+     * vuote; un'interruzione non la ferma.
+     *
+     * @return {@code true} se il thread è stato interrotto nell'attesa
+     */
+    private boolean awaitIdleLocked() {
+        boolean interrupted = false;
+        while (!pending.isEmpty() || !inFlight.isEmpty()) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        return interrupted;
+    }
+
+    /**
+     * Svuota la coda e ferma i worker. Idempotente. Le copie fallite vengono
+     * riprovate una volta e, se falliscono ancora, segnalate. Un'interruzione
+     * non abbandona i salvataggi in corso: si attende comunque e lo stato di
+     * interruzione viene ripristinato all'uscita.
+     */
+    @Override
+    public void close() {
+        boolean interrupted;
+        synchronized (lock) {
+            interrupted = awaitIdleLocked();
+            if (closed) {
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+                return;
+            }
+            if (!failedJobs.isEmpty() && retryFailed() > 0)
+                interrupted |= awaitIdleLocked();
+            closed = true;
+            if (!failedJobs.isEmpty())
+                System.err.println(failedJobs.size() + " chunk non salvati dopo errori di scrittura");
+        }
+        for (Thread worker : workers)
+            worker.interrupt();
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
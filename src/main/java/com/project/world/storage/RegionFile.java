@@ -0,0 +1,217 @@
+package com.project.world.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * File di regione: contiene fino a {@value #REGION_SIZE}×{@value #REGION_SIZE}
+ * chunk in un unico file diviso in settori da {@value #SECTOR_SIZE} byte.
+ *
+ * <pre>
+ * settore 0      tabella posizioni: un int per chunk = (offsetSettore << 8) | numSettori
+ * settore 1      timestamp di ultima scrittura (secondi epoch), un int per chunk
+ * settori 2..n   dati: [int lunghezza][byte compressione][payload]
+ * </pre>
+ *
+ * Una riscrittura che sta nei settori già assegnati avviene sul posto; altrimenti
+ * i vecchi settori vengono liberati e si cerca il primo intervallo libero
+ * (first-fit), accodando in fondo al file solo se non ce n'è uno abbastanza grande.
+ * I metodi sono sincronizzati: il file può essere usato da più thread di I/O.
+ */
+public final class RegionFile implements AutoCloseable {
+
+    public static final int REGION_SIZE = 32;
+    public static final int SECTOR_SIZE = 4096;
+
+    /** Tipi di compressione del payload. */
+    public static final byte COMPRESSION_GZIP = 1;
+    public static final byte COMPRESSION_DEFLATE = 2;
+
+    private static final int ENTRIES = REGION_SIZE * REGION_SIZE;
+    private static final int HEADER_SECTORS = 2;
+    private static final int CHUNK_HEADER_BYTES = Integer.BYTES + 1;
+    private static final int MAX_SECTORS_PER_CHUNK = 255;
+
+    private final FileChannel channel;
+    private final int[] locations = new int[ENTRIES];
+    private final int[] timestamps = new int[ENTRIES];
+    /** Settori occupati (bit a 1) – i settori di header sono sempre occupati. */
+    private final BitSet usedSectors = new BitSet();
+    private int sectorCount;
+
+    public RegionFile(Path path) throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_SECTORS * SECTOR_SIZE) {
+            // file nuovo (o troncato): header vuoto
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE), 0);
+        }
+
+        sectorCount = (int) ((channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        usedSectors.set(0, HEADER_SECTORS);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE);
+        readFully(header, 0);
+        header.flip();
+        for (int i = 0; i < ENTRIES; i++)
+            locations[i] = header.getInt();
+        for (int i = 0; i < ENTRIES; i++)
+            timestamps[i] = header.getInt();
+
+        for (int i = 0; i < ENTRIES; i++) {
+            int offset = locations[i] >>> 8;
+            int count = locations[i] & 0xFF;
+            if (offset < HEADER_SECTORS || count == 0 || offset + count > sectorCount) {
+                locations[i] = 0; // voce corrotta o vuota: la ignoriamo
+                continue;
+            }
+            usedSectors.set(offset, offset + count);
+        }
+    }
+
+    /** Indice della voce per le coordinate chunk locali alla regione (0..31). */
+    private static int index(int localX, int localZ) {
+        return localX + localZ * REGION_SIZE;
+    }
+
+    public synchronized boolean contains(int localX, int localZ) {
+        return locations[index(localX, localZ)] != 0;
+    }
+
+    public synchronized int getTimestamp(int localX, int localZ) {
+        return timestamps[index(localX, localZ)];
+    }
+
+    /**
+     * Legge il payload (ancora compresso) di un chunk.
+     *
+     * @return il payload oppure {@code null} se il chunk non è presente
+     */
+    public synchronized Entry read(int localX, int localZ) throws IOException {
+        int location = locations[index(localX, localZ)];
+        if (location == 0)
+            return null;
+
+        long pos = (long) (location >>> 8) * SECTOR_SIZE;
+        ByteBuffer head = ByteBuffer.allocate(CHUNK_HEADER_BYTES);
+        readFully(head, pos);
+        head.flip();
+        int length = head.getInt(); // include il byte di compressione
+        byte compression = head.get();
+
+        int maxLength = (location & 0xFF) * SECTOR_SIZE - Integer.BYTES;
+        if (length <= 0 || length > maxLength)
+            throw new IOException("Voce di regione corrotta (" + localX + ", " + localZ + ")");
+
+        ByteBuffer data = ByteBuffer.allocate(length - 1);
+        readFully(data, pos + CHUNK_HEADER_BYTES);
+        return new Entry(compression, data.array());
+    }
+
+    /**
+     * Scrive il payload (già compresso) di un chunk, sul posto se possibile.
+     */
+    public synchronized void write(int localX, int localZ, byte compression, byte[] data) throws IOException {
+        int idx = index(localX, localZ);
+        int needed = (data.length + CHUNK_HEADER_BYTES + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        if (needed > MAX_SECTORS_PER_CHUNK)
+            throw new IOException("Chunk troppo grande per il file di regione: " + data.length + " byte");
+
+        int oldOffset = locations[idx] >>> 8;
+        int oldCount = locations[idx] & 0xFF;
+
+        int offset;
+        if (oldCount >= needed) {
+            // riscrittura sul posto, si liberano gli eventuali settori in eccesso
+            offset = oldOffset;
+            usedSectors.clear(oldOffset + needed, oldOffset + oldCount);
+        } else {
+            if (oldCount > 0)
+                usedSectors.clear(oldOffset, oldOffset + oldCount);
+            offset = findFreeRun(needed);
+            usedSectors.set(offset, offset + needed);
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(needed * SECTOR_SIZE);
+        buf.putInt(data.length + 1).put(compression).put(data);
+        buf.clear();
+        writeFully(buf, (long) offset * SECTOR_SIZE);
+        sectorCount = Math.max(sectorCount, offset + needed);
+
+        // l'header viene aggiornato solo dopo i dati
+        locations[idx] = (offset << 8) | needed;
+        timestamps[idx] = (int) (System.currentTimeMillis() / 1000L);
+        writeHeaderEntry(idx);
+    }
+
+    /** Rimuove un chunk dalla regione liberandone i settori. */
+    public synchronized void delete(int localX, int localZ) throws IOException {
+        int idx = index(localX, localZ);
+        int location = locations[idx];
+        if (location == 0)
+            return;
+        usedSectors.clear(location >>> 8, (location >>> 8) + (location & 0xFF));
+        locations[idx] = 0;
+        timestamps[idx] = 0;
+        writeHeaderEntry(idx);
+    }
+
+    /** Numero di settori liberi all'interno del file (riusabili). */
+    public synchronized int freeSectors() {
+        return sectorCount - usedSectors.cardinality();
+    }
+
+    public synchronized int sectorCount() {
+        return sectorCount;
+    }
+
+    private int findFreeRun(int length) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (start < sectorCount) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end >= sectorCount || end - start >= length)
+                return start; // il tratto finale libero può crescere oltre la fine del file
+            start = usedSectors.nextClearBit(end);
+        }
+        return sectorCount; // nessun buco: si accoda
+    }
+
+    private void writeHeaderEntry(int idx) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES);
+        entry.putInt(0, locations[idx]);
+        writeFully(entry, (long) idx * Integer.BYTES);
+        entry.clear();
+        entry.putInt(0, timestamps[idx]);
+        writeFully(entry, SECTOR_SIZE + (long) idx * Integer.BYTES);
+    }
+
+    private void readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos);
+            if (n < 0)
+                throw new IOException("Fine inattesa del file di regione");
+            pos += n;
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining())
+            pos += channel.write(buf, pos);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen())
+            channel.close();
+    }
+
+    /** Payload compresso letto da una regione. */
+    public record Entry(byte compression, byte[] data) {
+    }
+}
@@ -0,0 +1,243 @@
+package com.project.world.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.project.world.ChunkMap;
+
+/**
+ * Archivio dei chunk cubici di un mondo basato su file di regione
+ * ({@code r.<rx>.<cy>.<rz>.mcr}): ogni file contiene 32×32 chunk dello stesso
+ * strato verticale {@code cy}.
+ *
+ * <p>
+ * All'apertura vengono migrati i formati precedenti, in cui un chunk era una
+ * colonna alta quanto il mondo: i file GZIP per chunk ({@code <x>_<z>.nbt}) e
+ * le regioni di colonne ({@code r.<rx>.<rz>.mcr}). Ogni colonna viene tagliata
+ * in cubi alti {@code chunkHeight} e riscritta; i file vecchi vengono eliminati.
+ */
+public final class RegionStorage implements AutoCloseable {
+
+    private static final Pattern LEGACY_NAME = Pattern.compile("(-?\\d+)_(-?\\d+)\\.nbt");
+    private static final Pattern COLUMN_REGION_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mcr");
+
+    private final Path dir;
+    /** Altezza dei chunk, per tagliare le colonne dei formati precedenti. */
+    private final int chunkHeight;
+    /** Regioni aperte; {@code null} se il file non esiste ancora su disco. */
+    private final Map<Long, RegionFile> regions = new HashMap<>();
+    private boolean closed = false;
+
+    public RegionStorage(Path dir, int chunkHeight) throws IOException {
+        this.dir = dir;
+        this.chunkHeight = chunkHeight;
+        Files.createDirectories(dir);
+        migrateLegacyFiles();
+        migrateColumnRegions();
+    }
+
+    // ---------------------------------------------------------------------------------
+    // API pubblica
+    // ---------------------------------------------------------------------------------
+
+    /** {@code true} se il chunk è già stato salvato. Non tocca il disco se la regione è aperta. */
+    public boolean contains(int chunkX, int chunkY, int chunkZ) throws IOException {
+        RegionFile region = region(chunkX, chunkY, chunkZ, false);
+        return region != null && region.contains(local(chunkX), local(chunkZ));
+    }
+
+    /**
+     * Apre in lettura il payload decompresso del chunk.
+     *
+     * @return lo stream oppure {@code null} se il chunk non è mai stato salvato
+     */
+    public DataInputStream read(int chunkX, int chunkY, int chunkZ) throws IOException {
+        RegionFile.Entry entry = readCompressed(chunkX, chunkY, chunkZ);
+        if (entry == null)
+            return null;
+        return new DataInputStream(new BufferedInputStream(decompress(entry)));
+    }
+
+    /** Payload così come è scritto nella regione, senza decompressione. */
+    public RegionFile.Entry readCompressed(int chunkX, int chunkY, int chunkZ) throws IOException {
+        RegionFile region = region(chunkX, chunkY, chunkZ, false);
+        if (region == null)
+            return null;
+        return region.read(local(chunkX), local(chunkZ));
+    }
+
+    /** Comprime (deflate, in un solo passaggio) e scrive il payload grezzo del chunk. */
+    public void write(int chunkX, int chunkY, int chunkZ, byte[] raw) throws IOException {
+        writeCompressed(chunkX, chunkY, chunkZ, RegionFile.COMPRESSION_DEFLATE, deflate(raw));
+    }
+
+    /**
+     * Comprime l'intero payload con una sola chiamata al Deflater, senza gli
+     * stream intermedi (e i loro buffer da 512 byte).
+     */
+    public static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] out = new byte[raw.length / 4 + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length)
+                    out = Arrays.copyOf(out, out.length * 2);
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Scrive un payload già compresso con il tipo indicato. */
+    public void writeCompressed(int chunkX, int chunkY, int chunkZ, byte compression, byte[] data)
+            throws IOException {
+        region(chunkX, chunkY, chunkZ, true).write(local(chunkX), local(chunkZ), compression, data);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        for (RegionFile region : regions.values()) {
+            if (region != null)
+                region.close();
+        }
+        regions.clear();
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Gestione regioni
+    // ---------------------------------------------------------------------------------
+
+    private static int local(int chunkCoord) {
+        return Math.floorMod(chunkCoord, RegionFile.REGION_SIZE);
+    }
+
+    public Path regionPath(int rx, int cy, int rz) {
+        return dir.resolve("r." + rx + "." + cy + "." + rz + ".mcr");
+    }
+
+    private synchronized RegionFile region(int chunkX, int chunkY, int chunkZ, boolean create) throws IOException {
+        if (closed)
+            throw new IOException("Archivio regioni già chiuso");
+        int rx = Math.floorDiv(chunkX, RegionFile.REGION_SIZE);
+        int rz = Math.floorDiv(chunkZ, RegionFile.REGION_SIZE);
+        long key = ChunkMap.key(rx, chunkY, rz);
+
+        RegionFile region = regions.get(key);
+        if (region == null && (create || !regions.containsKey(key))) {
+            // un solo controllo su disco per regione: l'assenza viene ricordata
+            Path path = regionPath(rx, chunkY, rz);
+            region = (create || Files.exists(path)) ? new RegionFile(path) : null;
+            regions.put(key, region);
+        }
+        return region;
+    }
+
+    private static InputStream decompress(RegionFile.Entry entry) throws IOException {
+        InputStream raw = new ByteArrayInputStream(entry.data());
+        return switch (entry.compression()) {
+            case RegionFile.COMPRESSION_GZIP -> new GZIPInputStream(raw);
+            case RegionFile.COMPRESSION_DEFLATE -> new InflaterInputStream(raw);
+            default -> throw new IOException("Compressione non supportata: " + entry.compression());
+        };
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Migrazione dai formati a colonne
+    // ---------------------------------------------------------------------------------
+
+    private void migrateLegacyFiles() throws IOException {
+        int migrated = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*_*.nbt")) {
+            for (Path file : files) {
+                Matcher m = LEGACY_NAME.matcher(file.getFileName().toString());
+                if (!m.matches())
+                    continue;
+                int cx = Integer.parseInt(m.group(1));
+                int cz = Integer.parseInt(m.group(2));
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                    migrateColumn(cx, cz, in);
+                }
+                Files.delete(file);
+                migrated++;
+            }
+        }
+        if (migrated > 0)
+            System.out.println("Migrati " + migrated + " chunk nel formato a regioni");
+    }
+
+    private void migrateColumnRegions() throws IOException {
+        int migrated = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "r.*.mcr")) {
+            for (Path file : files) {
+                Matcher m = COLUMN_REGION_NAME.matcher(file.getFileName().toString());
+                if (!m.matches())
+                    continue; // già a cubi (tre coordinate)
+                int rx = Integer.parseInt(m.group(1));
+                int rz = Integer.parseInt(m.group(2));
+                try (RegionFile columns = new RegionFile(file)) {
+                    for (int lz = 0; lz < RegionFile.REGION_SIZE; lz++) {
+                        for (int lx = 0; lx < RegionFile.REGION_SIZE; lx++) {
+                            RegionFile.Entry entry = columns.read(lx, lz);
+                            if (entry == null)
+                                continue;
+                            int cx = rx * RegionFile.REGION_SIZE + lx;
+                            int cz = rz * RegionFile.REGION_SIZE + lz;
+                            try (InputStream in = decompress(entry)) {
+                                migrateColumn(cx, cz, in);
+                                migrated++;
+                            } catch (IOException | RuntimeException e) {
+                                // era già illeggibile: il chunk verrà rigenerato
+                                System.err.println("Colonna (" + cx + ", " + cz + ") illeggibile, saltata: " + e);
+                            }
+                        }
+                    }
+                }
+                Files.delete(file);
+            }
+        }
+        if (migrated > 0)
+            System.out.println("Migrate " + migrated + " colonne nel formato a cubi");
+    }
+
+    /** Taglia il payload di una colonna in cubi e li scrive nelle regioni. */
+    private void migrateColumn(int cx, int cz, InputStream raw) throws IOException {
+        ChunkCodec.Blocks column = ChunkCodec.decode(new DataInputStream(new BufferedInputStream(raw)));
+        for (int cy = 0; cy * chunkHeight < column.sizeY(); cy++)
+            write(cx, cy, cz, ChunkCodec.encode(slice(column, cy * chunkHeight, chunkHeight)));
+    }
+
+    /**
+     * Strato {@code [y0, y0 + height)} di una colonna; le quote oltre la cima
+     * restano aria. Le heightmap si ricalcolano al caricamento.
+     */
+    private static ChunkCodec.Blocks slice(ChunkCodec.Blocks column, int y0, int height) {
+        int sx = column.sizeX(), sy = column.sizeY(), sz = column.sizeZ();
+        int rows = Math.min(height, sy - y0);
+        byte[] ids = new byte[sx * height * sz];
+        for (int x = 0; x < sx; x++)
+            System.arraycopy(column.ids(), (x * sy + y0) * sz, ids, x * height * sz, rows * sz);
+        return new ChunkCodec.Blocks(sx, height, sz, ids);
+    }
+}
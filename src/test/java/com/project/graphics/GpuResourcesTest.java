@@ -0,0 +1,132 @@
+package com.project.graphics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.graphics.GpuResources.Kind;
+import com.project.graphics.GpuResources.Resource;
+
+class GpuResourcesTest {
+
+    private static final long MIB = 1024 * 1024;
+
+    @Test
+    void countsObjectsAndBytesPerOwner() {
+        GpuResources gpu = new GpuResources(GpuResources.stub(), 64 * MIB);
+        int vbo = gpu.create(Kind.BUFFER, "chunk");
+        int vao = gpu.create(Kind.VERTEX_ARRAY, "chunk");
+        int tex = gpu.create(Kind.TEXTURE, "atlas");
+        gpu.setSize(Kind.BUFFER, vbo, 3 * MIB);
+        gpu.setSize(Kind.TEXTURE, tex, MIB);
+
+        GpuResources.Stats stats = gpu.stats();
+        assertEquals(1, stats.buffers());
+        assertEquals(1, stats.vertexArrays());
+        assertEquals(1, stats.textures());
+        assertEquals(0, stats.programs());
+        assertEquals(4 * MIB, stats.bytes());
+        assertEquals(Map.of("atlas", MIB, "chunk", 3 * MIB), gpu.bytesByOwner());
+        assertNotEquals(0, vao);
+    }
+
+    @Test
+    void setSizeReplacesTheDeclaredBytes() {
+        GpuResources gpu = new GpuResources(GpuResources.stub(), 64 * MIB);
+        int vbo = gpu.create(Kind.BUFFER, "chunk");
+        gpu.setSize(Kind.BUFFER, vbo, 8 * MIB);
+        gpu.setSize(Kind.BUFFER, vbo, 2 * MIB); // buffer riallocato più piccolo
+
+        assertEquals(2 * MIB, gpu.stats().bytes());
+        assertEquals(8 * MIB, gpu.stats().peakBytes());
+        assertThrows(IllegalStateException.class, () -> gpu.setSize(Kind.BUFFER, 99, 1));
+    }
+
+    @Test
+    void deleteRemovesCountAndBytes() {
+        GpuResources gpu = new GpuResources(GpuResources.stub(), 64 * MIB);
+        int a = gpu.create(Kind.BUFFER, "chunk");
+        int b = gpu.create(Kind.BUFFER, "hotbar");
+        gpu.setSize(Kind.BUFFER, a, 5 * MIB);
+        gpu.setSize(Kind.BUFFER, b, MIB);
+
+        gpu.delete(Kind.BUFFER, a);
+
+        assertEquals(1, gpu.stats().buffers());
+        assertEquals(MIB, gpu.stats().bytes());
+        assertEquals(Map.of("hotbar", MIB), gpu.bytesByOwner());
+        assertTrue(gpu.closeContext().stream().noneMatch(r -> r.id() == a));
+    }
+
+    @Test
+    void fitsRespectsTheBudget() {
+        GpuResources gpu = new GpuResources(GpuResources.stub(), 10 * MIB);
+        int vbo = gpu.create(Kind.BUFFER, "chunk");
+        gpu.setSize(Kind.BUFFER, vbo, 8 * MIB);
+
+        assertTrue(gpu.fits(2 * MIB));
+        assertFalse(gpu.fits(2 * MIB + 1));
+        assertTrue(gpu.fits(-MIB));
+        assertEquals(2 * MIB, gpu.headroom());
+    }
+
+    @Test
+    void trackRejectsDuplicates() {
+        GpuResources gpu = new GpuResources(GpuResources.stub(), MIB);
+        gpu.track(Kind.PROGRAM, 7, "shader");
+        assertThrows(IllegalStateException.class, () -> gpu.track(Kind.PROGRAM, 7, "shader"));
+        assertEquals(1, gpu.stats().programs());
+    }
+
+    @Test
+    void closeContextReportsLeaksOfTheCurrentContextOnly() {
+        SwitchingBackend backend = new SwitchingBackend();
+        GpuResources gpu = new GpuResources(backend, 64 * MIB);
+        int menuTexture = gpu.create(Kind.TEXTURE, "menu");
+        gpu.setSize(Kind.TEXTURE, menuTexture, MIB);
+
+        backend.context = 2; // finestra della partita
+        int vbo = gpu.create(Kind.BUFFER, "chunk");
+        int kept = gpu.create(Kind.BUFFER, "hotbar");
+        gpu.setSize(Kind.BUFFER, vbo, 3 * MIB);
+        gpu.delete(Kind.BUFFER, kept);
+
+        List<Resource> leaked = gpu.closeContext();
+
+        assertEquals(List.of(new Resource(Kind.BUFFER, vbo, "chunk", 3 * MIB)), leaked);
+        assertEquals(MIB, gpu.stats().bytes()); // resta solo la texture del menu
+        assertEquals(1, gpu.stats().textures());
+        assertEquals(0, gpu.stats().buffers());
+
+        backend.context = 1;
+        assertEquals(List.of(new Resource(Kind.TEXTURE, menuTexture, "menu", MIB)), gpu.closeContext());
+        assertEquals(0, gpu.stats().bytes());
+    }
+
+    /** Come {@link GpuResources#stub()}, con il contesto corrente scelto dal test. */
+    private static final class SwitchingBackend implements GpuResources.Backend {
+        long context = 1;
+        private int next;
+
+        @Override
+        public long context() {
+            return context;
+        }
+
+        @Override
+        public int create(Kind kind) {
+            return ++next;
+        }
+
+        @Override
+        public void delete(Kind kind, int id) {
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.math.Point3i;
+
+/** I chunk caricati per richieste annullate tornano al pool. */
+class ChunkLoaderTest {
+
+    private static final int SIZE = 16;
+
+    private final ChunkPool pool = new ChunkPool(64L * 1024 * 1024, 0);
+
+    /** Attende che il pool riceva gli array di un chunk riciclato. */
+    private void awaitRecycled() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.stats().pooledBytes() == 0 && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        assertTrue(pool.stats().pooledBytes() > 0, "chunk annullato non restituito al pool");
+    }
+
+    @Test
+    void cancelRecyclesAFinishedLoad() throws InterruptedException, IOException {
+        CountDownLatch loaded = new CountDownLatch(1);
+        ChunkLoader loader = new ChunkLoader(key -> {
+            Chunk c = new Chunk(SIZE, SIZE, SIZE, pool);
+            loaded.countDown();
+            return c;
+        }, 1);
+        try {
+            Point3i key = new Point3i(0, 0, 0);
+            loader.request(key);
+            assertTrue(loaded.await(5, TimeUnit.SECONDS));
+            loader.cancel(key);
+
+            awaitRecycled();
+            assertNull(loader.poll());
+            assertEquals(0, loader.pendingCount());
+        } finally {
+            loader.close();
+        }
+    }
+
+    @Test
+    void cancelRecyclesALoadStillRunning() throws InterruptedException, IOException {
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        ChunkLoader loader = new ChunkLoader(key -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Chunk(SIZE, SIZE, SIZE, pool);
+        }, 1);
+        try {
+            Point3i key = new Point3i(1, 0, 0);
+            loader.request(key);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            loader.cancel(key); // annullato in esecuzione: il risultato arriva dopo
+            assertEquals(0, pool.stats().pooledBytes());
+            release.countDown();
+
+            awaitRecycled();
+            assertNull(loader.poll());
+        } finally {
+            loader.close();
+        }
+    }
+}
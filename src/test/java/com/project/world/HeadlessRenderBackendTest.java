@@ -0,0 +1,54 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HeadlessRenderBackendTest {
+
+    private static final int INITIAL_BYTES = VertexArena.INITIAL_CAPACITY * VertexArena.VERTEX_BYTES;
+
+    private static int[] vertices(int count) {
+        return new int[count * MeshBuilder.INTS_PER_VERTEX];
+    }
+
+    @Test
+    void canUploadCountsOnlyTheFreeSpaceWithinTheBudget() {
+        HeadlessRenderBackend backend = new HeadlessRenderBackend(INITIAL_BYTES);
+        assertTrue(backend.canUpload(INITIAL_BYTES));
+        assertFalse(backend.canUpload(INITIAL_BYTES + 1L));
+
+        long mesh = backend.createMesh();
+        backend.uploadMesh(mesh, vertices(1000));
+        long free = INITIAL_BYTES - 1000L * VertexArena.VERTEX_BYTES;
+        assertTrue(backend.canUpload(free));
+        assertFalse(backend.canUpload(free + 1));
+        assertTrue(backend.canUpload(-1000));
+
+        backend.deleteMesh(mesh); // lo spazio torna disponibile
+        assertTrue(backend.canUpload(INITIAL_BYTES));
+    }
+
+    @Test
+    void arenaGrowsUpToTheBudget() {
+        HeadlessRenderBackend backend = new HeadlessRenderBackend(INITIAL_BYTES + 800L);
+        assertTrue(backend.canUpload(INITIAL_BYTES + 800L));
+        assertFalse(backend.canUpload(INITIAL_BYTES + 801L));
+
+        long mesh = backend.createMesh();
+        backend.uploadMesh(mesh, vertices(VertexArena.INITIAL_CAPACITY + 100));
+        assertEquals(VertexArena.INITIAL_CAPACITY + 100, backend.stats().arena().capacity());
+        assertFalse(backend.canUpload(1));
+    }
+
+    @Test
+    void uploadBeyondTheBudgetFails() {
+        HeadlessRenderBackend backend = new HeadlessRenderBackend(INITIAL_BYTES);
+        long mesh = backend.createMesh();
+        assertThrows(IllegalStateException.class,
+                () -> backend.uploadMesh(mesh, vertices(VertexArena.INITIAL_CAPACITY + 1)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class SectionVisibilityTest {
+
+    private static final int SIZE = 16;
+    private static final byte STONE = BlockType.toId(BlockType.STONE);
+
+    private static final int UP = Direction.UP.ordinal(), DOWN = Direction.DOWN.ordinal();
+    private static final int EAST = Direction.EAST.ordinal(), WEST = Direction.WEST.ordinal();
+
+    /** Sezione di roccia {@code SIZE × sy × SIZE}, nell'ordine del chunk. */
+    static byte[] stone(int sy) {
+        byte[] ids = new byte[SIZE * sy * SIZE];
+        Arrays.fill(ids, STONE);
+        return ids;
+    }
+
+    static void air(byte[] ids, int sy, int x, int y, int z) {
+        ids[(x * sy + y) * SIZE + z] = BlockType.AIR;
+    }
+
+    /** Galleria a L: dalla faccia ovest lungo x fino al centro, poi in su fino alla faccia alta. */
+    static void lTunnel(byte[] ids, int sy, int y0) {
+        for (int x = 0; x <= 8; x++)
+            air(ids, sy, x, y0 + 8, 8);
+        for (int y = y0 + 8; y < y0 + SIZE; y++)
+            air(ids, sy, 8, y, 8);
+    }
+
+    /** Grafo con tutte le coppie (diagonale compresa) delle facce indicate. */
+    private static long pairs(int... faces) {
+        long graph = 0;
+        for (int from : faces)
+            for (int to : faces)
+                graph |= 1L << (from * 6 + to);
+        return graph;
+    }
+
+    @Test
+    void airConnectsEveryFace() {
+        assertEquals(SectionVisibility.ALL, SectionVisibility.compute(new byte[SIZE * SIZE * SIZE], SIZE, SIZE,
+                SIZE, 0, SIZE));
+    }
+
+    @Test
+    void sealedCaveConnectsNothing() {
+        byte[] ids = stone(SIZE);
+        for (int x = 6; x < 10; x++)
+            for (int y = 6; y < 10; y++)
+                for (int z = 6; z < 10; z++)
+                    air(ids, SIZE, x, y, z);
+        assertEquals(0, SectionVisibility.compute(ids, SIZE, SIZE, SIZE, 0, SIZE));
+    }
+
+    @Test
+    void lShapedTunnelConnectsOnlyItsEnds() {
+        byte[] ids = stone(SIZE);
+        lTunnel(ids, SIZE, 0);
+        long graph = SectionVisibility.compute(ids, SIZE, SIZE, SIZE, 0, SIZE);
+
+        assertEquals(pairs(WEST, UP), graph);
+        assertTrue(SectionVisibility.connected(graph, WEST, UP));
+        assertTrue(SectionVisibility.connected(graph, UP, WEST));
+        assertFalse(SectionVisibility.connected(graph, WEST, EAST));
+        assertFalse(SectionVisibility.connected(graph, DOWN, UP));
+    }
+
+    @Test
+    void computesOnlyTheRequestedBand() {
+        // sotto aria, sopra roccia con un pozzo verticale: conta solo la fascia alta
+        int sy = 2 * SIZE;
+        byte[] ids = stone(sy);
+        for (int x = 0; x < SIZE; x++)
+            for (int y = 0; y < SIZE; y++)
+                for (int z = 0; z < SIZE; z++)
+                    air(ids, sy, x, y, z);
+        for (int y = SIZE; y < sy; y++)
+            air(ids, sy, 3, y, 12);
+
+        assertEquals(SectionVisibility.ALL, SectionVisibility.compute(ids, SIZE, sy, SIZE, 0, SIZE));
+        assertEquals(pairs(DOWN, UP), SectionVisibility.compute(ids, SIZE, sy, SIZE, SIZE, sy));
+    }
+}
@@ -0,0 +1,112 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class VertexArenaTest {
+
+    @Test
+    void allocatesFirstFit() {
+        VertexArena arena = new VertexArena(100);
+        assertEquals(0, arena.allocate(1, 10));
+        assertEquals(10, arena.allocate(2, 20));
+        assertEquals(30, arena.allocate(3, 10));
+        arena.free(2); // buco [10, 30)
+
+        assertEquals(10, arena.allocate(4, 5)); // il primo che basta, non il più adatto
+        assertEquals(15, arena.allocate(5, 15));
+        assertEquals(40, arena.allocate(6, 30)); // nel buco restante non sta
+        assertEquals(VertexArena.NONE, arena.allocate(7, 31));
+        assertEquals(0, arena.size(7));
+    }
+
+    @Test
+    void mergesFreedNeighbours() {
+        VertexArena arena = new VertexArena(40);
+        for (int id = 1; id <= 4; id++)
+            arena.allocate(id, 10);
+        arena.free(1);
+        arena.free(3);
+        assertEquals(2, arena.stats().freeBlocks());
+
+        arena.free(2); // unisce [0, 10), [10, 20) e [20, 30)
+        VertexArena.Stats stats = arena.stats();
+        assertEquals(1, stats.freeBlocks());
+        assertEquals(30, stats.largestFree());
+        assertEquals(10, stats.used());
+        assertEquals(0, arena.allocate(5, 30));
+    }
+
+    @Test
+    void rejectsBadAllocations() {
+        VertexArena arena = new VertexArena(10);
+        arena.allocate(1, 5);
+        assertThrows(IllegalStateException.class, () -> arena.allocate(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> arena.allocate(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> arena.allocate(2, 0));
+        arena.free(9); // nulla: nessun intervallo
+        assertEquals(5, arena.stats().used());
+    }
+
+    @Test
+    void compactMovesMeshesToTheFrontInOrder() {
+        VertexArena arena = new VertexArena(100);
+        arena.allocate(1, 10); // [0, 10)
+        arena.allocate(2, 10); // [10, 20)
+        arena.allocate(3, 10); // [20, 30)
+        arena.allocate(4, 20); // [30, 50)
+        arena.allocate(5, 10); // [50, 60)
+        arena.free(1);
+        arena.free(4);
+
+        List<VertexArena.Move> moves = arena.compact(200);
+
+        // 2 e 3 sono contigui: una sola copia
+        assertEquals(List.of(new VertexArena.Move(10, 0, 20), new VertexArena.Move(50, 20, 10)), moves);
+        assertEquals(0, arena.offset(2));
+        assertEquals(10, arena.offset(3));
+        assertEquals(20, arena.offset(5));
+        assertEquals(VertexArena.NONE, arena.offset(1));
+        VertexArena.Stats stats = arena.stats();
+        assertEquals(200, stats.capacity());
+        assertEquals(1, stats.freeBlocks());
+        assertEquals(170, stats.largestFree());
+        assertEquals(1, stats.compactions());
+        assertEquals(30, arena.allocate(6, 170));
+    }
+
+    @Test
+    void compactRejectsCapacityBelowUsed() {
+        VertexArena arena = new VertexArena(20);
+        arena.allocate(1, 15);
+        assertThrows(IllegalArgumentException.class, () -> arena.compact(10));
+    }
+
+    @Test
+    void capacityForDefragmentsGrowsOrDoubles() {
+        VertexArena arena = new VertexArena(100);
+        arena.allocate(1, 30);
+        arena.allocate(2, 30);
+        arena.allocate(3, 30);
+        arena.free(2);
+
+        assertEquals(100, arena.capacityFor(40)); // c'è spazio: basta deframmentare
+        assertEquals(200, arena.capacityFor(41)); // raddoppia
+        assertEquals(260, arena.capacityFor(200)); // il doppio non basta: quanto serve
+    }
+
+    @Test
+    void capacityForStaysWithinTheLimit() {
+        VertexArena arena = new VertexArena(100);
+        arena.allocate(1, 90);
+
+        assertEquals(100, arena.capacityFor(10, 100));
+        assertEquals(150, arena.capacityFor(20, 150)); // il doppio non ci sta: fino al limite
+        assertEquals(200, arena.capacityFor(20, 1000));
+        assertEquals(VertexArena.NONE, arena.capacityFor(61, 150));
+    }
+}
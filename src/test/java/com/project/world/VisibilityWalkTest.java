@@ -0,0 +1,107 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.graphics.Camera;
+import com.project.world.storage.ChunkCodec;
+
+/**
+ * Visite su chunk di una sola sezione ({@value #SIZE} blocchi per lato) in
+ * fila lungo x: la camera sta nel primo, d'aria, e guarda verso est.
+ */
+class VisibilityWalkTest {
+
+    private static final int SIZE = 16;
+
+    private final VisibilityWalk walk = new VisibilityWalk();
+    private final Camera cam = new Camera(8f, 8f, 8f, null);
+
+    VisibilityWalkTest() {
+        cam.setRotation(0, 0); // verso +x
+        cam.updateMatrices();
+    }
+
+    /** Chunk con i blocchi indicati all'origine in chunk {@code (cx, cy, 0)}, grafi calcolati. */
+    private static Chunk chunk(byte[] ids, int cx, int cy) {
+        Chunk c = Chunk.fromSnapshot(new ChunkCodec.Blocks(SIZE, SIZE, SIZE, ids), ChunkPool.NONE);
+        c.setWorldOffset(cx * SIZE, cy * SIZE, 0);
+        return c;
+    }
+
+    private static Chunk air(int cx, int cy) {
+        return chunk(new byte[SIZE * SIZE * SIZE], cx, cy);
+    }
+
+    /** Roccia con una galleria dritta da ovest a est. */
+    private static byte[] straightTunnel() {
+        byte[] ids = SectionVisibilityTest.stone(SIZE);
+        for (int x = 0; x < SIZE; x++)
+            SectionVisibilityTest.air(ids, SIZE, x, 8, 8);
+        return ids;
+    }
+
+    @Test
+    void sealedRockHidesWhatIsBehindIt() {
+        byte[] rock = SectionVisibilityTest.stone(SIZE);
+        Chunk start = air(0, 0), wall = chunk(rock, 1, 0), behind = air(2, 0);
+        start.link(Direction.EAST, wall);
+        wall.link(Direction.EAST, behind);
+
+        assertEquals(2, walk.run(start, 0, cam));
+        assertTrue(walk.reached(start.section(0)));
+        assertTrue(walk.reached(wall.section(0))); // la faccia della roccia si vede
+        assertFalse(walk.reached(behind.section(0)));
+    }
+
+    @Test
+    void tunnelLetsTheWalkThrough() {
+        Chunk start = air(0, 0), wall = chunk(straightTunnel(), 1, 0), behind = air(2, 0);
+        start.link(Direction.EAST, wall);
+        wall.link(Direction.EAST, behind);
+
+        assertEquals(3, walk.run(start, 0, cam));
+        assertTrue(walk.reached(behind.section(0)));
+    }
+
+    @Test
+    void lShapedTunnelTurnsUpward() {
+        byte[] ids = SectionVisibilityTest.stone(SIZE);
+        SectionVisibilityTest.lTunnel(ids, SIZE, 0);
+        Chunk start = air(0, 0), bend = chunk(ids, 1, 0), ahead = air(2, 0), above = air(1, 1);
+        start.link(Direction.EAST, bend);
+        bend.link(Direction.EAST, ahead);
+        bend.link(Direction.UP, above);
+
+        walk.run(start, 0, cam);
+
+        assertTrue(walk.reached(bend.section(0)));
+        assertTrue(walk.reached(above.section(0)));
+        assertFalse(walk.reached(ahead.section(0))); // da ovest la faccia est non si vede
+    }
+
+    @Test
+    void sectionsOutsideTheFrustumAreNotEntered() {
+        Chunk start = air(0, 0), back = air(-1, 0);
+        start.link(Direction.WEST, back);
+
+        assertEquals(1, walk.run(start, 0, cam));
+        assertFalse(walk.reached(back.section(0)));
+    }
+
+    @Test
+    void eachRunForgetsThePreviousOne() {
+        Chunk start = air(0, 0), next = air(1, 0);
+        start.link(Direction.EAST, next);
+        walk.run(start, 0, cam);
+        assertTrue(walk.reached(next.section(0)));
+
+        Chunk alone = air(0, 0);
+        walk.run(alone, 0, cam);
+        assertFalse(walk.reached(next.section(0)));
+        assertTrue(walk.reached(alone.section(0)));
+    }
+}
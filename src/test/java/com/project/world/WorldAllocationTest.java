@@ -0,0 +1,77 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.project.graphics.Camera;
+
+/**
+ * Un frame a regime ({@link World#update} più {@link World#render}) non
+ * alloca: si carica il mondo attorno alla camera ferma, poi si contano i byte
+ * allocati dal thread. Lo stesso controllo, più lungo, è in
+ * {@code RenderLoopBenchmark}.
+ */
+class WorldAllocationTest {
+
+    private static final int VIEW_DISTANCE = 2;
+    private static final int FRAMES = 2000;
+    /** Giri misurati: i primi servono al JIT, basta che uno sia pulito. */
+    private static final int ROUNDS = 5;
+    private static final int SETTLED = 100;
+    private static final int MAX_WARMUP = 10_000;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void steadyStateFrameDoesNotAllocate() throws IOException, InterruptedException {
+        assertTrue(THREADS.isThreadAllocatedMemorySupported());
+        HeadlessRenderBackend backend = new HeadlessRenderBackend();
+        World world = new World(backend, dir, VIEW_DISTANCE);
+        try {
+            Camera cam = new Camera(0.5f, 90f, 0.5f, world);
+            long uploads = -1;
+            int still = 0;
+            for (int warmup = 0; still < SETTLED && warmup < MAX_WARMUP; warmup++) {
+                frame(world, cam);
+                long now = backend.stats().uploads();
+                still = now == uploads ? still + 1 : 0;
+                uploads = now;
+                Thread.sleep(2);
+            }
+            assertEquals(SETTLED, still, "il mondo non si è stabilizzato");
+
+            long c0 = allocatedBytes();
+            long calibration = allocatedBytes() - c0;
+            long best = Long.MAX_VALUE;
+            for (int r = 0; r < ROUNDS && best != 0; r++) {
+                long a0 = allocatedBytes();
+                for (int f = 0; f < FRAMES; f++)
+                    frame(world, cam);
+                best = Math.min(best, allocatedBytes() - a0 - calibration);
+            }
+            assertEquals(0, best, "byte allocati in " + FRAMES + " frame");
+        } finally {
+            world.cleanup();
+        }
+    }
+
+    private static void frame(World world, Camera cam) throws IOException {
+        world.update(cam);
+        cam.updateMatrices();
+        world.render(cam);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,73 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.project.graphics.Camera;
+
+/**
+ * Modifiche ai blocchi con lo spazio delle mesh esaurito: le sezioni
+ * ricostruite restano in attesa invece di sforare il budget, e si caricano
+ * quando lo spazio si libera.
+ */
+class WorldBudgetTest {
+
+    private static final int BUDGET = VertexArena.INITIAL_CAPACITY * VertexArena.VERTEX_BYTES;
+    private static final int SETTLED = 100;
+    private static final int MAX_WARMUP = 10_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void editsUnderAFullBudgetWaitForSpace() throws IOException, InterruptedException {
+        HeadlessRenderBackend backend = new HeadlessRenderBackend(BUDGET); // l'arena non può crescere
+        World world = new World(backend, dir, 1);
+        try {
+            Camera cam = new Camera(0.5f, 90f, 0.5f, world);
+            long uploads = -1;
+            int still = 0;
+            for (int warmup = 0; still < SETTLED && warmup < MAX_WARMUP; warmup++) {
+                world.update(cam);
+                long now = backend.stats().uploads();
+                still = now == uploads ? still + 1 : 0;
+                uploads = now;
+                Thread.sleep(2);
+            }
+            assertEquals(SETTLED, still, "il mondo non si è stabilizzato");
+
+            // riempie lo spazio libero dell'arena
+            VertexArena.Stats arena = backend.stats().arena();
+            long filler = backend.createMesh();
+            backend.uploadMesh(filler, new int[(arena.capacity() - arena.used()) * MeshBuilder.INTS_PER_VERTEX]);
+            assertFalse(backend.canUpload(1));
+
+            int broken = 0;
+            for (int x = 0; x < 16; x++) {
+                for (int z = x & 1; z < 16; z += 2) {
+                    int y = world.getSurfaceY(x, z) - 1;
+                    if (world.breakBlock(new Vector3f(x + 0.5f, y + 0.5f, z + 0.5f)))
+                        broken++;
+                }
+                world.update(cam);
+            }
+            assertTrue(broken > 0);
+            long blocked = backend.stats().uploads();
+
+            backend.deleteMesh(filler);
+            for (int i = 0; i < 10; i++)
+                world.update(cam);
+            assertTrue(backend.stats().uploads() > blocked, "mesh in attesa non caricate");
+        } finally {
+            world.cleanup();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.project.world;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.project.graphics.Camera;
+
+/** Il frame in cui si esce al menu può ancora chiamare il mondo già chiuso. */
+class WorldCleanupTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void updateAndRenderAfterCleanupDoNothing() throws IOException {
+        World world = new World(new HeadlessRenderBackend(), dir, 2);
+        Camera cam = new Camera(0.5f, 90f, 0.5f, world);
+        world.update(cam); // chunk ancora in caricamento sui worker
+        world.cleanup();
+
+        assertDoesNotThrow(() -> {
+            world.update(cam);
+            cam.updateMatrices();
+            world.render(cam);
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package com.project.world.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChunkSaveQueueTest {
+
+    private static final int SIZE = 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void failedWriteKeepsTheCopyUntilARetrySucceeds() throws IOException, InterruptedException {
+        RegionStorage storage = new RegionStorage(dir, SIZE);
+        ChunkSaveQueue queue = new ChunkSaveQueue(storage, 1, 4);
+        try {
+            // una cartella al posto del file di regione: la scrittura fallisce
+            Path region = storage.regionPath(0, 0, 0);
+            Files.createDirectories(region);
+            ChunkCodec.Blocks snapshot = new ChunkCodec.Blocks(SIZE, SIZE, SIZE, new byte[SIZE * SIZE * SIZE]);
+            AtomicInteger saved = new AtomicInteger();
+
+            queue.submit(0, 0, 0, snapshot, saved::incrementAndGet);
+            queue.flush();
+            assertEquals(1, queue.metrics().failed());
+            assertEquals(1, queue.metrics().toRetry());
+            assertEquals(0, saved.get());
+            assertSame(snapshot, queue.unsavedSnapshot(0, 0, 0)); // le modifiche non sono perse
+
+            Files.delete(region);
+            assertEquals(1, queue.retryFailed());
+            queue.flush();
+            assertEquals(1, saved.get());
+            assertEquals(0, queue.metrics().toRetry());
+            assertNull(queue.unsavedSnapshot(0, 0, 0));
+            assertTrue(storage.contains(0, 0, 0));
+        } finally {
+            queue.close();
+            storage.close();
+        }
+    }
+}